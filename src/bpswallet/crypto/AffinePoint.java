@@ -0,0 +1,30 @@
+package bpswallet.crypto;
+
+import java.security.spec.ECPoint;
+
+/**
+ * A secp256k1 point other than infinity in affine coordinates, held as field
+ * elements. Precomputed tables store their points in this form so that each
+ * addition can use the cheaper mixed Jacobian-affine formula.
+ *
+ * The coordinates are normalized on construction and table entries are
+ * shared between threads, so they must only ever be read.
+ */
+final class AffinePoint {
+
+    final FieldElement x;
+    final FieldElement y;
+
+    AffinePoint(FieldElement x, FieldElement y) {
+        this.x = x.normalize();
+        this.y = y.normalize();
+    }
+
+    static AffinePoint fromECPoint(ECPoint p) {
+        return new AffinePoint(FieldElement.fromBigInteger(p.getAffineX()), FieldElement.fromBigInteger(p.getAffineY()));
+    }
+
+    ECPoint toECPoint() {
+        return new ECPoint(x.toBigInteger(), y.toBigInteger());
+    }
+}
@@ -1,12 +1,7 @@
 package bpswallet.crypto;
 
-import java.security.KeyFactory;
 import java.security.SecureRandom;
 import java.security.NoSuchAlgorithmException;
-import java.security.interfaces.ECPublicKey;
-import java.security.spec.ECPoint;
-import java.security.spec.ECPublicKeySpec;
-import java.security.spec.InvalidKeySpecException;
 import bpswallet.util.ByteUtil;
 
 public class ECKeyPair {
@@ -34,15 +29,7 @@ public class ECKeyPair {
     }
 
     private ECPubKey setPubKey() {
-        try {
-            ECPoint W = ScalarMultiply.scalmult(CurveParams.G, prvKey.getSecret());
-            ECPublicKeySpec pubKeySpec = new ECPublicKeySpec(W, CurveParams.ecSpec);
-            KeyFactory keyFactory = KeyFactory.getInstance("EC");
-            ECPublicKey K = (ECPublicKey)keyFactory.generatePublic(pubKeySpec);
-            return new ECPubKey(K);
-        } catch (NoSuchAlgorithmException | InvalidKeySpecException ex) {
-            throw new RuntimeException(ex);
-        }
+        return new ECPubKey(ScalarMultiply.scalmultBase(prvKey.getSecret()));
     }
     
     public ECPrvKey getPrv() {
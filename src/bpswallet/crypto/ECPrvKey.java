@@ -9,50 +9,46 @@ import java.security.spec.ECPrivateKeySpec;
 import java.security.spec.InvalidKeySpecException;
 import bpswallet.util.ByteUtil;
 
+/**
+ * A secp256k1 private key, held as its secret scalar. The hex encoding and
+ * the JCA ECPrivateKey are only produced when asked for.
+ */
 public class ECPrvKey implements ECKey {
 
-    private final String encoded;
     private final BigInteger secret;
-    private final ECPrivateKey prvKey;
+    private String encoded;
+    private volatile ECPrivateKey prvKey;
 
     public ECPrvKey(BigInteger secret) {
-        this(String.format("%064x", secret));
+        this.secret = secret;
     }
 
     public ECPrvKey(String encoded) {
         this.encoded = encoded;
         secret = new BigInteger(1, ByteUtil.hex2bytes(encoded));
-        prvKey = setPrvKey();
-    }
-
-    private ECPrivateKey setPrvKey() {
-        try {
-            ECPrivateKeySpec prvKeySpec = new ECPrivateKeySpec(secret, CurveParams.ecSpec);
-            KeyFactory keyFactory = KeyFactory.getInstance("EC");
-            ECPrivateKey k = (ECPrivateKey) keyFactory.generatePrivate(prvKeySpec);
-            return k;
-        } catch (NoSuchAlgorithmException | InvalidKeySpecException ex) {
-            throw new RuntimeException(ex);
-        }
     }
 
     public ECSignature sign(String message) {
-        BigInteger z = new BigInteger(1, ByteUtil.hex2bytes(message));
-        BigInteger r = BigInteger.ZERO;
-        BigInteger s = BigInteger.ZERO;
-        while (r.compareTo(BigInteger.ZERO) == 0
-                || s.compareTo(BigInteger.ZERO) == 0) {
-            ECKeyPair ephemKeyPair = ECKeyPair.randomKeyPair();
-            r = ephemKeyPair.getPub().getPoint().getAffineX().mod(CurveParams.n);
-            if (r.compareTo(BigInteger.ZERO) != 0) {
-                BigInteger kInv = ephemKeyPair.getPrv().getSecret().modInverse(CurveParams.n);
-                s = kInv.multiply(z.add(r.multiply(this.getSecret()))).mod(CurveParams.n);
-                if (s.compareTo(CurveParams.n.divide(BigInteger.valueOf(2))) > 0) {
-                    s = CurveParams.n.subtract(s);
+        Scalar z = Scalar.fromBigInteger(new BigInteger(1, ByteUtil.hex2bytes(message)));
+        Scalar d = Scalar.fromBigInteger(this.getSecret());
+        Scalar k = new Scalar();
+        Scalar r = new Scalar();
+        Scalar s = new Scalar();
+        // RFC 6979: the nonce is derived from the key and the message hash
+        HmacDrbg nonces = HmacDrbg.get();
+        nonces.seed(d, z);
+        while (r.isZero() || s.isZero()) {
+            nonces.nextNonce(k);
+            r.set(ScalarMultiply.scalmultBaseJacobian(k).toAffine().getAffineX());
+            if (!r.isZero()) {
+                Scalar kInv = k.inverse(k);
+                s.mul(r, d).add(s, z).mul(s, kInv);
+                if (s.isHigh()) {
+                    s.negate(s);
                 }
             }
         }
-        return new ECSignature(r, s);
+        return new ECSignature(r.toBigInteger(), s.toBigInteger());
     }
 
     public ECPubKey getPubKey() {
@@ -61,7 +57,20 @@ public class ECPrvKey implements ECKey {
 
     @Override
     public String getEncoded() {
-        return encoded;
+        String hex = encoded;
+        if (hex == null) {
+            hex = encoded = ByteUtil.hexify(this.getBytes());
+        }
+        return hex;
+    }
+
+    /**
+     * @return the secret as a 32-byte big-endian integer.
+     */
+    public byte[] getBytes() {
+        byte[] bytes = new byte[32];
+        Scalar.fromBigInteger(secret).getBytes(bytes, 0);
+        return bytes;
     }
 
     public BigInteger getSecret() {
@@ -69,10 +78,19 @@ public class ECPrvKey implements ECKey {
     }
 
     public ECPrivateKey getKey() {
-        return prvKey;
+        ECPrivateKey k = prvKey;
+        if (k == null) {
+            try {
+                ECPrivateKeySpec prvKeySpec = new ECPrivateKeySpec(secret, CurveParams.ecSpec);
+                k = prvKey = (ECPrivateKey) KeyFactory.getInstance("EC").generatePrivate(prvKeySpec);
+            } catch (NoSuchAlgorithmException | InvalidKeySpecException ex) {
+                throw new RuntimeException(ex);
+            }
+        }
+        return k;
     }
 
     public String getWIF() {
-        return Base58Check.bytesToBase58(ByteUtil.hex2bytes("80" + encoded + "01"));
+        return Base58Check.bytesToBase58(ByteUtil.hex2bytes("80" + this.getEncoded() + "01"));
     }
 }
@@ -25,107 +25,137 @@ import javax.crypto.spec.SecretKeySpec;
 import bpswallet.util.ByteUtil;
 import bpswallet.util.HashUtil;
 
+/**
+ * A secp256k1 public key, held as its 33-byte compressed encoding and its
+ * curve point. Encoded keys are checked to lie on the curve when parsed.
+ * The JCA ECPublicKey is only built the first time it is asked for, so keys
+ * that are merely derived and encoded stay cheap.
+ */
 public class ECPubKey implements ECKey {
 
-    private final String encoded;
+    private final byte[] compressed;
     private final ECPoint point;
-    private final ECPublicKey pubKey;
+    private String encoded;
+    private volatile ECPublicKey pubKey;
 
     public ECPubKey(String encoded) {
-        pubKey = setPubKey(encoded);
-        point = pubKey.getW();
-        if (encoded.startsWith("04")) {
-            this.encoded = encode();
-        } else {
+        this(ByteUtil.hex2bytes(encoded));
+        if (encoded.length() == 66) {
             this.encoded = encoded;
         }
     }
 
+    /**
+     * @param keyBytes the compressed (33-byte) or uncompressed (65-byte) SEC
+     * encoding of the key.
+     * @throws IllegalArgumentException if the encoding is malformed or the
+     * point is not on the curve.
+     */
+    public ECPubKey(byte[] keyBytes) {
+        if (keyBytes.length == 65 && keyBytes[0] == 0x04) {
+            FieldElement x = readCoordinate(keyBytes, 1);
+            FieldElement y = readCoordinate(keyBytes, 33);
+            if (!new FieldElement().sqr(y).equals(curveRhs(x))) {
+                throw new IllegalArgumentException("Invalid public key encoding");
+            }
+            point = new ECPoint(x.toBigInteger(), y.toBigInteger());
+            compressed = compress(x, y);
+        } else if (keyBytes.length == 33 && (keyBytes[0] == 0x02 || keyBytes[0] == 0x03)) {
+            compressed = keyBytes.clone();
+            point = decompress(compressed);
+        } else {
+            throw new IllegalArgumentException("Invalid public key encoding");
+        }
+    }
+
     public ECPubKey(ECPublicKey pubKey) {
+        this(pubKey.getW());
         this.pubKey = pubKey;
-        point = pubKey.getW();
-        encoded = encode();
     }
 
     public ECPubKey(ECPoint point) {
         this.point = point;
-        try {
-            ECPublicKeySpec pubKeySpec = new ECPublicKeySpec(point, CurveParams.ecSpec);
-            KeyFactory keyFactory = KeyFactory.getInstance("EC");
-            pubKey = (ECPublicKey) keyFactory.generatePublic(pubKeySpec);
-            encoded = encode();
-        } catch (NoSuchAlgorithmException | InvalidKeySpecException ex) {
-            throw new RuntimeException(ex);
-        }
+        compressed = compress(FieldElement.fromBigInteger(point.getAffineX()), FieldElement.fromBigInteger(point.getAffineY()));
     }
 
-    private ECPublicKey setPubKey(String encodedKey) {
-        if (encodedKey.isEmpty()) {
-            return null;
-        }
-        try {
-            String decompressedKey;
-            if (!encodedKey.startsWith("04")) {
-                decompressedKey = decompressPubKey(encodedKey);
-            } else {
-                decompressedKey = encodedKey;
+    private static byte[] compress(FieldElement x, FieldElement y) {
+        byte[] keyBytes = new byte[33];
+        keyBytes[0] = (byte) (y.isOdd() ? 0x03 : 0x02);
+        x.getBytes(keyBytes, 1);
+        return keyBytes;
+    }
+
+    /**
+     * Reads a 32-byte coordinate, rejecting values that are not below p.
+     */
+    private static FieldElement readCoordinate(byte[] keyBytes, int offset) {
+        FieldElement c = new FieldElement().setBytes(keyBytes, offset);
+        byte[] canonical = new byte[32];
+        c.getBytes(canonical, 0);
+        for (int i = 0; i < 32; i++) {
+            if (canonical[i] != keyBytes[offset + i]) {
+                throw new IllegalArgumentException("Invalid public key encoding");
             }
-            BigInteger bi_x = new BigInteger(1, ByteUtil.hex2bytes(decompressedKey.substring(2, 66)));
-            BigInteger bi_y = new BigInteger(1, ByteUtil.hex2bytes(decompressedKey.substring(66, 130)));
-            ECPoint keyPoint = new ECPoint(bi_x, bi_y);
-            ECPublicKeySpec keySpec = new ECPublicKeySpec(keyPoint, CurveParams.ecSpec);
-            KeyFactory keyFactory = KeyFactory.getInstance("EC");
-            return (ECPublicKey) keyFactory.generatePublic(keySpec);
-        } catch (NoSuchAlgorithmException | InvalidKeySpecException ex) {
-            throw new RuntimeException(ex);
         }
+        return c;
     }
 
-    private String decompressPubKey(String encodedKey) {
-        byte[] keyBytes = ByteUtil.hex2bytes(encodedKey);
-        byte[] K_x_bytes = new byte[32];
-        System.arraycopy(keyBytes, 1, K_x_bytes, 0, K_x_bytes.length);
-        byte parity = keyBytes[0];
-        BigInteger K_x = new BigInteger(1, K_x_bytes);
-        BigInteger y_square
-                = K_x.modPow(BigInteger.valueOf(3), CurveParams.p).add(CurveParams.b).mod(CurveParams.p);
-        BigInteger y_root = y_square.modPow(
-                CurveParams.p.add(BigInteger.ONE).divide(BigInteger.valueOf(4)),
-                CurveParams.p
-        );
-        BigInteger K_y;
-        if (parity == 0x02 && y_root.testBit(0) || parity == 0x03 && !y_root.testBit(0)) {
-            K_y = y_root.negate().mod(CurveParams.p);
-        } else {
-            K_y = y_root;
-        }
-        String K_uncomp = "04" + String.format("%064x", K_x) + String.format("%064x", K_y);
-        return K_uncomp;
+    /**
+     * @return x^3 + 7, the square of y for a point on the curve.
+     */
+    private static FieldElement curveRhs(FieldElement x) {
+        FieldElement rhs = new FieldElement().sqr(x);
+        return rhs.mul(rhs, x).add(rhs, new FieldElement().setInt(7));
     }
 
-    private String encode() {
-        BigInteger K_x = pubKey.getW().getAffineX();
-        BigInteger K_y = pubKey.getW().getAffineY();
-        String parity = (K_y.testBit(0) ? "03" : "02");
-        return parity + String.format("%064x", K_x);
+    private static ECPoint decompress(byte[] compressed) {
+        FieldElement K_x = readCoordinate(compressed, 1);
+        FieldElement y_root = curveRhs(K_x);
+        if (!y_root.sqrt(y_root)) {
+            throw new IllegalArgumentException("Invalid public key encoding");
+        }
+        if ((compressed[0] == 0x03) != y_root.isOdd()) {
+            y_root.negate(y_root);
+        }
+        return new ECPoint(K_x.toBigInteger(), y_root.toBigInteger());
     }
 
     public boolean verify(String sigHash, ECSignature signature) {
         BigInteger z = new BigInteger(1, ByteUtil.hex2bytes(sigHash));
-        BigInteger r = signature.getR();
-        BigInteger s = signature.getS();
-        BigInteger sInv = s.modInverse(CurveParams.n);
-        BigInteger u1 = z.multiply(sInv).mod(CurveParams.n);
-        BigInteger u2 = r.multiply(sInv).mod(CurveParams.n);
-        ECPoint u1Point = ScalarMultiply.scalmult(CurveParams.G, u1);
-        ECPoint u2Point = ScalarMultiply.scalmult(this.getPoint(), u2);
-        ECPoint sigPoint = ScalarMultiply.addPoint(u1Point, u2Point);
-        return r.compareTo(sigPoint.getAffineX().mod(CurveParams.n)) == 0;
+        return verify(z, signature.getR(), signature.getS(), this.getPoint());
+    }
+
+    /**
+     * Checks an ECDSA signature (r, s) over the message hash z for the public
+     * point Q. The point u1 * G + u2 * Q is left in Jacobian coordinates and
+     * its x coordinate is compared projectively, so no inversion is needed.
+     *
+     * @param z the message hash as an integer.
+     * @param r the signature's r value.
+     * @param s the signature's s value.
+     * @param Q the public key point.
+     * @return true if the signature is valid.
+     */
+    static boolean verify(BigInteger z, BigInteger r, BigInteger s, ECPoint Q) {
+        if (r.signum() <= 0 || r.compareTo(CurveParams.n) >= 0
+                || s.signum() <= 0 || s.compareTo(CurveParams.n) >= 0) {
+            return false;
+        }
+        Scalar sInv = new Scalar().inverse(Scalar.fromBigInteger(s));
+        Scalar u1 = new Scalar().mul(Scalar.fromBigInteger(z), sInv);
+        Scalar u2 = new Scalar().mul(Scalar.fromBigInteger(r), sInv);
+        JacobianPoint sigPoint = ScalarMultiply.multiplyTwoJacobian(u1, CurveParams.G, u2, Q);
+        if (sigPoint.hasAffineX(r)) {
+            return true;
+        }
+        // x(R) may have been reduced mod n when it lies in [n, p)
+        BigInteger rWrapped = r.add(CurveParams.n);
+        return rWrapped.compareTo(CurveParams.p) < 0 && sigPoint.hasAffineX(rWrapped);
     }
 
     public ECIESData encrypt(boolean passwordProtected, String data, String salt) {
         ECKeyPair ephemKeyPair = ECKeyPair.randomKeyPair();
-        ECPubKey encryptionKey = new ECPubKey(ScalarMultiply.scalmult(this.point, ephemKeyPair.getPrv().getSecret()));
+        ECPubKey encryptionKey = new ECPubKey(ScalarMultiply.scalmultGlv(this.getPoint(), ephemKeyPair.getPrv().getSecret()));
         String ciphertext = "";
         try {
             Cipher cipher = Cipher.getInstance("AES");
@@ -146,20 +176,40 @@ public class ECPubKey implements ECKey {
     }
 
     public SecretKey asSecretKey() {
-        return new SecretKeySpec(ByteUtil.hex2bytes(encoded.substring(2, 66)), "AES");
+        return new SecretKeySpec(compressed, 1, 32, "AES");
     }
 
     public ECPoint getPoint() {
         return point;
     }
 
+    /**
+     * @return a copy of the 33-byte compressed encoding.
+     */
+    public byte[] getBytes() {
+        return compressed.clone();
+    }
+
     @Override
     public String getEncoded() {
-        return encoded;
+        String hex = encoded;
+        if (hex == null) {
+            hex = encoded = ByteUtil.hexify(compressed);
+        }
+        return hex;
     }
 
     public ECPublicKey getKey() {
-        return pubKey;
+        ECPublicKey k = pubKey;
+        if (k == null) {
+            try {
+                ECPublicKeySpec pubKeySpec = new ECPublicKeySpec(this.getPoint(), CurveParams.ecSpec);
+                k = pubKey = (ECPublicKey) KeyFactory.getInstance("EC").generatePublic(pubKeySpec);
+            } catch (NoSuchAlgorithmException | InvalidKeySpecException ex) {
+                throw new RuntimeException(ex);
+            }
+        }
+        return k;
     }
 
     /*
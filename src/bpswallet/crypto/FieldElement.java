@@ -0,0 +1,504 @@
+package bpswallet.crypto;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+/**
+ * An element of the secp256k1 base field, the integers mod
+ * p = 2^256 - 2^32 - 977, stored as ten 26-bit limbs in little-endian order
+ * (the top limb holds the remaining 22 bits). The product of two limbs, and
+ * the sum of ten such products, fits in a long, and the special form of p
+ * lets the upper half of a product be folded back in with small
+ * multiplications instead of a division.
+ *
+ * Elements are mutable so that point arithmetic can reuse its temporaries
+ * rather than allocate a new BigInteger for every intermediate value. Each
+ * operation writes its result into this element and returns it, and the
+ * operands may be this element itself.
+ *
+ * Results are kept weakly reduced: limbs 0 to 8 are below 2^26 and limb 9 is
+ * at most 2^22, but the value is not necessarily below p.
+ * {@link #normalize()} produces the canonical value in [0, p).
+ */
+public final class FieldElement {
+
+    private static final int M = 0x3FFFFFF;
+    // 2 * p limb by limb, so subtracting a weakly reduced value never takes a
+    // limb negative
+    private static final int[] TWO_P = {
+        0x7FFF85E, 0x7FFFF7E, 0x7FFFFFE, 0x7FFFFFE, 0x7FFFFFE,
+        0x7FFFFFE, 0x7FFFFFE, 0x7FFFFFE, 0x7FFFFFE, 0x7FFFFE
+    };
+
+    private final int[] n = new int[10];
+
+    public FieldElement() {
+
+    }
+
+    public static FieldElement fromBigInteger(BigInteger value) {
+        return new FieldElement().set(value);
+    }
+
+    public FieldElement set(FieldElement a) {
+        System.arraycopy(a.n, 0, n, 0, n.length);
+        return this;
+    }
+
+    public FieldElement set(BigInteger value) {
+        byte[] bytes = value.mod(CurveParams.p).toByteArray();
+        byte[] padded = new byte[32];
+        int length = Math.min(bytes.length, 32);
+        System.arraycopy(bytes, bytes.length - length, padded, 32 - length, length);
+        return this.setBytes(padded, 0);
+    }
+
+    /**
+     * Sets this element to a small non-negative integer.
+     *
+     * @param value the integer, below 2^26.
+     * @return this element.
+     */
+    public FieldElement setInt(int value) {
+        Arrays.fill(n, 0);
+        n[0] = value;
+        return this;
+    }
+
+    /**
+     * Reads a 32-byte big-endian integer. Values in [p, 2^256) are accepted
+     * and behave as their residue mod p.
+     *
+     * @param bytes the source array.
+     * @param offset the index of the most significant byte.
+     * @return this element.
+     */
+    public FieldElement setBytes(byte[] bytes, int offset) {
+        long acc = 0;
+        int bits = 0;
+        int limb = 0;
+        for (int i = offset + 31; i >= offset; i--) {
+            acc |= (long) (bytes[i] & 0xFF) << bits;
+            bits += 8;
+            if (bits >= 26) {
+                n[limb++] = (int) (acc & M);
+                acc >>>= 26;
+                bits -= 26;
+            }
+        }
+        n[9] = (int) acc;
+        return this;
+    }
+
+    /**
+     * Writes the canonical value as a 32-byte big-endian integer.
+     *
+     * @param bytes the destination array.
+     * @param offset the index of the most significant byte.
+     */
+    public void getBytes(byte[] bytes, int offset) {
+        this.normalize();
+        long acc = 0;
+        int bits = 0;
+        int limb = 0;
+        for (int i = offset + 31; i >= offset; i--) {
+            if (bits < 8) {
+                acc |= (long) n[limb++] << bits;
+                bits += 26;
+            }
+            bytes[i] = (byte) acc;
+            acc >>>= 8;
+            bits -= 8;
+        }
+    }
+
+    public BigInteger toBigInteger() {
+        byte[] bytes = new byte[32];
+        this.getBytes(bytes, 0);
+        return new BigInteger(1, bytes);
+    }
+
+    /**
+     * Reduces this element in place to its canonical value in [0, p). The
+     * value it represents does not change.
+     *
+     * @return this element.
+     */
+    public FieldElement normalize() {
+        this.reduce();
+        // Anything left at or above 2^256 is tiny; fold it in once more
+        int top = n[9] >>> 22;
+        n[9] &= 0x3FFFFF;
+        n[0] += top * 0x3D1;
+        n[1] += top << 6;
+        this.carry();
+        // The value is now below 2^256, and it is at least p exactly when
+        // adding 2^256 - p = 0x1000003D1 carries out of the top limb
+        boolean overflow = n[9] == 0x3FFFFF
+                && (n[2] & n[3] & n[4] & n[5] & n[6] & n[7] & n[8]) == M
+                && n[1] + 0x40 + ((n[0] + 0x3D1) >>> 26) > M;
+        if (overflow) {
+            n[0] += 0x3D1;
+            n[1] += 0x40;
+            this.carry();
+            n[9] &= 0x3FFFFF;
+        }
+        return this;
+    }
+
+    public boolean isZero() {
+        this.normalize();
+        int bits = 0;
+        for (int limb : n) {
+            bits |= limb;
+        }
+        return bits == 0;
+    }
+
+    public boolean isOdd() {
+        this.normalize();
+        return (n[0] & 1) != 0;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof FieldElement)) {
+            return false;
+        }
+        FieldElement other = (FieldElement) o;
+        this.normalize();
+        other.normalize();
+        return Arrays.equals(n, other.n);
+    }
+
+    @Override
+    public int hashCode() {
+        this.normalize();
+        return Arrays.hashCode(n);
+    }
+
+    public FieldElement add(FieldElement a, FieldElement b) {
+        for (int i = 0; i < n.length; i++) {
+            n[i] = a.n[i] + b.n[i];
+        }
+        return this.reduce();
+    }
+
+    public FieldElement sub(FieldElement a, FieldElement b) {
+        for (int i = 0; i < n.length; i++) {
+            n[i] = a.n[i] + TWO_P[i] - b.n[i];
+        }
+        return this.reduce();
+    }
+
+    public FieldElement negate(FieldElement a) {
+        for (int i = 0; i < n.length; i++) {
+            n[i] = TWO_P[i] - a.n[i];
+        }
+        return this.reduce();
+    }
+
+    /**
+     * Multiplies by a small constant.
+     *
+     * @param a the element to multiply.
+     * @param factor a constant in the range [0, 16].
+     * @return this element.
+     */
+    public FieldElement mulInt(FieldElement a, int factor) {
+        for (int i = 0; i < n.length; i++) {
+            n[i] = a.n[i] * factor;
+        }
+        return this.reduce();
+    }
+
+    public FieldElement mul(FieldElement a, FieldElement b) {
+        long a0 = a.n[0];
+        long a1 = a.n[1];
+        long a2 = a.n[2];
+        long a3 = a.n[3];
+        long a4 = a.n[4];
+        long a5 = a.n[5];
+        long a6 = a.n[6];
+        long a7 = a.n[7];
+        long a8 = a.n[8];
+        long a9 = a.n[9];
+        long b0 = b.n[0];
+        long b1 = b.n[1];
+        long b2 = b.n[2];
+        long b3 = b.n[3];
+        long b4 = b.n[4];
+        long b5 = b.n[5];
+        long b6 = b.n[6];
+        long b7 = b.n[7];
+        long b8 = b.n[8];
+        long b9 = b.n[9];
+        long c0 = a0 * b0;
+        long c1 = a0 * b1 + a1 * b0;
+        long c2 = a0 * b2 + a1 * b1 + a2 * b0;
+        long c3 = a0 * b3 + a1 * b2 + a2 * b1 + a3 * b0;
+        long c4 = a0 * b4 + a1 * b3 + a2 * b2 + a3 * b1 + a4 * b0;
+        long c5 = a0 * b5 + a1 * b4 + a2 * b3 + a3 * b2 + a4 * b1 + a5 * b0;
+        long c6 = a0 * b6 + a1 * b5 + a2 * b4 + a3 * b3 + a4 * b2 + a5 * b1 + a6 * b0;
+        long c7 = a0 * b7 + a1 * b6 + a2 * b5 + a3 * b4 + a4 * b3 + a5 * b2 + a6 * b1 + a7 * b0;
+        long c8 = a0 * b8 + a1 * b7 + a2 * b6 + a3 * b5 + a4 * b4 + a5 * b3 + a6 * b2 + a7 * b1 + a8 * b0;
+        long c9 = a0 * b9 + a1 * b8 + a2 * b7 + a3 * b6 + a4 * b5 + a5 * b4 + a6 * b3 + a7 * b2 + a8 * b1 + a9 * b0;
+        long c10 = a1 * b9 + a2 * b8 + a3 * b7 + a4 * b6 + a5 * b5 + a6 * b4 + a7 * b3 + a8 * b2 + a9 * b1;
+        long c11 = a2 * b9 + a3 * b8 + a4 * b7 + a5 * b6 + a6 * b5 + a7 * b4 + a8 * b3 + a9 * b2;
+        long c12 = a3 * b9 + a4 * b8 + a5 * b7 + a6 * b6 + a7 * b5 + a8 * b4 + a9 * b3;
+        long c13 = a4 * b9 + a5 * b8 + a6 * b7 + a7 * b6 + a8 * b5 + a9 * b4;
+        long c14 = a5 * b9 + a6 * b8 + a7 * b7 + a8 * b6 + a9 * b5;
+        long c15 = a6 * b9 + a7 * b8 + a8 * b7 + a9 * b6;
+        long c16 = a7 * b9 + a8 * b8 + a9 * b7;
+        long c17 = a8 * b9 + a9 * b8;
+        long c18 = a9 * b9;
+        return this.setProduct(c0, c1, c2, c3, c4, c5, c6, c7, c8, c9, c10, c11, c12, c13, c14, c15, c16, c17, c18);
+    }
+
+    public FieldElement sqr(FieldElement a) {
+        long a0 = a.n[0];
+        long a1 = a.n[1];
+        long a2 = a.n[2];
+        long a3 = a.n[3];
+        long a4 = a.n[4];
+        long a5 = a.n[5];
+        long a6 = a.n[6];
+        long a7 = a.n[7];
+        long a8 = a.n[8];
+        long a9 = a.n[9];
+        long c0 = a0 * a0;
+        long c1 = a0 * a1 * 2;
+        long c2 = a0 * a2 * 2 + a1 * a1;
+        long c3 = (a0 * a3 + a1 * a2) * 2;
+        long c4 = (a0 * a4 + a1 * a3) * 2 + a2 * a2;
+        long c5 = (a0 * a5 + a1 * a4 + a2 * a3) * 2;
+        long c6 = (a0 * a6 + a1 * a5 + a2 * a4) * 2 + a3 * a3;
+        long c7 = (a0 * a7 + a1 * a6 + a2 * a5 + a3 * a4) * 2;
+        long c8 = (a0 * a8 + a1 * a7 + a2 * a6 + a3 * a5) * 2 + a4 * a4;
+        long c9 = (a0 * a9 + a1 * a8 + a2 * a7 + a3 * a6 + a4 * a5) * 2;
+        long c10 = (a1 * a9 + a2 * a8 + a3 * a7 + a4 * a6) * 2 + a5 * a5;
+        long c11 = (a2 * a9 + a3 * a8 + a4 * a7 + a5 * a6) * 2;
+        long c12 = (a3 * a9 + a4 * a8 + a5 * a7) * 2 + a6 * a6;
+        long c13 = (a4 * a9 + a5 * a8 + a6 * a7) * 2;
+        long c14 = (a5 * a9 + a6 * a8) * 2 + a7 * a7;
+        long c15 = (a6 * a9 + a7 * a8) * 2;
+        long c16 = a7 * a9 * 2 + a8 * a8;
+        long c17 = a8 * a9 * 2;
+        long c18 = a9 * a9;
+        return this.setProduct(c0, c1, c2, c3, c4, c5, c6, c7, c8, c9, c10, c11, c12, c13, c14, c15, c16, c17, c18);
+    }
+
+    /**
+     * Squares repeatedly, such that this = a^(2^count).
+     */
+    private FieldElement sqr(FieldElement a, int count) {
+        this.sqr(a);
+        for (int i = 1; i < count; i++) {
+            this.sqr(this);
+        }
+        return this;
+    }
+
+    /**
+     * Computes the multiplicative inverse a^(p - 2) with a fixed addition
+     * chain. The inverse of zero is zero.
+     *
+     * @param a the element to invert.
+     * @return this element.
+     */
+    public FieldElement inverse(FieldElement a) {
+        FieldElement[] chain = powerChain(a);
+        FieldElement t = chain[0];
+        t.sqr(t, 5).mul(t, a);
+        t.sqr(t, 3).mul(t, chain[1]);
+        t.sqr(t, 2);
+        return this.mul(t, a);
+    }
+
+    /**
+     * Computes a^((p + 1) / 4), which is a square root of a whenever one
+     * exists since p = 3 (mod 4).
+     *
+     * @param a the element to take the root of.
+     * @return true if a is a square, so that this element squared equals a.
+     */
+    public boolean sqrt(FieldElement a) {
+        FieldElement[] chain = powerChain(a);
+        FieldElement t = chain[0];
+        t.sqr(t, 6).mul(t, chain[1]);
+        t.sqr(t, 2);
+        boolean square = chain[1].sqr(t).equals(a);
+        this.set(t);
+        return square;
+    }
+
+    /**
+     * Evaluates the part of the inversion and square root addition chains
+     * that the two exponents share. Both start with 223 one bits, a zero,
+     * and 22 one bits.
+     *
+     * @param a the base.
+     * @return fresh elements holding a^((2^223 - 1) * 2^23 + 2^22 - 1) and
+     * a^3.
+     */
+    private static FieldElement[] powerChain(FieldElement a) {
+        // xk holds a^(2^k - 1)
+        FieldElement x2 = new FieldElement().sqr(a);
+        x2.mul(x2, a);
+        FieldElement x3 = new FieldElement().sqr(x2);
+        x3.mul(x3, a);
+        FieldElement x6 = new FieldElement().sqr(x3, 3);
+        x6.mul(x6, x3);
+        FieldElement x9 = new FieldElement().sqr(x6, 3);
+        x9.mul(x9, x3);
+        FieldElement x11 = new FieldElement().sqr(x9, 2);
+        x11.mul(x11, x2);
+        FieldElement x22 = new FieldElement().sqr(x11, 11);
+        x22.mul(x22, x11);
+        FieldElement x44 = new FieldElement().sqr(x22, 22);
+        x44.mul(x44, x22);
+        FieldElement x88 = new FieldElement().sqr(x44, 44);
+        x88.mul(x88, x44);
+        FieldElement x176 = new FieldElement().sqr(x88, 88);
+        x176.mul(x176, x88);
+        FieldElement x220 = new FieldElement().sqr(x176, 44);
+        x220.mul(x220, x44);
+        FieldElement x223 = new FieldElement().sqr(x220, 3);
+        x223.mul(x223, x3);
+        FieldElement t = x223.sqr(x223, 23);
+        t.mul(t, x22);
+        return new FieldElement[]{t, x2};
+    }
+
+    /**
+     * Reduces a product, given as 19 columns of 26-bit weight, into this
+     * element. Columns 10 and above are folded down using
+     * 2^260 = 2^4 * 2^256 == 0x1000003D10 (mod p).
+     */
+    private FieldElement setProduct(long c0, long c1, long c2, long c3, long c4,
+            long c5, long c6, long c7, long c8, long c9,
+            long c10, long c11, long c12, long c13, long c14,
+            long c15, long c16, long c17, long c18) {
+        // Carry every column down to 26 bits before folding
+        c1 += c0 >>> 26;
+        c0 &= M;
+        c2 += c1 >>> 26;
+        c1 &= M;
+        c3 += c2 >>> 26;
+        c2 &= M;
+        c4 += c3 >>> 26;
+        c3 &= M;
+        c5 += c4 >>> 26;
+        c4 &= M;
+        c6 += c5 >>> 26;
+        c5 &= M;
+        c7 += c6 >>> 26;
+        c6 &= M;
+        c8 += c7 >>> 26;
+        c7 &= M;
+        c9 += c8 >>> 26;
+        c8 &= M;
+        c10 += c9 >>> 26;
+        c9 &= M;
+        c11 += c10 >>> 26;
+        c10 &= M;
+        c12 += c11 >>> 26;
+        c11 &= M;
+        c13 += c12 >>> 26;
+        c12 &= M;
+        c14 += c13 >>> 26;
+        c13 &= M;
+        c15 += c14 >>> 26;
+        c14 &= M;
+        c16 += c15 >>> 26;
+        c15 &= M;
+        c17 += c16 >>> 26;
+        c16 &= M;
+        c18 += c17 >>> 26;
+        c17 &= M;
+        long c19 = c18 >>> 26;
+        c18 &= M;
+        // Fold limbs 10..19 down using 2^260 == 0x3D10 + 0x400 * 2^26 (mod p)
+        c9 += c19 * 0x3D10;
+        c10 += c19 << 10;
+        c8 += c18 * 0x3D10;
+        c9 += c18 << 10;
+        c7 += c17 * 0x3D10;
+        c8 += c17 << 10;
+        c6 += c16 * 0x3D10;
+        c7 += c16 << 10;
+        c5 += c15 * 0x3D10;
+        c6 += c15 << 10;
+        c4 += c14 * 0x3D10;
+        c5 += c14 << 10;
+        c3 += c13 * 0x3D10;
+        c4 += c13 << 10;
+        c2 += c12 * 0x3D10;
+        c3 += c12 << 10;
+        c1 += c11 * 0x3D10;
+        c2 += c11 << 10;
+        c0 += c10 * 0x3D10;
+        c1 += c10 << 10;
+        // Carry again and fold whatever lies above bit 256 back in with
+        // 2^256 == 0x1000003D1 (mod p)
+        c1 += c0 >>> 26;
+        c0 &= M;
+        c2 += c1 >>> 26;
+        c1 &= M;
+        c3 += c2 >>> 26;
+        c2 &= M;
+        c4 += c3 >>> 26;
+        c3 &= M;
+        c5 += c4 >>> 26;
+        c4 &= M;
+        c6 += c5 >>> 26;
+        c5 &= M;
+        c7 += c6 >>> 26;
+        c6 &= M;
+        c8 += c7 >>> 26;
+        c7 &= M;
+        c9 += c8 >>> 26;
+        c8 &= M;
+        long top = c9 >>> 22;
+        c9 &= 0x3FFFFF;
+        c0 += top * 0x3D1;
+        c1 += top << 6;
+        n[0] = (int) c0;
+        n[1] = (int) c1;
+        n[2] = (int) c2;
+        n[3] = (int) c3;
+        n[4] = (int) c4;
+        n[5] = (int) c5;
+        n[6] = (int) c6;
+        n[7] = (int) c7;
+        n[8] = (int) c8;
+        n[9] = (int) c9;
+        this.carry();
+        return this;
+    }
+
+    /**
+     * Brings limbs 0 to 8 below 2^26 by moving the excess into the next
+     * limb up.
+     */
+    private void carry() {
+        for (int i = 0; i < 9; i++) {
+            n[i + 1] += n[i] >>> 26;
+            n[i] &= M;
+        }
+    }
+
+    /**
+     * Restores the weakly reduced form after limbs have grown, folding the
+     * bits above 2^256 back in with 2^256 == 0x1000003D1 (mod p).
+     */
+    private FieldElement reduce() {
+        this.carry();
+        int top = n[9] >>> 22;
+        n[9] &= 0x3FFFFF;
+        n[0] += top * 0x3D1;
+        n[1] += top << 6;
+        this.carry();
+        return this;
+    }
+}
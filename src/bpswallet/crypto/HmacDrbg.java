@@ -0,0 +1,120 @@
+package bpswallet.crypto;
+
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import javax.crypto.Mac;
+import javax.crypto.ShortBufferException;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * HMAC-SHA256 DRBG generating deterministic ECDSA nonces as described in
+ * RFC 6979, section 3.2. The nonce depends only on the private key and the
+ * message hash, so signing the same sighash twice yields the same signature.
+ *
+ * Each thread reuses a single instance, which keeps its Mac and state
+ * buffers across signatures instead of rebuilding them for every nonce.
+ */
+final class HmacDrbg {
+
+    private static final ThreadLocal<HmacDrbg> INSTANCE = ThreadLocal.withInitial(HmacDrbg::new);
+
+    private final Mac hmac;
+    private final byte[] k = new byte[32];
+    private final byte[] v = new byte[32];
+    // V || marker || private key || message hash
+    private final byte[] seed = new byte[97];
+    private boolean generated;
+
+    private HmacDrbg() {
+        try {
+            hmac = Mac.getInstance("HmacSHA256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    /**
+     * @return the generator owned by the calling thread.
+     */
+    static HmacDrbg get() {
+        return INSTANCE.get();
+    }
+
+    /**
+     * Resets the state for a new signature (RFC 6979 steps 3.2.b to 3.2.g).
+     *
+     * @param secret the private key.
+     * @param hash the message hash, already reduced mod n.
+     */
+    void seed(Scalar secret, Scalar hash) {
+        Arrays.fill(v, (byte) 0x01);
+        Arrays.fill(k, (byte) 0x00);
+        this.init();
+        secret.getBytes(seed, 33);
+        hash.getBytes(seed, 65);
+        for (byte marker = 0x00; marker <= 0x01; marker++) {
+            System.arraycopy(v, 0, seed, 0, 32);
+            seed[32] = marker;
+            this.rekey(seed, seed.length);
+            this.update();
+        }
+        Arrays.fill(seed, (byte) 0);
+        generated = false;
+    }
+
+    /**
+     * Produces the next candidate nonce in [1, n) (RFC 6979 step 3.2.h). If
+     * the caller rejects a nonce, calling again continues the sequence.
+     *
+     * @param nonce the scalar to receive the nonce.
+     */
+    void nextNonce(Scalar nonce) {
+        while (true) {
+            if (generated) {
+                System.arraycopy(v, 0, seed, 0, 32);
+                seed[32] = 0x00;
+                this.rekey(seed, 33);
+                this.update();
+            }
+            generated = true;
+            this.update();
+            if (!nonce.setBytes(v, 0) && !nonce.isZero()) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Sets K = HMAC_K(data) and rekeys the Mac with it.
+     */
+    private void rekey(byte[] data, int length) {
+        hmac.update(data, 0, length);
+        this.finish(k);
+        this.init();
+    }
+
+    /**
+     * Sets V = HMAC_K(V).
+     */
+    private void update() {
+        hmac.update(v);
+        this.finish(v);
+    }
+
+    private void init() {
+        try {
+            hmac.init(new SecretKeySpec(k, "HmacSHA256"));
+        } catch (InvalidKeyException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    private void finish(byte[] out) {
+        try {
+            hmac.doFinal(out, 0);
+        } catch (ShortBufferException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package bpswallet.crypto;
+
+import java.math.BigInteger;
+import java.security.spec.ECPoint;
+
+/**
+ * A secp256k1 point in Jacobian projective coordinates (X, Y, Z), standing
+ * for the affine point (X / Z^2, Y / Z^3). Additions and doublings need no
+ * modular inversion; a single inversion is paid when converting back to an
+ * affine ECPoint.
+ *
+ * Points are mutable and carry their own scratch field elements, so a chain
+ * of doublings and additions updates one point in place without allocating.
+ */
+final class JacobianPoint {
+
+    final FieldElement x = new FieldElement();
+    final FieldElement y = new FieldElement();
+    final FieldElement z = new FieldElement();
+    private boolean infinity = true;
+
+    private final FieldElement t0 = new FieldElement();
+    private final FieldElement t1 = new FieldElement();
+    private final FieldElement t2 = new FieldElement();
+    private final FieldElement t3 = new FieldElement();
+    private final FieldElement t4 = new FieldElement();
+    private final FieldElement t5 = new FieldElement();
+
+    /**
+     * Creates the point at infinity.
+     */
+    JacobianPoint() {
+
+    }
+
+    /**
+     * Lifts an affine ECPoint into Jacobian coordinates with Z = 1.
+     *
+     * @param p the affine point.
+     * @return the same point in Jacobian coordinates.
+     */
+    static JacobianPoint fromAffine(ECPoint p) {
+        if (p.equals(ECPoint.POINT_INFINITY)) {
+            return new JacobianPoint();
+        }
+        return new JacobianPoint().set(AffinePoint.fromECPoint(p));
+    }
+
+    JacobianPoint set(JacobianPoint q) {
+        x.set(q.x);
+        y.set(q.y);
+        z.set(q.z);
+        infinity = q.infinity;
+        return this;
+    }
+
+    JacobianPoint set(AffinePoint q) {
+        x.set(q.x);
+        y.set(q.y);
+        z.setInt(1);
+        infinity = false;
+        return this;
+    }
+
+    boolean isInfinity() {
+        return infinity;
+    }
+
+    /**
+     * Converts back to affine coordinates, costing one modular inversion.
+     *
+     * @return the affine ECPoint, or ECPoint.POINT_INFINITY.
+     */
+    ECPoint toAffine() {
+        if (infinity) {
+            return ECPoint.POINT_INFINITY;
+        }
+        return this.toAffine(new FieldElement().inverse(z)).toECPoint();
+    }
+
+    private AffinePoint toAffine(FieldElement zInv) {
+        FieldElement zInv2 = new FieldElement().sqr(zInv);
+        FieldElement affineX = new FieldElement().mul(x, zInv2);
+        zInv2.mul(zInv2, zInv);
+        FieldElement affineY = zInv2.mul(y, zInv2);
+        return new AffinePoint(affineX, affineY);
+    }
+
+    /**
+     * Converts many points to affine coordinates at the cost of a single
+     * modular inversion (Montgomery's trick). The Z coordinates are
+     * multiplied together, the product is inverted once, and each individual
+     * inverse is peeled back off with two multiplications.
+     *
+     * @param points the Jacobian points to normalize.
+     * @return the affine points, in the same order, with null in place of
+     * the point at infinity.
+     */
+    static AffinePoint[] toAffinePoints(JacobianPoint[] points) {
+        AffinePoint[] affine = new AffinePoint[points.length];
+        FieldElement[] partials = new FieldElement[points.length];
+        FieldElement product = new FieldElement().setInt(1);
+        for (int i = 0; i < points.length; i++) {
+            partials[i] = new FieldElement().set(product);
+            if (!points[i].infinity) {
+                product.mul(product, points[i].z);
+            }
+        }
+        FieldElement inverse = new FieldElement().inverse(product);
+        FieldElement zInv = new FieldElement();
+        for (int i = points.length - 1; i >= 0; i--) {
+            if (points[i].infinity) {
+                continue;
+            }
+            // inverse holds 1 / (z_0 * ... * z_i) at this point
+            zInv.mul(inverse, partials[i]);
+            inverse.mul(inverse, points[i].z);
+            affine[i] = points[i].toAffine(zInv);
+        }
+        return affine;
+    }
+
+    /**
+     * Converts many points to affine ECPoints with a single modular
+     * inversion. See {@link #toAffinePoints(JacobianPoint[])}.
+     *
+     * @param points the Jacobian points to normalize.
+     * @return the affine points, in the same order.
+     */
+    static ECPoint[] toAffine(JacobianPoint[] points) {
+        AffinePoint[] affine = toAffinePoints(points);
+        ECPoint[] result = new ECPoint[points.length];
+        for (int i = 0; i < points.length; i++) {
+            result[i] = (affine[i] == null) ? ECPoint.POINT_INFINITY : affine[i].toECPoint();
+        }
+        return result;
+    }
+
+    /**
+     * Tests whether the affine x coordinate of this point equals the given
+     * value by comparing X with x * Z^2, which avoids an inversion.
+     *
+     * @param affineX the candidate affine x coordinate, in the range [0, p).
+     * @return true if X / Z^2 == affineX.
+     */
+    boolean hasAffineX(BigInteger affineX) {
+        if (infinity) {
+            return false;
+        }
+        t0.sqr(z).mul(t0, t1.set(affineX));
+        return t0.equals(x);
+    }
+
+    /**
+     * Doubles this point in place (dbl-2009-l, valid for curves with a = 0).
+     * The group order is prime, so no point has Y = 0 and the double of a
+     * finite point is never infinity.
+     *
+     * @return this point, now 2 * this.
+     */
+    JacobianPoint doubleInPlace() {
+        if (infinity) {
+            return this;
+        }
+        t0.sqr(x);                              // A = X^2
+        t1.sqr(y);                              // B = Y^2
+        t2.sqr(t1);                             // C = B^2
+        // D = 2 * ((X + B)^2 - A - C)
+        t1.add(x, t1).sqr(t1).sub(t1, t0).sub(t1, t2).mulInt(t1, 2);
+        t0.mulInt(t0, 3);                       // E = 3 * A
+        z.mul(y, z).mulInt(z, 2);               // Z3 = 2 * Y * Z
+        x.sqr(t0).sub(x, t3.mulInt(t1, 2));     // X3 = E^2 - 2 * D
+        t1.sub(t1, x);                          // Y3 = E * (D - X3) - 8 * C
+        y.mul(t0, t1).sub(y, t2.mulInt(t2, 8));
+        return this;
+    }
+
+    /**
+     * Adds another Jacobian point to this one in place (add-2007-bl).
+     *
+     * @param q the point to add.
+     * @return this point, now this + q.
+     */
+    JacobianPoint addInPlace(JacobianPoint q) {
+        if (q.infinity) {
+            return this;
+        } else if (infinity) {
+            return this.set(q);
+        }
+        t0.sqr(z);                              // Z1Z1
+        t1.sqr(q.z);                            // Z2Z2
+        t2.mul(x, t1);                          // U1 = X1 * Z2Z2
+        t3.mul(q.x, t0);                        // U2 = X2 * Z1Z1
+        t4.mul(y, q.z).mul(t4, t1);             // S1 = Y1 * Z2 * Z2Z2
+        t5.mul(q.y, z).mul(t5, t0);             // S2 = Y2 * Z1 * Z1Z1
+        return this.addPrepared(t2, t3, t4, t5, q.z);
+    }
+
+    /**
+     * Adds an affine point, or its negation, to this one in place (madd,
+     * the mixed Jacobian-affine addition), which saves the work of scaling
+     * by the second point's Z.
+     *
+     * @param q the affine point to add.
+     * @param negate whether to add -q instead of q.
+     * @return this point, now this + q or this - q.
+     */
+    JacobianPoint addInPlace(AffinePoint q, boolean negate) {
+        if (infinity) {
+            this.set(q);
+            if (negate) {
+                y.negate(y);
+            }
+            return this;
+        }
+        t0.sqr(z);                              // Z1Z1
+        t1.mul(q.x, t0);                        // U2 = X2 * Z1Z1
+        t2.mul(q.y, z).mul(t2, t0);             // S2 = Y2 * Z1 * Z1Z1
+        if (negate) {
+            t2.negate(t2);
+        }
+        return this.addPrepared(x, t1, y, t2, null);
+    }
+
+    /**
+     * Finishes an addition once both points are scaled to a common Z. Each
+     * of the operands may be overwritten.
+     *
+     * @param u1 the first x coordinate, scaled.
+     * @param u2 the second x coordinate, scaled.
+     * @param s1 the first y coordinate, scaled.
+     * @param s2 the second y coordinate, scaled.
+     * @param z2 the second point's Z, or null if it is affine.
+     * @return this point, now the sum.
+     */
+    private JacobianPoint addPrepared(FieldElement u1, FieldElement u2, FieldElement s1, FieldElement s2, FieldElement z2) {
+        FieldElement h = u2.sub(u2, u1);
+        FieldElement r = s2.sub(s2, s1);
+        if (h.isZero()) {
+            // Same x coordinate: either the same point or its negation
+            if (r.isZero()) {
+                return this.doubleInPlace();
+            }
+            infinity = true;
+            return this;
+        }
+        z.mul(z, h);                            // Z3 = Z1 * Z2 * H
+        if (z2 != null) {
+            z.mul(z, z2);
+        }
+        t0.sqr(h);                              // HH
+        FieldElement hhh = h.mul(h, t0);
+        FieldElement v = t0.mul(u1, t0);        // V = U1 * HH
+        x.sqr(r).sub(x, hhh).sub(x, v).sub(x, v);   // X3 = R^2 - HHH - 2 * V
+        hhh.mul(s1, hhh);
+        y.sub(v, x).mul(y, r).sub(y, hhh);      // Y3 = R * (V - X3) - S1 * HHH
+        return this;
+    }
+}
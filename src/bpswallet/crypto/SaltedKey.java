@@ -63,7 +63,7 @@ public class SaltedKey {
     public String decrypt(ECIESData data) throws InvalidPasswordException {
         ECPubKey ephemPubKey = data.getEphemPubKey();
         ECPrvKey prvKey = new ECPrvKey(ByteUtil.hexify(this.key.getEncoded()));
-        ECPubKey encryptionKey = new ECPubKey(ScalarMultiply.scalmult(ephemPubKey.getPoint(), prvKey.getSecret()));
+        ECPubKey encryptionKey = new ECPubKey(ScalarMultiply.scalmultGlv(ephemPubKey.getPoint(), prvKey.getSecret()));
         String encryptionKeyHash = HashUtil.doubleSha256(encryptionKey.getEncoded());
         if (!data.getKeyHash().equalsIgnoreCase(encryptionKeyHash)) {
             throw new InvalidPasswordException();
@@ -0,0 +1,495 @@
+package bpswallet.crypto;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+/**
+ * An integer mod the group order n, stored like {@link FieldElement} as ten
+ * 26-bit limbs in little-endian order. Scalars are always fully reduced into
+ * [0, n), so their limbs can be read directly, for instance when recoding a
+ * scalar into the digits of a point multiplication.
+ *
+ * Scalars are mutable: each operation writes its result into this scalar and
+ * returns it, and the operands may be this scalar itself.
+ */
+public final class Scalar {
+
+    private static final int M = 0x3FFFFFF;
+    private static final int[] N = {
+        0x0364141, 0x097A334, 0x203BBFD, 0x39ABD22, 0x2BAAEDC,
+        0x3FFFFFF, 0x3FFFFFF, 0x3FFFFFF, 0x3FFFFFF, 0x3FFFFF
+    };
+    private static final int[] HALF_N = {
+        0x01B20A0, 0x24BD19A, 0x101DDFE, 0x1CD5E91, 0x35D576E,
+        0x3FFFFFF, 0x3FFFFFF, 0x3FFFFFF, 0x3FFFFFF, 0x1FFFFF
+    };
+    // 2^256 - n, which is congruent to 2^256 mod n
+    private static final long NC0 = 0x3C9BEBF;
+    private static final long NC1 = 0x3685CCB;
+    private static final long NC2 = 0x1FC4402;
+    private static final long NC3 = 0x06542DD;
+    private static final long NC4 = 0x1455123;
+    private static final Scalar N_MINUS_2 = fromBigInteger(CurveParams.n.subtract(BigInteger.valueOf(2)));
+
+    private final int[] n = new int[10];
+
+    public Scalar() {
+
+    }
+
+    public static Scalar fromBigInteger(BigInteger value) {
+        return new Scalar().set(value);
+    }
+
+    public Scalar set(Scalar a) {
+        System.arraycopy(a.n, 0, n, 0, n.length);
+        return this;
+    }
+
+    public Scalar set(BigInteger value) {
+        byte[] bytes = value.mod(CurveParams.n).toByteArray();
+        byte[] padded = new byte[32];
+        int length = Math.min(bytes.length, 32);
+        System.arraycopy(bytes, bytes.length - length, padded, 32 - length, length);
+        this.setBytes(padded, 0);
+        return this;
+    }
+
+    /**
+     * Reads a 32-byte big-endian integer and reduces it mod n.
+     *
+     * @param bytes the source array.
+     * @param offset the index of the most significant byte.
+     * @return true if the integer was not below n and had to be reduced.
+     */
+    public boolean setBytes(byte[] bytes, int offset) {
+        long acc = 0;
+        int bits = 0;
+        int limb = 0;
+        for (int i = offset + 31; i >= offset; i--) {
+            acc |= (long) (bytes[i] & 0xFF) << bits;
+            bits += 8;
+            if (bits >= 26) {
+                n[limb++] = (int) (acc & M);
+                acc >>>= 26;
+                bits -= 26;
+            }
+        }
+        n[9] = (int) acc;
+        // Any 256-bit integer is below 2n, so one subtraction is enough
+        return this.reduceOnce();
+    }
+
+    /**
+     * Writes the value as a 32-byte big-endian integer.
+     *
+     * @param bytes the destination array.
+     * @param offset the index of the most significant byte.
+     */
+    public void getBytes(byte[] bytes, int offset) {
+        long acc = 0;
+        int bits = 0;
+        int limb = 0;
+        for (int i = offset + 31; i >= offset; i--) {
+            if (bits < 8) {
+                acc |= (long) n[limb++] << bits;
+                bits += 26;
+            }
+            bytes[i] = (byte) acc;
+            acc >>>= 8;
+            bits -= 8;
+        }
+    }
+
+    public BigInteger toBigInteger() {
+        byte[] bytes = new byte[32];
+        this.getBytes(bytes, 0);
+        return new BigInteger(1, bytes);
+    }
+
+    /**
+     * Reads up to 25 consecutive bits of the value.
+     *
+     * @param offset the index of the lowest bit to read.
+     * @param count the number of bits.
+     * @return the bits as a non-negative integer.
+     */
+    public int getBits(int offset, int count) {
+        int limb = offset / 26;
+        int shift = offset % 26;
+        if (limb >= n.length) {
+            return 0;
+        }
+        int bits = n[limb] >>> shift;
+        if (shift + count > 26 && limb + 1 < n.length) {
+            bits |= n[limb + 1] << (26 - shift);
+        }
+        return bits & ((1 << count) - 1);
+    }
+
+    public boolean isZero() {
+        int bits = 0;
+        for (int limb : n) {
+            bits |= limb;
+        }
+        return bits == 0;
+    }
+
+    /**
+     * Tests whether the value lies in the upper half of the range, above
+     * (n - 1) / 2.
+     *
+     * @return true if the value is greater than n / 2.
+     */
+    public boolean isHigh() {
+        return compare(n, HALF_N) > 0;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Scalar && Arrays.equals(n, ((Scalar) o).n);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(n);
+    }
+
+    public Scalar add(Scalar a, Scalar b) {
+        for (int i = 0; i < n.length; i++) {
+            n[i] = a.n[i] + b.n[i];
+        }
+        this.carry();
+        this.reduceOnce();
+        return this;
+    }
+
+    public Scalar negate(Scalar a) {
+        if (a.isZero()) {
+            return this.set(a);
+        }
+        int borrow = 0;
+        for (int i = 0; i < n.length; i++) {
+            int limb = N[i] - a.n[i] - borrow;
+            borrow = limb >>> 31;
+            n[i] = limb & M;
+        }
+        return this;
+    }
+
+    public Scalar mul(Scalar a, Scalar b) {
+        long a0 = a.n[0];
+        long a1 = a.n[1];
+        long a2 = a.n[2];
+        long a3 = a.n[3];
+        long a4 = a.n[4];
+        long a5 = a.n[5];
+        long a6 = a.n[6];
+        long a7 = a.n[7];
+        long a8 = a.n[8];
+        long a9 = a.n[9];
+        long b0 = b.n[0];
+        long b1 = b.n[1];
+        long b2 = b.n[2];
+        long b3 = b.n[3];
+        long b4 = b.n[4];
+        long b5 = b.n[5];
+        long b6 = b.n[6];
+        long b7 = b.n[7];
+        long b8 = b.n[8];
+        long b9 = b.n[9];
+        long c0 = a0 * b0;
+        long c1 = a0 * b1 + a1 * b0;
+        long c2 = a0 * b2 + a1 * b1 + a2 * b0;
+        long c3 = a0 * b3 + a1 * b2 + a2 * b1 + a3 * b0;
+        long c4 = a0 * b4 + a1 * b3 + a2 * b2 + a3 * b1 + a4 * b0;
+        long c5 = a0 * b5 + a1 * b4 + a2 * b3 + a3 * b2 + a4 * b1 + a5 * b0;
+        long c6 = a0 * b6 + a1 * b5 + a2 * b4 + a3 * b3 + a4 * b2 + a5 * b1 + a6 * b0;
+        long c7 = a0 * b7 + a1 * b6 + a2 * b5 + a3 * b4 + a4 * b3 + a5 * b2 + a6 * b1 + a7 * b0;
+        long c8 = a0 * b8 + a1 * b7 + a2 * b6 + a3 * b5 + a4 * b4 + a5 * b3 + a6 * b2 + a7 * b1 + a8 * b0;
+        long c9 = a0 * b9 + a1 * b8 + a2 * b7 + a3 * b6 + a4 * b5 + a5 * b4 + a6 * b3 + a7 * b2 + a8 * b1 + a9 * b0;
+        long c10 = a1 * b9 + a2 * b8 + a3 * b7 + a4 * b6 + a5 * b5 + a6 * b4 + a7 * b3 + a8 * b2 + a9 * b1;
+        long c11 = a2 * b9 + a3 * b8 + a4 * b7 + a5 * b6 + a6 * b5 + a7 * b4 + a8 * b3 + a9 * b2;
+        long c12 = a3 * b9 + a4 * b8 + a5 * b7 + a6 * b6 + a7 * b5 + a8 * b4 + a9 * b3;
+        long c13 = a4 * b9 + a5 * b8 + a6 * b7 + a7 * b6 + a8 * b5 + a9 * b4;
+        long c14 = a5 * b9 + a6 * b8 + a7 * b7 + a8 * b6 + a9 * b5;
+        long c15 = a6 * b9 + a7 * b8 + a8 * b7 + a9 * b6;
+        long c16 = a7 * b9 + a8 * b8 + a9 * b7;
+        long c17 = a8 * b9 + a9 * b8;
+        long c18 = a9 * b9;
+        return this.setProduct(c0, c1, c2, c3, c4, c5, c6, c7, c8, c9, c10, c11, c12, c13, c14, c15, c16, c17, c18);
+    }
+
+    public Scalar sqr(Scalar a) {
+        long a0 = a.n[0];
+        long a1 = a.n[1];
+        long a2 = a.n[2];
+        long a3 = a.n[3];
+        long a4 = a.n[4];
+        long a5 = a.n[5];
+        long a6 = a.n[6];
+        long a7 = a.n[7];
+        long a8 = a.n[8];
+        long a9 = a.n[9];
+        long c0 = a0 * a0;
+        long c1 = a0 * a1 * 2;
+        long c2 = a0 * a2 * 2 + a1 * a1;
+        long c3 = (a0 * a3 + a1 * a2) * 2;
+        long c4 = (a0 * a4 + a1 * a3) * 2 + a2 * a2;
+        long c5 = (a0 * a5 + a1 * a4 + a2 * a3) * 2;
+        long c6 = (a0 * a6 + a1 * a5 + a2 * a4) * 2 + a3 * a3;
+        long c7 = (a0 * a7 + a1 * a6 + a2 * a5 + a3 * a4) * 2;
+        long c8 = (a0 * a8 + a1 * a7 + a2 * a6 + a3 * a5) * 2 + a4 * a4;
+        long c9 = (a0 * a9 + a1 * a8 + a2 * a7 + a3 * a6 + a4 * a5) * 2;
+        long c10 = (a1 * a9 + a2 * a8 + a3 * a7 + a4 * a6) * 2 + a5 * a5;
+        long c11 = (a2 * a9 + a3 * a8 + a4 * a7 + a5 * a6) * 2;
+        long c12 = (a3 * a9 + a4 * a8 + a5 * a7) * 2 + a6 * a6;
+        long c13 = (a4 * a9 + a5 * a8 + a6 * a7) * 2;
+        long c14 = (a5 * a9 + a6 * a8) * 2 + a7 * a7;
+        long c15 = (a6 * a9 + a7 * a8) * 2;
+        long c16 = a7 * a9 * 2 + a8 * a8;
+        long c17 = a8 * a9 * 2;
+        long c18 = a9 * a9;
+        return this.setProduct(c0, c1, c2, c3, c4, c5, c6, c7, c8, c9, c10, c11, c12, c13, c14, c15, c16, c17, c18);
+    }
+
+    /**
+     * Computes the multiplicative inverse a^(n - 2), scanning the exponent
+     * four bits at a time. The inverse of zero is zero.
+     *
+     * @param a the scalar to invert.
+     * @return this scalar.
+     */
+    public Scalar inverse(Scalar a) {
+        Scalar[] powers = new Scalar[16];
+        powers[1] = new Scalar().set(a);
+        for (int i = 2; i < powers.length; i++) {
+            powers[i] = new Scalar().mul(powers[i - 1], a);
+        }
+        // The top four bits of n - 2 are all set
+        Scalar r = new Scalar().set(powers[15]);
+        for (int offset = 248; offset >= 0; offset -= 4) {
+            for (int i = 0; i < 4; i++) {
+                r.sqr(r);
+            }
+            int window = N_MINUS_2.getBits(offset, 4);
+            if (window != 0) {
+                r.mul(r, powers[window]);
+            }
+        }
+        return this.set(r);
+    }
+
+    /**
+     * Reduces a product, given as 19 columns of 26-bit weight, into this
+     * scalar.
+     */
+    private Scalar setProduct(long c0, long c1, long c2, long c3, long c4,
+            long c5, long c6, long c7, long c8, long c9,
+            long c10, long c11, long c12, long c13, long c14,
+            long c15, long c16, long c17, long c18) {
+        c1 += c0 >>> 26;
+        c0 &= M;
+        c2 += c1 >>> 26;
+        c1 &= M;
+        c3 += c2 >>> 26;
+        c2 &= M;
+        c4 += c3 >>> 26;
+        c3 &= M;
+        c5 += c4 >>> 26;
+        c4 &= M;
+        c6 += c5 >>> 26;
+        c5 &= M;
+        c7 += c6 >>> 26;
+        c6 &= M;
+        c8 += c7 >>> 26;
+        c7 &= M;
+        c9 += c8 >>> 26;
+        c8 &= M;
+        c10 += c9 >>> 26;
+        c9 &= M;
+        c11 += c10 >>> 26;
+        c10 &= M;
+        c12 += c11 >>> 26;
+        c11 &= M;
+        c13 += c12 >>> 26;
+        c12 &= M;
+        c14 += c13 >>> 26;
+        c13 &= M;
+        c15 += c14 >>> 26;
+        c14 &= M;
+        c16 += c15 >>> 26;
+        c15 &= M;
+        c17 += c16 >>> 26;
+        c16 &= M;
+        c18 += c17 >>> 26;
+        c17 &= M;
+        long c19 = c18 >>> 26;
+        c18 &= M;
+
+        // Split off the bits above 2^256 and fold them back in, using
+        // 2^256 == 2^256 - n (mod n), a 129-bit constant
+        long h0 = c9 >>> 22 | (c10 << 4 & M);
+        long h1 = c10 >>> 22 | (c11 << 4 & M);
+        long h2 = c11 >>> 22 | (c12 << 4 & M);
+        long h3 = c12 >>> 22 | (c13 << 4 & M);
+        long h4 = c13 >>> 22 | (c14 << 4 & M);
+        long h5 = c14 >>> 22 | (c15 << 4 & M);
+        long h6 = c15 >>> 22 | (c16 << 4 & M);
+        long h7 = c16 >>> 22 | (c17 << 4 & M);
+        long h8 = c17 >>> 22 | (c18 << 4 & M);
+        long h9 = c18 >>> 22 | (c19 << 4);
+        c9 &= 0x3FFFFF;
+        long d0 = c0 + h0 * NC0;
+        long d1 = c1 + h0 * NC1 + h1 * NC0;
+        long d2 = c2 + h0 * NC2 + h1 * NC1 + h2 * NC0;
+        long d3 = c3 + h0 * NC3 + h1 * NC2 + h2 * NC1 + h3 * NC0;
+        long d4 = c4 + h0 * NC4 + h1 * NC3 + h2 * NC2 + h3 * NC1 + h4 * NC0;
+        long d5 = c5 + h1 * NC4 + h2 * NC3 + h3 * NC2 + h4 * NC1 + h5 * NC0;
+        long d6 = c6 + h2 * NC4 + h3 * NC3 + h4 * NC2 + h5 * NC1 + h6 * NC0;
+        long d7 = c7 + h3 * NC4 + h4 * NC3 + h5 * NC2 + h6 * NC1 + h7 * NC0;
+        long d8 = c8 + h4 * NC4 + h5 * NC3 + h6 * NC2 + h7 * NC1 + h8 * NC0;
+        long d9 = c9 + h5 * NC4 + h6 * NC3 + h7 * NC2 + h8 * NC1 + h9 * NC0;
+        long d10 = h6 * NC4 + h7 * NC3 + h8 * NC2 + h9 * NC1;
+        long d11 = h7 * NC4 + h8 * NC3 + h9 * NC2;
+        long d12 = h8 * NC4 + h9 * NC3;
+        long d13 = h9 * NC4;
+        d1 += d0 >>> 26;
+        d0 &= M;
+        d2 += d1 >>> 26;
+        d1 &= M;
+        d3 += d2 >>> 26;
+        d2 &= M;
+        d4 += d3 >>> 26;
+        d3 &= M;
+        d5 += d4 >>> 26;
+        d4 &= M;
+        d6 += d5 >>> 26;
+        d5 &= M;
+        d7 += d6 >>> 26;
+        d6 &= M;
+        d8 += d7 >>> 26;
+        d7 &= M;
+        d9 += d8 >>> 26;
+        d8 &= M;
+        d10 += d9 >>> 26;
+        d9 &= M;
+        d11 += d10 >>> 26;
+        d10 &= M;
+        d12 += d11 >>> 26;
+        d11 &= M;
+        d13 += d12 >>> 26;
+        d12 &= M;
+        long d14 = d13 >>> 26;
+        d13 &= M;
+
+        // The result is below 2^386; fold its top 130 bits the same way
+        h0 = d9 >>> 22 | (d10 << 4 & M);
+        h1 = d10 >>> 22 | (d11 << 4 & M);
+        h2 = d11 >>> 22 | (d12 << 4 & M);
+        h3 = d12 >>> 22 | (d13 << 4 & M);
+        h4 = d13 >>> 22 | (d14 << 4 & M);
+        d9 &= 0x3FFFFF;
+        d0 += h0 * NC0;
+        d1 += h0 * NC1 + h1 * NC0;
+        d2 += h0 * NC2 + h1 * NC1 + h2 * NC0;
+        d3 += h0 * NC3 + h1 * NC2 + h2 * NC1 + h3 * NC0;
+        d4 += h0 * NC4 + h1 * NC3 + h2 * NC2 + h3 * NC1 + h4 * NC0;
+        d5 += h1 * NC4 + h2 * NC3 + h3 * NC2 + h4 * NC1;
+        d6 += h2 * NC4 + h3 * NC3 + h4 * NC2;
+        d7 += h3 * NC4 + h4 * NC3;
+        d8 += h4 * NC4;
+        d1 += d0 >>> 26;
+        d0 &= M;
+        d2 += d1 >>> 26;
+        d1 &= M;
+        d3 += d2 >>> 26;
+        d2 &= M;
+        d4 += d3 >>> 26;
+        d3 &= M;
+        d5 += d4 >>> 26;
+        d4 &= M;
+        d6 += d5 >>> 26;
+        d5 &= M;
+        d7 += d6 >>> 26;
+        d6 &= M;
+        d8 += d7 >>> 26;
+        d7 &= M;
+        d9 += d8 >>> 26;
+        d8 &= M;
+
+        // Below 2^259 now, which leaves three bits to fold
+        h0 = d9 >>> 22;
+        d9 &= 0x3FFFFF;
+        d0 += h0 * NC0;
+        d1 += h0 * NC1;
+        d2 += h0 * NC2;
+        d3 += h0 * NC3;
+        d4 += h0 * NC4;
+        d1 += d0 >>> 26;
+        d0 &= M;
+        d2 += d1 >>> 26;
+        d1 &= M;
+        d3 += d2 >>> 26;
+        d2 &= M;
+        d4 += d3 >>> 26;
+        d3 &= M;
+        d5 += d4 >>> 26;
+        d4 &= M;
+        d6 += d5 >>> 26;
+        d5 &= M;
+        d7 += d6 >>> 26;
+        d6 &= M;
+        d8 += d7 >>> 26;
+        d7 &= M;
+        d9 += d8 >>> 26;
+        d8 &= M;
+        n[0] = (int) d0;
+        n[1] = (int) d1;
+        n[2] = (int) d2;
+        n[3] = (int) d3;
+        n[4] = (int) d4;
+        n[5] = (int) d5;
+        n[6] = (int) d6;
+        n[7] = (int) d7;
+        n[8] = (int) d8;
+        n[9] = (int) d9;
+        this.reduceOnce();
+        return this;
+    }
+
+    private void carry() {
+        for (int i = 0; i < 9; i++) {
+            n[i + 1] += n[i] >>> 26;
+            n[i] &= M;
+        }
+    }
+
+    /**
+     * Subtracts n once if the value is at least n. Limbs 0 to 8 must already
+     * be below 2^26.
+     *
+     * @return true if n was subtracted.
+     */
+    private boolean reduceOnce() {
+        if (compare(n, N) < 0) {
+            return false;
+        }
+        int borrow = 0;
+        for (int i = 0; i < n.length; i++) {
+            int limb = n[i] - N[i] - borrow;
+            borrow = limb >>> 31;
+            n[i] = limb & M;
+        }
+        return true;
+    }
+
+    private static int compare(int[] a, int[] b) {
+        for (int i = a.length - 1; i >= 0; i--) {
+            if (a[i] != b[i]) {
+                return (a[i] < b[i]) ? -1 : 1;
+            }
+        }
+        return 0;
+    }
+}
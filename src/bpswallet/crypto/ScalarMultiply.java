@@ -2,35 +2,270 @@ package bpswallet.crypto;
 
 import java.math.BigInteger;
 import java.security.spec.ECPoint;
+import java.util.Arrays;
 
 public final class ScalarMultiply {
     private ScalarMultiply() {
     } // Non-instantiable
 
     private static final BigInteger TWO = new BigInteger("2");
+    private static final int BASE_WINDOW = 8;
+    private static final int BASE_ROWS = 256 / BASE_WINDOW;
+    private static final int NAF_LENGTH = 257;
+    public static final int DEFAULT_WNAF_WIDTH = 5;
+
+    // secp256k1 endomorphism: (x, y) -> (BETA * x, y) multiplies a point by
+    // LAMBDA = 5363ad4cc05c30e0a5261c028812645a122e22ea20816678df02967c1b23bd72
+    private static final FieldElement BETA = FieldElement.fromBigInteger(
+            new BigInteger("7ae96a2b657c07106e64479eac3434e99cf0497512f58995c1396c28719501ee", 16));
+    // Short basis (A1, B1), (A2, B2) of the lattice of (a, b) with a + b * LAMBDA = 0 mod n
+    private static final BigInteger A1 = new BigInteger("3086d221a7d46bcde86c90e49284eb15", 16);
+    private static final BigInteger B1 = new BigInteger("-e4437ed6010e88286f547fa90abfe4c3", 16);
+    private static final BigInteger A2 = new BigInteger("114ca50f7a8e2f3f657c1108d9d44cfd8", 16);
+    private static final BigInteger B2 = A1;
 
     /**
      * Performs scalar multiplication about the point P with integer kin where
-     * the returned point R = P * kin (scalar multiplication).
+     * the returned point R = P * kin (scalar multiplication). The
+     * double-and-add chain runs in Jacobian coordinates, so only one modular
+     * inversion is needed to return the affine result.
      *
      * @param P the generator ECPoint.
      * @param kin the BigInteger to multiply point P by.
      * @return the ECPoint generated by scalar multiplication of P * kin.
      */
     public static ECPoint scalmult(ECPoint P, BigInteger kin) {
-        ECPoint R = ECPoint.POINT_INFINITY, S = P;
-        BigInteger k = kin.mod(CurveParams.p);
-        int length = k.bitLength();
-        byte[] binarray = new byte[length];
-        for (int i = 0; i <= length - 1; i++) {
-            binarray[i] = k.mod(TWO).byteValue();
-            k = k.divide(TWO);
+        if (P.equals(ECPoint.POINT_INFINITY)) {
+            return P;
+        }
+        Scalar k = Scalar.fromBigInteger(kin);
+        AffinePoint A = AffinePoint.fromECPoint(P);
+        JacobianPoint R = new JacobianPoint();
+        for (int i = 255; i >= 0; i--) {
+            R.doubleInPlace();
+            if (k.getBits(i, 1) != 0) {
+                R.addInPlace(A, false);
+            }
+        }
+        return R.toAffine();
+    }
+
+    /**
+     * Performs scalar multiplication about an arbitrary point P with the
+     * default window width. See {@link #scalmultWnaf(ECPoint, BigInteger, int)}.
+     *
+     * @param P the ECPoint to multiply.
+     * @param kin the BigInteger to multiply point P by.
+     * @return the ECPoint generated by scalar multiplication of P * kin.
+     */
+    public static ECPoint scalmultWnaf(ECPoint P, BigInteger kin) {
+        return scalmultWnaf(P, kin, DEFAULT_WNAF_WIDTH);
+    }
+
+    /**
+     * Performs scalar multiplication about an arbitrary point P using the
+     * width-w non-adjacent form of kin. The odd multiples P, 3P, ...,
+     * (2^(w-1) - 1)P are computed once for the call, after which each
+     * non-zero signed digit costs a single addition; on average only one in
+     * every w + 1 digits is non-zero.
+     *
+     * @param P the ECPoint to multiply.
+     * @param kin the BigInteger to multiply point P by.
+     * @param width the window width, in the range [2, 8].
+     * @return the ECPoint generated by scalar multiplication of P * kin.
+     */
+    public static ECPoint scalmultWnaf(ECPoint P, BigInteger kin, int width) {
+        if (width < 2 || width > 8) {
+            throw new IllegalArgumentException("Invalid wNAF window width");
+        }
+        if (P.equals(ECPoint.POINT_INFINITY)) {
+            return P;
+        }
+        int[] naf = wnaf(Scalar.fromBigInteger(kin), width);
+        AffinePoint[] odd = oddMultiples(P, width);
+        JacobianPoint R = interleave(new int[][]{naf}, new AffinePoint[][]{odd});
+        return R.toAffine();
+    }
+
+    /**
+     * Performs scalar multiplication about an arbitrary point P using the
+     * GLV endomorphism. kin is split into two halves of about 128 bits with
+     * kin = k1 + k2 * LAMBDA (mod n), and since LAMBDA * P is simply
+     * (BETA * x, y), the products P * k1 and (LAMBDA * P) * k2 are
+     * interleaved over a chain of roughly 128 doublings instead of 256.
+     *
+     * @param P the ECPoint to multiply.
+     * @param kin the BigInteger to multiply point P by.
+     * @return the ECPoint generated by scalar multiplication of P * kin.
+     */
+    public static ECPoint scalmultGlv(ECPoint P, BigInteger kin) {
+        int[][] nafs = new int[2][];
+        AffinePoint[][] tables = new AffinePoint[2][];
+        prepareGlv(Scalar.fromBigInteger(kin), P, nafs, tables, 0);
+        return interleave(nafs, tables).toAffine();
+    }
+
+    /**
+     * Computes R = P1 * k1 + P2 * k2 in a single pass (Strauss-Shamir
+     * interleaving). Both scalars are split with the GLV endomorphism (see
+     * {@link #scalmultGlv(ECPoint, BigInteger)}) and the four half-length
+     * wNAFs share one chain of doublings, so the cost is close to that of a
+     * single multiplication. When either point is the generator G, its odd
+     * multiples come from a precomputed static table with a wider window.
+     *
+     * @param k1 the BigInteger to multiply point P1 by.
+     * @param P1 the first ECPoint, usually the generator G.
+     * @param k2 the BigInteger to multiply point P2 by.
+     * @param P2 the second ECPoint.
+     * @return the ECPoint P1 * k1 + P2 * k2.
+     */
+    public static ECPoint multiplyTwo(BigInteger k1, ECPoint P1, BigInteger k2, ECPoint P2) {
+        return multiplyTwoJacobian(Scalar.fromBigInteger(k1), P1, Scalar.fromBigInteger(k2), P2).toAffine();
+    }
+
+    static JacobianPoint multiplyTwoJacobian(Scalar k1, ECPoint P1, Scalar k2, ECPoint P2) {
+        int[][] nafs = new int[4][];
+        AffinePoint[][] tables = new AffinePoint[4][];
+        prepareGlv(k1, P1, nafs, tables, 0);
+        prepareGlv(k2, P2, nafs, tables, 2);
+        return interleave(nafs, tables);
+    }
+
+    /**
+     * Splits k and fills slots i and i + 1 with the wNAFs of both halves and
+     * the odd multiples of P and LAMBDA * P. A negative half has its digits
+     * negated rather than its table.
+     */
+    private static void prepareGlv(Scalar k, ECPoint P, int[][] nafs, AffinePoint[][] tables, int i) {
+        if (P.equals(ECPoint.POINT_INFINITY)) {
+            nafs[i] = nafs[i + 1] = new int[0];
+            tables[i] = tables[i + 1] = new AffinePoint[0];
+            return;
+        }
+        int width;
+        if (P.equals(CurveParams.G)) {
+            width = GeneratorWnafTable.WIDTH;
+            tables[i] = GeneratorWnafTable.TABLE;
+            tables[i + 1] = GeneratorWnafTable.LAMBDA_TABLE;
+        } else {
+            width = DEFAULT_WNAF_WIDTH;
+            tables[i] = oddMultiples(P, width);
+            tables[i + 1] = endomorphism(tables[i]);
+        }
+        BigInteger[] halves = splitLambda(k.toBigInteger());
+        for (int j = 0; j < 2; j++) {
+            int[] naf = wnaf(Scalar.fromBigInteger(halves[j].abs()), width);
+            if (halves[j].signum() < 0) {
+                for (int d = 0; d < naf.length; d++) {
+                    naf[d] = -naf[d];
+                }
+            }
+            nafs[i + j] = naf;
+        }
+    }
+
+    /**
+     * Splits k into k1 + k2 * LAMBDA (mod n) with |k1| and |k2| below 2^128,
+     * by rounding k to the nearest point of the lattice spanned by
+     * (A1, B1) and (A2, B2) and keeping the difference.
+     *
+     * @param k the scalar, in the range [0, n).
+     * @return the signed halves {k1, k2}.
+     */
+    private static BigInteger[] splitLambda(BigInteger k) {
+        BigInteger halfN = CurveParams.n.shiftRight(1);
+        BigInteger c1 = B2.multiply(k).add(halfN).divide(CurveParams.n);
+        BigInteger c2 = B1.negate().multiply(k).add(halfN).divide(CurveParams.n);
+        BigInteger k1 = k.subtract(c1.multiply(A1)).subtract(c2.multiply(A2));
+        BigInteger k2 = c1.multiply(B1).add(c2.multiply(B2)).negate();
+        return new BigInteger[]{k1, k2};
+    }
+
+    /**
+     * Maps each point of a table through the endomorphism, giving the same
+     * multiples of LAMBDA * P at the cost of one field multiplication each.
+     */
+    private static AffinePoint[] endomorphism(AffinePoint[] table) {
+        AffinePoint[] mapped = new AffinePoint[table.length];
+        for (int i = 0; i < table.length; i++) {
+            mapped[i] = new AffinePoint(new FieldElement().mul(BETA, table[i].x), new FieldElement().set(table[i].y));
         }
+        return mapped;
+    }
 
+    /**
+     * Evaluates the sum of several wNAF-recoded multiplications with one
+     * shared chain of doublings.
+     *
+     * @param nafs the signed digits of each scalar, least significant first.
+     * @param tables the odd multiples of each point, matching nafs.
+     * @return the sum of every (scalar * point) pair.
+     */
+    private static JacobianPoint interleave(int[][] nafs, AffinePoint[][] tables) {
+        int length = 0;
+        for (int[] naf : nafs) {
+            length = Math.max(length, naf.length);
+        }
+        JacobianPoint R = new JacobianPoint();
         for (int i = length - 1; i >= 0; i--) {
-            R = doublePoint(R);
-            if (binarray[i] == 1) {
-                R = addPoint(R, S);
+            R.doubleInPlace();
+            for (int j = 0; j < nafs.length; j++) {
+                if (i >= nafs[j].length) {
+                    continue;
+                }
+                int digit = nafs[j][i];
+                if (digit > 0) {
+                    R.addInPlace(tables[j][digit >> 1], false);
+                } else if (digit < 0) {
+                    R.addInPlace(tables[j][-digit >> 1], true);
+                }
+            }
+        }
+        return R;
+    }
+
+    /**
+     * Performs scalar multiplication about the generator G, such that the
+     * returned point R = G * kin. Uses a precomputed table of every multiple
+     * d * 2^(8i) * G, so the product is a sum of at most 32 table entries
+     * and needs no point doublings.
+     *
+     * @param kin the BigInteger to multiply the generator by.
+     * @return the ECPoint generated by scalar multiplication of G * kin.
+     */
+    public static ECPoint scalmultBase(BigInteger kin) {
+        return scalmultBaseJacobian(Scalar.fromBigInteger(kin)).toAffine();
+    }
+
+    /**
+     * Computes R_i = G * kin[i] + P for every scalar, sharing a single
+     * modular inversion across the whole batch when converting the results
+     * back to affine coordinates. This is the shape of BIP32 public child
+     * derivation, where P is the parent public key.
+     *
+     * @param kin the BigIntegers to multiply the generator by.
+     * @param P the ECPoint added to every product.
+     * @return the affine ECPoints G * kin[i] + P, in the same order.
+     */
+    public static ECPoint[] scalmultBaseBatch(BigInteger[] kin, ECPoint P) {
+        AffinePoint A = P.equals(ECPoint.POINT_INFINITY) ? null : AffinePoint.fromECPoint(P);
+        JacobianPoint[] points = new JacobianPoint[kin.length];
+        for (int i = 0; i < kin.length; i++) {
+            points[i] = scalmultBaseJacobian(Scalar.fromBigInteger(kin[i]));
+            if (A != null) {
+                points[i].addInPlace(A, false);
+            }
+        }
+        return JacobianPoint.toAffine(points);
+    }
+
+    static JacobianPoint scalmultBaseJacobian(Scalar k) {
+        AffinePoint[][] table = GeneratorTable.TABLE;
+        JacobianPoint R = new JacobianPoint();
+        for (int row = 0; row < BASE_ROWS; row++) {
+            int digit = k.getBits(row * BASE_WINDOW, BASE_WINDOW);
+            if (digit != 0) {
+                R.addInPlace(table[row][digit - 1], false);
             }
         }
         return R;
@@ -81,4 +316,95 @@ public final class ScalarMultiply {
         ECPoint out = new ECPoint(Xout, Yout);
         return out;
     }
+
+    /**
+     * Computes the width-w non-adjacent form of a scalar. Every non-zero
+     * digit is odd with absolute value below 2^(w-1), and any w consecutive
+     * digits contain at most one non-zero digit.
+     *
+     * @param k the scalar to recode.
+     * @param width the window width.
+     * @return the signed digits, least significant first, without leading
+     * zeros.
+     */
+    private static int[] wnaf(Scalar k, int width) {
+        int[] naf = new int[NAF_LENGTH];
+        int carry = 0;
+        int bit = 0;
+        while (bit < naf.length) {
+            if (k.getBits(bit, 1) == carry) {
+                bit++;
+                continue;
+            }
+            int now = Math.min(width, naf.length - bit);
+            int word = k.getBits(bit, now) + carry;
+            carry = (word >> (width - 1)) & 1;
+            naf[bit] = word - (carry << width);
+            bit += now;
+        }
+        int length = naf.length;
+        while (length > 0 && naf[length - 1] == 0) {
+            length--;
+        }
+        return Arrays.copyOf(naf, length);
+    }
+
+    /**
+     * Computes the odd multiples P, 3P, 5P, ..., (2^(w-1) - 1)P, so that the
+     * multiple for an odd digit d is found at index d / 2. The multiples are
+     * converted to affine form together, which costs one inversion but lets
+     * every later addition use the mixed formula.
+     *
+     * @param P the point to take multiples of.
+     * @param width the window width.
+     * @return the odd multiples of P.
+     */
+    private static AffinePoint[] oddMultiples(ECPoint P, int width) {
+        JacobianPoint[] odd = new JacobianPoint[1 << (width - 2)];
+        JacobianPoint twiceP = JacobianPoint.fromAffine(P).doubleInPlace();
+        odd[0] = JacobianPoint.fromAffine(P);
+        for (int i = 1; i < odd.length; i++) {
+            odd[i] = new JacobianPoint().set(odd[i - 1]).addInPlace(twiceP);
+        }
+        return JacobianPoint.toAffinePoints(odd);
+    }
+
+    /**
+     * Lazily built fixed-base table for the generator, where
+     * TABLE[row][d - 1] = d * 2^(8 * row) * G. Held in static memory once the
+     * first generator multiplication is requested.
+     */
+    private static final class GeneratorTable {
+
+        private static final AffinePoint[][] TABLE = build();
+
+        private static AffinePoint[][] build() {
+            int entries = (1 << BASE_WINDOW) - 1;
+            AffinePoint[][] table = new AffinePoint[BASE_ROWS][];
+            JacobianPoint base = JacobianPoint.fromAffine(CurveParams.G);
+            for (int row = 0; row < BASE_ROWS; row++) {
+                JacobianPoint[] multiples = new JacobianPoint[entries];
+                JacobianPoint multiple = base;
+                for (int d = 0; d < entries; d++) {
+                    multiples[d] = multiple;
+                    multiple = new JacobianPoint().set(multiple).addInPlace(base);
+                }
+                table[row] = JacobianPoint.toAffinePoints(multiples);
+                base = multiple;
+            }
+            return table;
+        }
+    }
+
+    /**
+     * Lazily built odd multiples G, 3G, ..., 127G in affine form, and their
+     * images under the endomorphism, used for the generator half of
+     * interleaved multiplications.
+     */
+    private static final class GeneratorWnafTable {
+
+        private static final int WIDTH = 8;
+        private static final AffinePoint[] TABLE = oddMultiples(CurveParams.G, WIDTH);
+        private static final AffinePoint[] LAMBDA_TABLE = endomorphism(TABLE);
+    }
 }
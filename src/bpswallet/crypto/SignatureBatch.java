@@ -0,0 +1,76 @@
+package bpswallet.crypto;
+
+import bpswallet.util.ByteUtil;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.stream.IntStream;
+
+/**
+ * Collects (sighash, signature, public key) triples and verifies them
+ * together.
+ *
+ * ECDSA signatures only carry the x coordinate of R, so the sign of each R is
+ * unknown and a randomized linear combination of the whole batch cannot be
+ * checked soundly. Instead the work is amortized per item: the generator half
+ * of every check shares the static generator table, each u1 * G + u2 * Q is
+ * computed in one interleaved pass, the result is compared in projective
+ * coordinates without an inversion, and the items are spread across the
+ * common ForkJoin pool.
+ */
+public class SignatureBatch {
+
+    private static final int PARALLEL_THRESHOLD = 8;
+
+    private final ArrayList<BigInteger> hashes;
+    private final ArrayList<ECSignature> signatures;
+    private final ArrayList<ECPubKey> pubKeys;
+
+    public SignatureBatch() {
+        hashes = new ArrayList<>();
+        signatures = new ArrayList<>();
+        pubKeys = new ArrayList<>();
+    }
+
+    public void add(String sigHash, ECSignature signature, ECPubKey pubKey) {
+        hashes.add(new BigInteger(1, ByteUtil.hex2bytes(sigHash)));
+        signatures.add(signature);
+        pubKeys.add(pubKey);
+    }
+
+    public int size() {
+        return hashes.size();
+    }
+
+    /**
+     * Verifies every signature in the batch, stopping at the first failure.
+     *
+     * @return true if all signatures are valid.
+     */
+    public boolean verify() {
+        IntStream items = IntStream.range(0, this.size());
+        if (this.size() >= PARALLEL_THRESHOLD) {
+            items = items.parallel();
+        }
+        return items.allMatch(this::verifyAt);
+    }
+
+    /**
+     * Verifies every signature in the batch individually.
+     *
+     * @return a bitmap where index i is true if the i-th signature is valid.
+     */
+    public boolean[] verifyEach() {
+        boolean[] results = new boolean[this.size()];
+        IntStream items = IntStream.range(0, this.size());
+        if (this.size() >= PARALLEL_THRESHOLD) {
+            items = items.parallel();
+        }
+        items.forEach(i -> results[i] = this.verifyAt(i));
+        return results;
+    }
+
+    private boolean verifyAt(int i) {
+        ECSignature signature = signatures.get(i);
+        return ECPubKey.verify(hashes.get(i), signature.getR(), signature.getS(), pubKeys.get(i).getPoint());
+    }
+}
@@ -1,14 +1,25 @@
 package bpswallet.ser;
 
-import java.util.Objects;
+import bpswallet.util.ByteUtil;
+import java.util.Arrays;
 
+/**
+ * A payment destination, identified by the scriptPubKey it pays to. The
+ * script is held as bytes with its hash code computed once, so comparing
+ * addresses, or using them as keys, needs no hex strings.
+ */
 public abstract class Address {
 
     private AddressType type;
     private boolean used;
+    private final byte[] scriptPubKey;
+    private final int hash;
+    private String scriptPubKeyHex;
 
-    public Address(AddressType type) {
+    public Address(AddressType type, byte[] scriptPubKey) {
         this.type = type;
+        this.scriptPubKey = scriptPubKey;
+        hash = Arrays.hashCode(scriptPubKey);
         used = false;
     }
 
@@ -24,7 +35,31 @@ public abstract class Address {
         return used;
     }
 
-    public abstract String getScriptPubKey();
+    public String getScriptPubKey() {
+        String hex = scriptPubKeyHex;
+        if (hex == null) {
+            hex = scriptPubKeyHex = ByteUtil.hexify(scriptPubKey);
+        }
+        return hex;
+    }
+
+    /**
+     * @return a copy of the scriptPubKey bytes.
+     */
+    public byte[] getScriptPubKeyBytes() {
+        return scriptPubKey.clone();
+    }
+
+    /**
+     * Copies part of the scriptPubKey, such as the hash it commits to.
+     */
+    protected byte[] getScriptPubKeyRange(int from, int to) {
+        return Arrays.copyOfRange(scriptPubKey, from, to);
+    }
+
+    protected String getScriptPubKeyHex(int from, int to) {
+        return ByteUtil.hexify(scriptPubKey, from, to - from);
+    }
 
     public abstract String getEncoded();
     
@@ -46,7 +81,7 @@ public abstract class Address {
             return true;
         } else if (o instanceof Address) {
             Address other = (Address) o;
-            return this.getScriptPubKey().equalsIgnoreCase(other.getScriptPubKey());
+            return hash == other.hash && Arrays.equals(scriptPubKey, other.scriptPubKey);
         } else {
             return false;
         }
@@ -54,6 +89,6 @@ public abstract class Address {
 
     @Override
     public int hashCode() {
-        return Objects.hash(this.getScriptPubKey());
+        return hash;
     }
 }
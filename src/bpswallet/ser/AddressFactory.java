@@ -5,6 +5,9 @@ import bpswallet.wallet.ExtendedPrvKey;
 import bpswallet.wallet.ExtendedPubKey;
 import bpswallet.crypto.ECPrvKey;
 import bpswallet.crypto.ECPubKey;
+import bpswallet.util.ByteUtil;
+import java.util.Arrays;
+import java.util.List;
 
 public final class AddressFactory {
 
@@ -24,18 +27,61 @@ public final class AddressFactory {
         }
     }
 
-    public static Address fromScriptPubKey(String scriptPubKey) {
-        try {
-            if (scriptPubKey.length() == 50 && scriptPubKey.startsWith("76a914") && scriptPubKey.endsWith("88ac")) {
-                return new LegacyAddress(scriptPubKey);
-            } else if (scriptPubKey.length() == 46 && scriptPubKey.startsWith("a914") && scriptPubKey.endsWith("87")) {
-                return new SegwitAddress(scriptPubKey);
-            } else if ((scriptPubKey.length() == 44) && scriptPubKey.startsWith("0014")) {
-                return new Bech32Address(scriptPubKey);
+    /**
+     * Encodes many addresses, such as a wallet's address list. The Base58
+     * addresses are converted in one batch, sharing work buffers.
+     *
+     * @param addresses the addresses.
+     * @return the encoded addresses, in the same order.
+     */
+    public static String[] encodeAll(List<? extends Address> addresses) {
+        String[] encoded = new String[addresses.size()];
+        int[] base58Indexes = new int[addresses.size()];
+        byte[][] payloads = new byte[addresses.size()][];
+        int count = 0;
+        for (int i = 0; i < encoded.length; i++) {
+            Address address = addresses.get(i);
+            if (address instanceof LegacyAddress) {
+                payloads[count] = ((LegacyAddress) address).getPayload();
+                base58Indexes[count++] = i;
+            } else if (address instanceof SegwitAddress) {
+                payloads[count] = ((SegwitAddress) address).getPayload();
+                base58Indexes[count++] = i;
             } else {
-                return null;
+                encoded[i] = address.getEncoded();
             }
-        } catch (Exception ex) {
+        }
+        String[] base58 = Base58Check.bytesToBase58(Arrays.copyOf(payloads, count));
+        for (int i = 0; i < count; i++) {
+            encoded[base58Indexes[i]] = base58[i];
+        }
+        return encoded;
+    }
+
+    public static Address fromScriptPubKey(String scriptPubKey) {
+        if (scriptPubKey.length() % 2 != 0) {
+            return null;
+        }
+        return fromScriptPubKey(ByteUtil.hex2bytes(scriptPubKey));
+    }
+
+    /**
+     * Classifies a script by its exact byte pattern.
+     *
+     * @param scriptPubKey the script bytes, which are copied.
+     * @return the address, or null if the script is not a standard P2PKH,
+     * P2SH or P2WPKH script.
+     */
+    public static Address fromScriptPubKey(byte[] scriptPubKey) {
+        byte[] s = scriptPubKey;
+        if (s.length == 25 && s[0] == 0x76 && s[1] == (byte) 0xa9 && s[2] == 0x14
+                && s[23] == (byte) 0x88 && s[24] == (byte) 0xac) {
+            return new LegacyAddress(s.clone());
+        } else if (s.length == 23 && s[0] == (byte) 0xa9 && s[1] == 0x14 && s[22] == (byte) 0x87) {
+            return new SegwitAddress(s.clone());
+        } else if (s.length == 22 && s[0] == 0x00 && s[1] == 0x14) {
+            return new Bech32Address(s.clone());
+        } else {
             return null;
         }
     }
@@ -2,9 +2,6 @@ package bpswallet.ser;
 
 import bpswallet.util.ByteUtil;
 import bpswallet.util.HashUtil;
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-import java.math.BigInteger;
 import java.util.Arrays;
 
 /**
@@ -19,7 +16,21 @@ public final class Base58Check {
 
     // Everything except 0OIl
     public static final String ALPHABET = "123456789ABCDEFGHJKLMNPQRSTUVWXYZabcdefghijkmnopqrstuvwxyz";
-    private static final BigInteger ALPHABET_SIZE = BigInteger.valueOf(ALPHABET.length());
+    private static final char[] DIGITS = ALPHABET.toCharArray();
+    // Digit value of each ASCII character, or -1 if it is not in the alphabet
+    private static final byte[] INDEXES = new byte[128];
+    private static final int CHECKSUM_LEN = 4;
+    // Conversions work five base-58 digits (58^5 < 2^30) and four bytes at a
+    // time, so each step is a single long multiply-add and divide
+    private static final int GROUP_DIGITS = 5;
+    private static final int GROUP_BASE = 58 * 58 * 58 * 58 * 58;
+
+    static {
+        Arrays.fill(INDEXES, (byte) -1);
+        for (int i = 0; i < DIGITS.length; i++) {
+            INDEXES[DIGITS[i]] = (byte) i;
+        }
+    }
 
     private Base58Check() {
     }  // Not instantiable
@@ -32,7 +43,30 @@ public final class Base58Check {
      * @return the Base58 encoded String w/ checksum.
      */
     public static String bytesToBase58(byte[] data) {
-        return rawBytesToBase58(addCheckHash(data));
+        byte[] concat = new byte[data.length + CHECKSUM_LEN];
+        return encode(concat, addCheckHash(data, concat), new int[maxGroups(concat.length)]);
+    }
+
+    /**
+     * Converts many payloads to Base58Check, such as the 25-byte version,
+     * hash and checksum of a batch of addresses. Payloads of equal length
+     * share one set of work buffers.
+     *
+     * @param data the bytes to encode, each including its version byte(s).
+     * @return the Base58 encoded Strings w/ checksum, in the same order.
+     */
+    public static String[] bytesToBase58(byte[][] data) {
+        String[] encoded = new String[data.length];
+        byte[] concat = new byte[0];
+        int[] groups = new int[0];
+        for (int i = 0; i < data.length; i++) {
+            if (concat.length != data[i].length + CHECKSUM_LEN) {
+                concat = new byte[data[i].length + CHECKSUM_LEN];
+                groups = new int[maxGroups(concat.length)];
+            }
+            encoded[i] = encode(concat, addCheckHash(data[i], concat), groups);
+        }
+        return encoded;
     }
 
     public static String hexToBase58(String data) {
@@ -40,45 +74,82 @@ public final class Base58Check {
     }
 
     /**
-     * Directly converts to Base58Check without adding a checksum.
+     * Upper bound on the groups of five Base58 digits for a given number of
+     * bytes, using log(256) / log(58) < 1.38.
+     */
+    private static int maxGroups(int length) {
+        return (length * 138 / 100 + 1) / GROUP_DIGITS + 1;
+    }
+
+    /**
+     * Directly converts to Base58 without adding a checksum. The number is
+     * built up as little-endian groups of five base-58 digits, taking the
+     * data four bytes at a time.
      *
      * @param data the bytes to encode.
+     * @param length the number of bytes of data to encode.
+     * @param groups scratch space of at least maxGroups(length) ints.
      * @return the Base58 encoded String w/out checksum.
      */
-    private static String rawBytesToBase58(byte[] data) {
-        // Convert to base-58 string
-        StringBuilder sb = new StringBuilder();
-        BigInteger num = new BigInteger(1, data);
-        while (num.signum() != 0) {
-            BigInteger[] quotrem = num.divideAndRemainder(ALPHABET_SIZE);
-            sb.append(ALPHABET.charAt(quotrem[1].intValue()));
-            num = quotrem[0];
+    private static String encode(byte[] data, int length, int[] groups) {
+        int zeros = 0;
+        while (zeros < length && data[zeros] == 0) {
+            zeros++;
         }
-
-        // Add '1' characters for leading 0-value bytes
-        for (int i = 0; i < data.length && data[i] == 0; i++) {
-            sb.append(ALPHABET.charAt(0));
+        int numGroups = 0;
+        int i = zeros;
+        // The first chunk takes the bytes left over from whole 4-byte words
+        int take = (length - zeros) % 4;
+        if (take == 0) {
+            take = 4;
+        }
+        while (i < length) {
+            long carry = 0;
+            for (int k = 0; k < take; k++) {
+                carry = (carry << 8) | (data[i++] & 0xFF);
+            }
+            for (int j = 0; j < numGroups; j++) {
+                carry += (long) groups[j] << (take * 8);
+                groups[j] = (int) (carry % GROUP_BASE);
+                carry /= GROUP_BASE;
+            }
+            while (carry > 0) {
+                groups[numGroups++] = (int) (carry % GROUP_BASE);
+                carry /= GROUP_BASE;
+            }
+            take = 4;
+        }
+        char[] chars = new char[zeros + numGroups * GROUP_DIGITS];
+        int pos = chars.length;
+        for (int j = 0; j < numGroups; j++) {
+            int group = groups[j];
+            for (int k = 0; k < GROUP_DIGITS; k++) {
+                chars[--pos] = DIGITS[group % 58];
+                group /= 58;
+            }
+        }
+        // Drop the zero digits padding the top group, then add '1'
+        // characters for leading 0-value bytes
+        while (pos < chars.length && chars[pos] == DIGITS[0]) {
+            pos++;
         }
-        return sb.reverse().toString();
+        pos -= zeros;
+        Arrays.fill(chars, pos, pos + zeros, DIGITS[0]);
+        return new String(chars, pos, chars.length - pos);
     }
 
     /**
-     * Returns a new byte array by concatenating the given array with its
-     * checksum.
+     * Copies the data into the output array followed by its checksum.
      *
      * @param data the bytes to hash for the checksum.
-     * @return the data w/ checksum appended.
+     * @param out the array to receive the data w/ checksum.
+     * @return the number of bytes written.
      */
-    private static byte[] addCheckHash(byte[] data) {
-        try {
-            byte[] hash = ByteUtil.hex2bytes(HashUtil.doubleSha256Checksum(ByteUtil.hexify(data)));
-            ByteArrayOutputStream buf = new ByteArrayOutputStream();
-            buf.write(data);
-            buf.write(hash);
-            return buf.toByteArray();
-        } catch (IOException e) {
-            throw new AssertionError(e);
-        }
+    private static int addCheckHash(byte[] data, byte[] out) {
+        byte[] hash = HashUtil.doubleSha256(data);
+        System.arraycopy(data, 0, out, 0, data.length);
+        System.arraycopy(hash, 0, out, data.length, CHECKSUM_LEN);
+        return data.length + CHECKSUM_LEN;
     }
 
     public static String base58ToHex(String s) {
@@ -95,13 +166,17 @@ public final class Base58Check {
      */
     public static byte[] base58ToBytes(String s) {
         byte[] concat = base58ToRawBytes(s);
-        byte[] data = Arrays.copyOf(concat, concat.length - 4);
-        byte[] hash = Arrays.copyOfRange(concat, concat.length - 4, concat.length);
-        byte[] rehash = ByteUtil.hex2bytes(HashUtil.doubleSha256Checksum(ByteUtil.hexify(data)));
-        if (!Arrays.equals(rehash, hash)) {
-            throw new IllegalArgumentException("Checksum mismatch");
+        if (concat.length < CHECKSUM_LEN) {
+            throw new IllegalArgumentException("Missing checksum");
+        }
+        int length = concat.length - CHECKSUM_LEN;
+        byte[] rehash = HashUtil.doubleSha256(concat, 0, length);
+        for (int i = 0; i < CHECKSUM_LEN; i++) {
+            if (rehash[i] != concat[length + i]) {
+                throw new IllegalArgumentException("Checksum mismatch");
+            }
         }
-        return data;
+        return Arrays.copyOf(concat, length);
     }
 
     /**
@@ -112,33 +187,50 @@ public final class Base58Check {
      * @return the bytes of the decoded String w/ checksum.
      */
     private static byte[] base58ToRawBytes(String s) {
-        // Parse base-58 string
-        BigInteger num = BigInteger.ZERO;
-        for (int i = 0; i < s.length(); i++) {
-            num = num.multiply(ALPHABET_SIZE);
-            int digit = ALPHABET.indexOf(s.charAt(i));
-            if (digit == -1) {
-                throw new IllegalArgumentException("Invalid character for Base58Check");
-            }
-            num = num.add(BigInteger.valueOf(digit));
+        int zeros = 0;
+        while (zeros < s.length() && s.charAt(zeros) == DIGITS[0]) {
+            zeros++;
         }
-
-        // Strip possible leading zero due to mandatory sign bit
-        byte[] b = num.toByteArray();
-        if (b[0] == 0) {
-            b = Arrays.copyOfRange(b, 1, b.length);
+        // Parse base-58 string into little-endian 32-bit words, taking five
+        // digits at a time
+        int[] words = new int[(s.length() * 733 / 1000 + 1) / 4 + 1];
+        int numWords = 0;
+        int i = zeros;
+        int take = (s.length() - zeros) % GROUP_DIGITS;
+        if (take == 0) {
+            take = GROUP_DIGITS;
         }
-
-        try {
-            // Convert leading '1' characters to leading 0-value bytes
-            ByteArrayOutputStream buf = new ByteArrayOutputStream();
-            for (int i = 0; i < s.length() && s.charAt(i) == ALPHABET.charAt(0); i++) {
-                buf.write(0);
+        while (i < s.length()) {
+            long carry = 0;
+            long multiplier = 1;
+            for (int k = 0; k < take; k++) {
+                char c = s.charAt(i++);
+                int digit = (c < 128) ? INDEXES[c] : -1;
+                if (digit == -1) {
+                    throw new IllegalArgumentException("Invalid character for Base58Check");
+                }
+                carry = carry * 58 + digit;
+                multiplier *= 58;
             }
-            buf.write(b);
-            return buf.toByteArray();
-        } catch (IOException e) {
-            throw new AssertionError(e);
+            for (int j = 0; j < numWords; j++) {
+                carry += (words[j] & 0xFFFFFFFFL) * multiplier;
+                words[j] = (int) carry;
+                carry >>>= 32;
+            }
+            if (carry > 0) {
+                words[numWords++] = (int) carry;
+            }
+            take = GROUP_DIGITS;
+        }
+        int numBytes = numWords * 4;
+        while (numBytes > 0 && (words[(numBytes - 1) / 4] >>> ((numBytes - 1) % 4 * 8) & 0xFF) == 0) {
+            numBytes--;
+        }
+        // Convert leading '1' characters to leading 0-value bytes
+        byte[] result = new byte[zeros + numBytes];
+        for (int j = 0; j < numBytes; j++) {
+            result[result.length - 1 - j] = (byte) (words[j / 4] >>> (j % 4 * 8));
         }
+        return result;
     }
 }
@@ -1,13 +1,15 @@
 package bpswallet.ser;
 
 import bpswallet.util.ByteUtil;
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
 import java.util.Arrays;
+import java.util.Locale;
 import java.util.Objects;
 
 /**
- * Converts data to and from Bech32 strings. Not instantiable.
+ * Converts data to and from Bech32 strings. Segregated witness addresses
+ * use Bech32 for witness version 0 and Bech32m for versions 1 to 16. The
+ * checksum is computed alongside the conversion, with a table-driven
+ * polymod, so no intermediate buffers are built. Not instantiable.
  */
 public final class Bech32 {
 
@@ -17,8 +19,8 @@ public final class Bech32 {
 
     /*---- Static functions for segregated witness addresses ----*/
     /**
-     * Encodes the specified segregated witness output into a Bech32 address
-     * string.
+     * Encodes the specified segregated witness output into a Bech32 (witness
+     * version 0) or Bech32m (versions 1 to 16) address string.
      *
      * @param humanPart the prefix given to the resulting string, which should
      * be a mnemonic for the cryptocurrency name; must be not {@code null}, must
@@ -39,48 +41,44 @@ public final class Bech32 {
         // Check arguments
         Objects.requireNonNull(humanPart);
         Objects.requireNonNull(witProg);
+        checkHumanReadablePart(humanPart);
         if (witVer < 0 || witVer > 16) {
             throw new IllegalArgumentException("Invalid witness version");
         }
         if (witProg.length < 2 || witProg.length > 40) {
             throw new IllegalArgumentException("Invalid witness program length");
         }
+        int dataLen = 1 + (witProg.length * 8 + 4) / 5;
+        if (humanPart.length() + 1 + dataLen + CHECKSUM_LEN > 90) {
+            throw new IllegalArgumentException("Output too long");
+        }
 
-        // Create buffer of 5-bit groups
-        ByteArrayOutputStream data = new ByteArrayOutputStream();  // Every element is uint5
-        assert (witVer >>> 5) == 0;
-        data.write(witVer);  // uint5
-
-        // Variables/constants for bit processing
-        final int IN_BITS = 8;
-        final int OUT_BITS = 5;
-        int inputIndex = 0;
-        int bitBuffer = 0;  // Topmost bitBufferLen bits are valid; remaining lower bits are zero
-        int bitBufferLen = 0;  // Always in the range [0, 12]
+        char[] out = new char[humanPart.length() + 1 + dataLen + CHECKSUM_LEN];
+        int pos = writeHumanReadablePart(humanPart, out);
+        int checksum = expandHumanReadablePart(humanPart);
+        out[pos++] = ALPHABET[witVer];
+        checksum = polymodStep(checksum, witVer);
 
         // Repack all 8-bit bytes into 5-bit groups, adding padding
-        while (inputIndex < witProg.length || bitBufferLen > 0) {
-            assert 0 <= bitBufferLen && bitBufferLen <= IN_BITS + OUT_BITS - 1;
-            assert (bitBuffer << bitBufferLen) == 0;
-
-            if (bitBufferLen < OUT_BITS) {
-                if (inputIndex < witProg.length) {  // Read a byte
-                    bitBuffer |= (witProg[inputIndex] & 0xFF) << (32 - IN_BITS - bitBufferLen);
-                    inputIndex++;
-                    bitBufferLen += IN_BITS;
-                } else // Create final padding
-                {
-                    bitBufferLen = OUT_BITS;
-                }
+        int bitBuffer = 0;  // Lowest bitBufferLen bits are valid
+        int bitBufferLen = 0;  // Always in the range [0, 12]
+        for (byte b : witProg) {
+            bitBuffer = ((bitBuffer << 8) | (b & 0xFF)) & 0xFFF;
+            bitBufferLen += 8;
+            while (bitBufferLen >= 5) {
+                bitBufferLen -= 5;
+                int group = (bitBuffer >>> bitBufferLen) & 0x1F;  // uint5
+                out[pos++] = ALPHABET[group];
+                checksum = polymodStep(checksum, group);
             }
-            assert bitBufferLen >= 5;
-
-            // Write a 5-bit group
-            data.write(bitBuffer >>> (32 - OUT_BITS));  // uint5
-            bitBuffer <<= OUT_BITS;
-            bitBufferLen -= OUT_BITS;
         }
-        return bitGroupsToBech32(humanPart, data.toByteArray());
+        if (bitBufferLen > 0) {
+            int group = (bitBuffer << (5 - bitBufferLen)) & 0x1F;
+            out[pos++] = ALPHABET[group];
+            checksum = polymodStep(checksum, group);
+        }
+        writeChecksum(checksum, (witVer == 0) ? BECH32_CONST : BECH32M_CONST, out, pos);
+        return new String(out);
     }
 
     /*---- Static functions for bit groups ----*/
@@ -105,38 +103,26 @@ public final class Bech32 {
         // Check arguments
         Objects.requireNonNull(humanPart);
         Objects.requireNonNull(data);
-        char[] human = humanPart.toCharArray();
-        checkHumanReadablePart(human);
+        checkHumanReadablePart(humanPart);
         for (byte b : data) {
             if ((b >>> 5) != 0) {
                 throw new IllegalArgumentException("Expected 5-bit groups");
             }
         }
-        if (human.length + 1 + data.length + 6 > 90) {
+        if (humanPart.length() + 1 + data.length + CHECKSUM_LEN > 90) {
             throw new IllegalArgumentException("Output too long");
         }
 
-        // Compute checksum
-        int checksum;
-        try {
-            ByteArrayOutputStream temp = expandHumanReadablePart(human);  // Every element is uint5
-            temp.write(data);
-            temp.write(new byte[CHECKSUM_LEN]);
-            checksum = polymod(temp.toByteArray()) ^ 1;
-        } catch (IOException e) {
-            throw new AssertionError(e);  // Impossible
-        }
-
-        // Encode to base-32
-        StringBuilder sb = new StringBuilder(humanPart).append('1');
+        // Encode to base-32, computing the checksum along the way
+        char[] out = new char[humanPart.length() + 1 + data.length + CHECKSUM_LEN];
+        int pos = writeHumanReadablePart(humanPart, out);
+        int checksum = expandHumanReadablePart(humanPart);
         for (byte b : data) {
-            sb.append(ALPHABET.charAt(b));
+            out[pos++] = ALPHABET[b];
+            checksum = polymodStep(checksum, b);
         }
-        for (int i = 0; i < CHECKSUM_LEN; i++) {
-            int b = (checksum >>> ((CHECKSUM_LEN - 1 - i) * 5)) & 0x1F;  // uint5
-            sb.append(ALPHABET.charAt(b));
-        }
-        return sb.toString();
+        writeChecksum(checksum, BECH32_CONST, out, pos);
+        return new String(out);
     }
 
     // Throws an exception if any of the following:
@@ -144,13 +130,14 @@ public final class Bech32 {
     // * It contains non-ASCII characters outside the range [33, 126].
     // * It contains uppercase characters.
     // Otherwise returns silently.
-    static void checkHumanReadablePart(char[] s) {
-        int n = s.length;
+    static void checkHumanReadablePart(String s) {
+        int n = s.length();
         if (n < 1 || n > 83) {
             throw new IllegalArgumentException("Invalid length of human-readable part string");
         }
 
-        for (char c : s) {
+        for (int i = 0; i < n; i++) {
+            char c = s.charAt(i);
             if (c < 33 || c > 126) {
                 throw new IllegalArgumentException("Invalid character in human-readable part string");
             }
@@ -160,18 +147,35 @@ public final class Bech32 {
         }
     }
 
-    // Returns a new byte buffer containing uint5 values, representing the given string
-    // expanded into the prefix data for the purpose of computing/verifying a checksum.
-    private static ByteArrayOutputStream expandHumanReadablePart(char[] s) {
-        ByteArrayOutputStream result = new ByteArrayOutputStream();  // Every element is uint5
-        for (char c : s) {
-            result.write(c >>> 5);  // uint3 from high bits
-        }
-        result.write(0);
-        for (char c : s) {
-            result.write(c & 0x1F);  // uint5 from low bits
-        }
-        return result;
+    private static int writeHumanReadablePart(String humanPart, char[] out) {
+        humanPart.getChars(0, humanPart.length(), out, 0);
+        out[humanPart.length()] = '1';
+        return humanPart.length() + 1;
+    }
+
+    // Returns the checksum state after the uint5 values that expand the given
+    // human-readable part for the purpose of computing/verifying a checksum.
+    // Uppercase characters are taken as lowercase.
+    private static int expandHumanReadablePart(CharSequence s) {
+        int checksum = 1;
+        for (int i = 0; i < s.length(); i++) {
+            checksum = polymodStep(checksum, toLower(s.charAt(i)) >>> 5);  // uint3 from high bits
+        }
+        checksum = polymodStep(checksum, 0);
+        for (int i = 0; i < s.length(); i++) {
+            checksum = polymodStep(checksum, toLower(s.charAt(i)) & 0x1F);  // uint5 from low bits
+        }
+        return checksum;
+    }
+
+    private static void writeChecksum(int checksum, int constant, char[] out, int pos) {
+        for (int i = 0; i < CHECKSUM_LEN; i++) {
+            checksum = polymodStep(checksum, 0);
+        }
+        checksum ^= constant;
+        for (int i = 0; i < CHECKSUM_LEN; i++) {
+            out[pos + i] = ALPHABET[(checksum >>> ((CHECKSUM_LEN - 1 - i) * 5)) & 0x1F];
+        }
     }
 
     /**
@@ -184,9 +188,8 @@ public final class Bech32 {
      * @return a triple where index 0 is a {@code String} representing the
      * human-readable part (which obeys all the rules as stated in the encoder),
      * index 1 is an {@code Integer} representing the witness version (in the
-     * range [0, 16]), and index 2 is a new {@code byte[]} containing the
-     * witness program (whose length is in the range [2, 40]; the array contains
-     * 8-bit data)
+     * range [0, 16]), and index 2 is a hex {@code String} of the witness
+     * program (whose length is in the range [2, 40] bytes)
      * @throws NullPointerException if the string is {@code null}
      * @throws IllegalArgumentException if the string is too long, has mixed
      * case, lacks a separator, has an invalid human-readable part, has
@@ -195,54 +198,93 @@ public final class Bech32 {
      * length of witness program
      */
     public static Object[] bech32ToHex(String s) {
-        Object[] decoded = bech32ToBitGroups(s);
-        byte[] data = (byte[]) decoded[1];
+        byte[] witProg = new byte[40];
+        int decoded = decodeSegwit(s, witProg, 0);
+        String humanPart = s.substring(0, s.lastIndexOf('1')).toLowerCase(Locale.ROOT);
+        return new Object[]{humanPart, decoded >>> 8, ByteUtil.hexify(witProg, 0, decoded & 0xFF)};
+    }
+
+    /**
+     * Decodes the specified Bech32 or Bech32m address string straight into
+     * the scriptPubKey it pays to: the witness version opcode, the program
+     * length and the witness program. Nothing is allocated, so large batches
+     * of addresses can be validated with one buffer.
+     *
+     * @param s the address to decode, which must be either all-lowercase or
+     * all-uppercase, and at most 90 characters long
+     * @param humanPart the expected human-readable part, in lowercase
+     * @param out the buffer to receive the scriptPubKey, which takes at most
+     * 42 bytes; its contents are unspecified if decoding fails
+     * @param offset the index in out of the first scriptPubKey byte
+     * @return the length of the scriptPubKey
+     * @throws NullPointerException if the string is {@code null}
+     * @throws IllegalArgumentException if the string is not a valid address
+     * with the given human-readable part, or out is too small
+     */
+    public static int bech32ToScriptPubKey(String s, String humanPart, byte[] out, int offset) {
+        Objects.requireNonNull(s);
+        int separator = s.lastIndexOf('1');
+        if (separator != humanPart.length() || !s.regionMatches(true, 0, humanPart, 0, separator)) {
+            throw new IllegalArgumentException("Unexpected human-readable part");
+        }
+        int decoded = decodeSegwit(s, out, offset + 2);
+        int witVer = decoded >>> 8;
+        out[offset] = (byte) ((witVer == 0) ? 0 : 0x50 + witVer);  // OP_0, OP_1..OP_16
+        out[offset + 1] = (byte) (decoded & 0xFF);
+        return 2 + (decoded & 0xFF);
+    }
 
-        // Extract leading value representing version
-        if (data.length < 1) {
+    // Decodes a segregated witness address, writing the witness program to
+    // out at the given offset. Returns the witness version in bits 8 and up
+    // and the program length in the low 8 bits.
+    private static int decodeSegwit(String s, byte[] out, int offset) {
+        int separator = checkBech32(s);
+        int dataLen = s.length() - separator - 1 - CHECKSUM_LEN;
+        if (dataLen < 1) {
             throw new IllegalArgumentException("Missing witness version");
         }
-        int witVer = data[0];
-        if (witVer < 0 || witVer > 16) {
+        int checksum = expandHumanReadablePart(s.subSequence(0, separator));
+        int pos = separator + 1;
+        int witVer = charValue(s.charAt(pos++));
+        checksum = polymodStep(checksum, witVer);
+        if (witVer > 16) {
             throw new IllegalArgumentException("Invalid witness version");
         }
-
-        // Initialize output array
-        byte[] witProg = new byte[(data.length - 1) * 5 / 8];  // Discard version prefix and padding suffix
-        if (witProg.length < 2 || witProg.length > 40) {
+        int progLen = (dataLen - 1) * 5 / 8;  // Discard version prefix and padding suffix
+        if (progLen < 2 || progLen > 40 || witVer == 0 && progLen != 20 && progLen != 32) {
             throw new IllegalArgumentException("Invalid witness program length");
         }
-
-        // Variables/constants for bit processing
-        final int IN_BITS = 5;
-        final int OUT_BITS = 8;
-        int outputIndex = 0;
-        int bitBuffer = 0;  // Topmost bitBufferLen bits are valid; remaining lower bits are zero
-        int bitBufferLen = 0;  // Always in the range [0, 10]
+        if ((dataLen - 1) * 5 - progLen * 8 > 4) {
+            throw new IllegalArgumentException("Invalid padding");
+        }
+        if (offset < 0 || out.length - offset < progLen) {
+            throw new IllegalArgumentException("Output buffer too small");
+        }
 
         // Repack all 5-bit groups into 8-bit bytes, discarding padding
-        for (int i = 1; i < data.length; i++) {
-            int b = data[i];
-            assert 0 <= bitBufferLen && bitBufferLen <= IN_BITS * 2;
-            assert (bitBuffer << bitBufferLen) == 0;
-
-            bitBuffer |= b << (32 - IN_BITS - bitBufferLen);
-            bitBufferLen += IN_BITS;
-
-            if (bitBufferLen >= OUT_BITS) {
-                witProg[outputIndex] = (byte) (bitBuffer >>> (32 - OUT_BITS));
-                outputIndex++;
-                bitBuffer <<= OUT_BITS;
-                bitBufferLen -= OUT_BITS;
+        int bitBuffer = 0;  // Lowest bitBufferLen bits are valid
+        int bitBufferLen = 0;  // Always in the range [0, 12]
+        int outputIndex = offset;
+        for (int i = 1; i < dataLen; i++) {
+            int group = charValue(s.charAt(pos++));
+            checksum = polymodStep(checksum, group);
+            bitBuffer = ((bitBuffer << 5) | group) & 0xFFF;
+            bitBufferLen += 5;
+            if (bitBufferLen >= 8) {
+                bitBufferLen -= 8;
+                out[outputIndex++] = (byte) (bitBuffer >>> bitBufferLen);
             }
         }
-
-        // Final checks and return
-        assert outputIndex == witProg.length;
-        if (bitBuffer != 0) {
+        if ((bitBuffer & ((1 << bitBufferLen) - 1)) != 0) {
             throw new IllegalArgumentException("Non-zero padding");
         }
-        return new Object[]{decoded[0], witVer, ByteUtil.hexify(witProg)};
+        for (int i = 0; i < CHECKSUM_LEN; i++) {
+            checksum = polymodStep(checksum, charValue(s.charAt(pos++)));
+        }
+        if (checksum != ((witVer == 0) ? BECH32_CONST : BECH32M_CONST)) {
+            throw new IllegalArgumentException("Checksum mismatch");
+        }
+        return (witVer << 8) | progLen;
     }
 
     /**
@@ -262,94 +304,113 @@ public final class Bech32 {
      * incorrect checksum
      */
     public static Object[] bech32ToBitGroups(String s) {
-        // Basic checks
+        int separator = checkBech32(s);
+        int checksum = expandHumanReadablePart(s.subSequence(0, separator));
+        byte[] data = new byte[s.length() - separator - 1 - CHECKSUM_LEN];  // Every element is uint5
+        for (int i = separator + 1; i < s.length(); i++) {
+            int group = charValue(s.charAt(i));
+            checksum = polymodStep(checksum, group);
+            if (i - separator - 1 < data.length) {
+                data[i - separator - 1] = (byte) group;
+            }
+        }
+        if (checksum != BECH32_CONST) {
+            throw new IllegalArgumentException("Checksum mismatch");
+        }
+        return new Object[]{s.substring(0, separator).toLowerCase(Locale.ROOT), data};
+    }
+
+    // Checks the parts of a Bech32 string that do not depend on its contents:
+    // the length, the case, the separator, the human-readable part and the
+    // data characters. Returns the index of the separator.
+    private static int checkBech32(String s) {
         Objects.requireNonNull(s);
         if (s.length() > 90) {
             throw new IllegalArgumentException("Input too long");
         }
-
-        {  // Normalize to lowercase, rejecting mixed case
-            boolean hasLower = false;
-            char[] temp = s.toCharArray();
-            for (int i = 0; i < temp.length; i++) {
-                char c = temp[i];
-                hasLower |= 'a' <= c && c <= 'z';
-                if ('A' <= c && c <= 'Z') {
-                    if (hasLower) {
-                        throw new IllegalArgumentException("String has mixed case");
-                    }
-                    temp[i] += 'a' - 'A';
-                }
+        boolean hasLower = false;
+        boolean hasUpper = false;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < 33 || c > 126) {
+                throw new IllegalArgumentException("Invalid character");
             }
-            s = new String(temp);
+            hasLower |= 'a' <= c && c <= 'z';
+            hasUpper |= 'A' <= c && c <= 'Z';
         }
-
-        // Split human-readable part and data
-        String humanPart;
-        {
-            int i = s.lastIndexOf('1');
-            if (i == -1) {
-                throw new IllegalArgumentException("No separator found");
-            }
-            humanPart = s.substring(0, i);
-            s = s.substring(i + 1);
+        if (hasLower && hasUpper) {
+            throw new IllegalArgumentException("String has mixed case");
         }
-        char[] human = humanPart.toCharArray();
-        checkHumanReadablePart(human);
-
-        // Decode from base-32
-        if (s.length() < CHECKSUM_LEN) {
+        int separator = s.lastIndexOf('1');
+        if (separator == -1) {
+            throw new IllegalArgumentException("No separator found");
+        }
+        if (separator < 1 || separator > 83) {
+            throw new IllegalArgumentException("Invalid length of human-readable part string");
+        }
+        if (s.length() - separator - 1 < CHECKSUM_LEN) {
             throw new IllegalArgumentException("Data too short");
         }
-        byte[] dataAndCheck = new byte[s.length()];  // Every element is uint5
-        for (int i = 0; i < s.length(); i++) {
-            int index = ALPHABET.indexOf(s.charAt(i));
-            if (index == -1) {
+        for (int i = separator + 1; i < s.length(); i++) {
+            if (charValue(s.charAt(i)) == -1) {
                 throw new IllegalArgumentException("Invalid data character");
             }
-            dataAndCheck[i] = (byte) index;
         }
+        return separator;
+    }
 
-        try {  // Verify checksum
-            ByteArrayOutputStream temp = expandHumanReadablePart(human);
-            temp.write(dataAndCheck);
-            if (polymod(temp.toByteArray()) != 1) {
-                throw new IllegalArgumentException("Checksum mismatch");
-            }
-        } catch (IOException e) {
-            throw new AssertionError(e);  // Impossible
-        }
+    private static char toLower(char c) {
+        return ('A' <= c && c <= 'Z') ? (char) (c + ('a' - 'A')) : c;
+    }
 
-        // Remove checksum, return pair
-        byte[] data = Arrays.copyOf(dataAndCheck, dataAndCheck.length - CHECKSUM_LEN);
-        return new Object[]{humanPart, data};
+    // Returns the uint5 value of a base-32 character of either case, or -1.
+    private static int charValue(char c) {
+        return (c < 128) ? ALPHABET_INDEXES[c] : -1;
     }
 
-    // Computes the polynomial remainder of the given sequence of 5-bit groups. The result is a uint30.
-    private static int polymod(byte[] data) {
-        int result = 1;
-        for (byte b : data) {
-            assert 0 <= b && b < 32;  // uint5
-            int x = result >>> 25;
-            result = ((result & ((1 << 25) - 1)) << 5) | b;
-            for (int i = 0; i < GENERATOR.length; i++) {
-                result ^= ((x >>> i) & 1) * GENERATOR[i];
-            }
-            assert (result >>> 30) == 0;  // uint30
-        }
-        return result;
+    // Advances the polynomial remainder over one 5-bit group. The remainder
+    // is a uint30; its top five bits select the precomputed combination of
+    // generator values to reduce by.
+    private static int polymodStep(int checksum, int value) {
+        return (((checksum & 0x1FFFFFF) << 5) | value) ^ GENERATOR_TABLE[checksum >>> 25];
     }
 
     /*---- Class constants ----*/
     // The base-32 alphabet. Designed so that visually similar characters having small bit differences.
-    private static final String ALPHABET = "qpzry9x8gf2tvdw0s3jn54khce6mua7l";
+    private static final char[] ALPHABET = "qpzry9x8gf2tvdw0s3jn54khce6mua7l".toCharArray();
+
+    // The value of each ASCII character in the alphabet, in either case, or -1.
+    private static final byte[] ALPHABET_INDEXES = new byte[128];
 
     // For computing/verifying checksums. Each element is a uint30.
     private static final int[] GENERATOR = {0x3B6A57B2, 0x26508E6D, 0x1EA119FA, 0x3D4233DD, 0x2A1462B3};
 
+    // The XOR of the generator values selected by each 5-bit value.
+    private static final int[] GENERATOR_TABLE = new int[32];
+
+    // The value the checksum must leave for Bech32 (BIP173, witness version
+    // 0) and Bech32m (BIP350, witness versions 1 to 16).
+    public static final int BECH32_CONST = 1;
+    public static final int BECH32M_CONST = 0x2BC830A3;
+
     // Number of uint5 groups. Do not modify.
     private static final int CHECKSUM_LEN = 6;
 
+    static {
+        Arrays.fill(ALPHABET_INDEXES, (byte) -1);
+        for (int i = 0; i < ALPHABET.length; i++) {
+            ALPHABET_INDEXES[ALPHABET[i]] = (byte) i;
+            ALPHABET_INDEXES[Character.toUpperCase(ALPHABET[i])] = (byte) i;
+        }
+        for (int x = 0; x < GENERATOR_TABLE.length; x++) {
+            for (int i = 0; i < GENERATOR.length; i++) {
+                if (((x >>> i) & 1) != 0) {
+                    GENERATOR_TABLE[x] ^= GENERATOR[i];
+                }
+            }
+        }
+    }
+
     /*---- Miscellaneous ----*/
     private Bech32() {
     }  // Not instantiable
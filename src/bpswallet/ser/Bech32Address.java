@@ -1,39 +1,53 @@
 package bpswallet.ser;
 
 import bpswallet.crypto.ECPubKey;
+import bpswallet.util.ByteUtil;
 import bpswallet.util.HashUtil;
+import java.util.Arrays;
 
 public class Bech32Address extends Address {
 
     public static final String HRP = "bc";
     public static final int VERSION = 0;
-    private final String scriptPubKey;
-    private final String pubKeyHash;
+    private static final int HASH_OFFSET = 2;
 
     public Bech32Address(ECPubKey pubKey) {
-        super(AddressType.BECH32);
-        pubKeyHash = HashUtil.hash160(pubKey.getEncoded());
-        scriptPubKey = "0014" + pubKeyHash;
+        this(toScriptPubKey(HashUtil.hash160(pubKey.getBytes())));
     }
 
     public Bech32Address(String scriptPubKey) {
-        super(AddressType.BECH32);
-        this.scriptPubKey = scriptPubKey;
-        pubKeyHash = scriptPubKey.substring(4, 44);
+        this(ByteUtil.hex2bytes(scriptPubKey));
     }
 
-    @Override
-    public String getScriptPubKey() {
-        return scriptPubKey;
+    /**
+     * @param scriptPubKey the 22-byte P2WPKH script, which the address keeps
+     * without copying.
+     */
+    public Bech32Address(byte[] scriptPubKey) {
+        super(AddressType.BECH32, scriptPubKey);
+    }
+
+    /**
+     * Builds the script 0 &lt;hash&gt;.
+     */
+    private static byte[] toScriptPubKey(byte[] pubKeyHash) {
+        byte[] script = new byte[22];
+        script[1] = 0x14;
+        System.arraycopy(pubKeyHash, 0, script, HASH_OFFSET, 20);
+        return script;
     }
 
     @Override
     public String getEncoded() {
-        return Bech32.hexToBech32(HRP, VERSION, pubKeyHash);
+        return Bech32.segwitToBech32(HRP, VERSION, this.getScriptPubKeyRange(HASH_OFFSET, HASH_OFFSET + 20));
     }
 
     public static Bech32Address fromEncoded(String encoded) {
-        String pubKeyHash = (String) (Bech32.bech32ToHex(encoded)[2]);
-        return new Bech32Address("0014" + pubKeyHash);
+        byte[] scriptPubKey = new byte[42];
+        int length = Bech32.bech32ToScriptPubKey(encoded, HRP, scriptPubKey, 0);
+        if (length != 22 || scriptPubKey[0] != VERSION) {
+            throw new IllegalArgumentException("Not a P2WPKH address");
+        }
+        return new Bech32Address(Arrays.copyOf(scriptPubKey, length));
     }
 }
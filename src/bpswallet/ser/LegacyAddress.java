@@ -1,38 +1,61 @@
 package bpswallet.ser;
 
 import bpswallet.crypto.ECPubKey;
+import bpswallet.util.ByteUtil;
 import bpswallet.util.HashUtil;
 
 public class LegacyAddress extends Address {
 
     public static final String VERSION = "00";
-    private final String scriptPubKey;
-    private final String pubKeyHash;
+    private static final byte VERSION_BYTE = 0x00;
+    private static final int HASH_OFFSET = 3;
 
     public LegacyAddress(ECPubKey pubKey) {
-        super(AddressType.LEGACY);
-        pubKeyHash = HashUtil.hash160(pubKey.getEncoded());
-        scriptPubKey = "76a914" + pubKeyHash + "88ac";
+        this(toScriptPubKey(HashUtil.hash160(pubKey.getBytes()), 0));
     }
 
     public LegacyAddress(String scriptPubKey) {
-        super(AddressType.LEGACY);
-        this.scriptPubKey = scriptPubKey;
-        pubKeyHash = scriptPubKey.substring(6, 46);
+        this(ByteUtil.hex2bytes(scriptPubKey));
+    }
+
+    /**
+     * @param scriptPubKey the 25-byte P2PKH script, which the address keeps
+     * without copying.
+     */
+    public LegacyAddress(byte[] scriptPubKey) {
+        super(AddressType.LEGACY, scriptPubKey);
+    }
+
+    /**
+     * Builds the script OP_DUP OP_HASH160 &lt;hash&gt; OP_EQUALVERIFY OP_CHECKSIG.
+     */
+    private static byte[] toScriptPubKey(byte[] pubKeyHash, int offset) {
+        byte[] script = new byte[25];
+        script[0] = 0x76;
+        script[1] = (byte) 0xa9;
+        script[2] = 0x14;
+        System.arraycopy(pubKeyHash, offset, script, HASH_OFFSET, 20);
+        script[23] = (byte) 0x88;
+        script[24] = (byte) 0xac;
+        return script;
     }
 
     public String getPubKeyHash() {
-        return pubKeyHash;
+        return this.getScriptPubKeyHex(HASH_OFFSET, HASH_OFFSET + 20);
     }
 
-    @Override
-    public String getScriptPubKey() {
-        return scriptPubKey;
+    /**
+     * @return the version byte and hash that the Base58Check encoding covers.
+     */
+    byte[] getPayload() {
+        byte[] payload = this.getScriptPubKeyRange(HASH_OFFSET - 1, HASH_OFFSET + 20);
+        payload[0] = VERSION_BYTE;
+        return payload;
     }
 
     @Override
     public String getEncoded() {
-        return Base58Check.hexToBase58(VERSION + pubKeyHash);
+        return Base58Check.bytesToBase58(this.getPayload());
     }
 
     @Override
@@ -41,7 +64,10 @@ public class LegacyAddress extends Address {
     }
 
     public static LegacyAddress fromEncoded(String encoded) {
-        String pubKeyHash = Base58Check.base58ToHex(encoded).substring(2);
-        return new LegacyAddress("76a914" + pubKeyHash + "88ac");
+        byte[] payload = Base58Check.base58ToBytes(encoded);
+        if (payload.length != 21) {
+            throw new IllegalArgumentException("Not a P2PKH address");
+        }
+        return new LegacyAddress(toScriptPubKey(payload, 1));
     }
 }
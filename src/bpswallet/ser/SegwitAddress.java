@@ -1,40 +1,69 @@
 package bpswallet.ser;
 
 import bpswallet.crypto.ECPubKey;
+import bpswallet.util.ByteUtil;
 import bpswallet.util.HashUtil;
 
 public class SegwitAddress extends Address {
 
     public static final String VERSION = "05";
-    private final String scriptPubKey;
-    private final String scriptHash;
+    private static final byte VERSION_BYTE = 0x05;
+    private static final int HASH_OFFSET = 2;
 
     public SegwitAddress(ECPubKey pubKey) {
-        super(AddressType.SEGWIT);
-        String pubKeyHash = HashUtil.hash160(pubKey.getEncoded());
-        String redeemScript = "0014" + pubKeyHash;
-        scriptHash = HashUtil.hash160(redeemScript);
-        scriptPubKey = "a914" + scriptHash + "87";
+        this(toScriptPubKey(HashUtil.hash160(redeemScript(pubKey)), 0));
     }
 
     public SegwitAddress(String scriptPubKey) {
-        super(AddressType.SEGWIT);
-        this.scriptPubKey = scriptPubKey;
-        scriptHash = scriptPubKey.substring(4, 44);
+        this(ByteUtil.hex2bytes(scriptPubKey));
+    }
+
+    /**
+     * @param scriptPubKey the 23-byte P2SH script, which the address keeps
+     * without copying.
+     */
+    public SegwitAddress(byte[] scriptPubKey) {
+        super(AddressType.SEGWIT, scriptPubKey);
+    }
+
+    /**
+     * Builds the P2WPKH redeem script 0 &lt;hash160(pubKey)&gt;.
+     */
+    private static byte[] redeemScript(ECPubKey pubKey) {
+        byte[] script = new byte[22];
+        script[1] = 0x14;
+        System.arraycopy(HashUtil.hash160(pubKey.getBytes()), 0, script, 2, 20);
+        return script;
+    }
+
+    /**
+     * Builds the script OP_HASH160 &lt;hash&gt; OP_EQUAL.
+     */
+    private static byte[] toScriptPubKey(byte[] scriptHash, int offset) {
+        byte[] script = new byte[23];
+        script[0] = (byte) 0xa9;
+        script[1] = 0x14;
+        System.arraycopy(scriptHash, offset, script, HASH_OFFSET, 20);
+        script[22] = (byte) 0x87;
+        return script;
     }
 
     public String getScriptHash() {
-        return scriptHash;
+        return this.getScriptPubKeyHex(HASH_OFFSET, HASH_OFFSET + 20);
     }
 
-    @Override
-    public String getScriptPubKey() {
-        return scriptPubKey;
+    /**
+     * @return the version byte and hash that the Base58Check encoding covers.
+     */
+    byte[] getPayload() {
+        byte[] payload = this.getScriptPubKeyRange(HASH_OFFSET - 1, HASH_OFFSET + 20);
+        payload[0] = VERSION_BYTE;
+        return payload;
     }
 
     @Override
     public String getEncoded() {
-        return Base58Check.hexToBase58(VERSION + scriptHash);
+        return Base58Check.bytesToBase58(this.getPayload());
     }
 
     @Override
@@ -43,7 +72,10 @@ public class SegwitAddress extends Address {
     }
 
     public static SegwitAddress fromEncoded(String encoded) {
-        String scriptHash = Base58Check.base58ToHex(encoded).substring(2);
-        return new SegwitAddress("a914" + scriptHash + "87");
+        byte[] payload = Base58Check.base58ToBytes(encoded);
+        if (payload.length != 21) {
+            throw new IllegalArgumentException("Not a P2SH address");
+        }
+        return new SegwitAddress(toScriptPubKey(payload, 1));
     }
 }
@@ -7,6 +7,9 @@ import java.util.Arrays;
 
 public class VarInt {
 
+    private static final long MAX_UINT16 = 0xFFFFL;
+    private static final long MAX_UINT32 = 0xFFFFFFFFL;
+
     private final long value;
     private final byte[] varInt;
 
@@ -16,22 +19,8 @@ public class VarInt {
             varInt = new byte[0];
             return;
         }
-        if (num < 0xFD) {
-            // Length 1
-            varInt = new byte[]{(byte) num};
-        } else if (num <= 0xFFFF) {
-            // Length 3
-            byte[] numBytes = ByteBuffer.allocate(2).order(ByteOrder.LITTLE_ENDIAN).putShort((short) num).array();
-            varInt = ByteUtil.hex2bytes("FD" + ByteUtil.hexify(numBytes));
-        } else if (num <= Long.parseUnsignedLong("FFFFFFFF", 16)) {
-            // Length 5
-            byte[] numBytes = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt((int) num).array();
-            varInt = ByteUtil.hex2bytes("FE" + ByteUtil.hexify(numBytes));
-        } else {
-            // Length 9
-            byte[] numBytes = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN).putLong(num).array();
-            varInt = ByteUtil.hex2bytes("FF" + ByteUtil.hexify(numBytes));
-        }
+        varInt = new byte[sizeOf(num)];
+        write(ByteBuffer.wrap(varInt), num);
     }
 
     public VarInt(int num) {
@@ -39,36 +28,82 @@ public class VarInt {
     }
 
     public VarInt(byte[] varInt) {
-        this(ByteUtil.hexify(varInt));
+        ByteBuffer buffer = ByteBuffer.wrap(varInt);
+        value = read(buffer);
+        this.varInt = Arrays.copyOf(varInt, buffer.position());
     }
 
     public VarInt(String hexVarInt) {
-        String flag = hexVarInt.substring(0, 2);
-        int numLen;
-        byte[] numBytes;
-        if (flag.equalsIgnoreCase("fd")) {
-            numLen = 2;
-            this.varInt = ByteUtil.hex2bytes(hexVarInt.substring(0, 6));
-            numBytes = Arrays.copyOfRange(this.varInt, 1, numLen + 1);
-            value = (long) ByteBuffer.wrap(numBytes).order(ByteOrder.LITTLE_ENDIAN).getShort();
-        } else if (flag.equalsIgnoreCase("fe")) {
-            numLen = 4;
-            this.varInt = ByteUtil.hex2bytes(hexVarInt.substring(0, 8));
-            numBytes = Arrays.copyOfRange(this.varInt, 1, numLen + 1);
-            value = (long) ByteBuffer.wrap(numBytes).order(ByteOrder.LITTLE_ENDIAN).getInt();
-        } else if (flag.equalsIgnoreCase("ff")) {
-            numLen = 8;
-            this.varInt = ByteUtil.hex2bytes(hexVarInt.substring(0, 8));
-            numBytes = Arrays.copyOfRange(this.varInt, 1, numLen + 1);
-            value = (long) ByteBuffer.wrap(numBytes).order(ByteOrder.LITTLE_ENDIAN).getLong();
+        this(ByteUtil.hex2bytes(hexVarInt.substring(0, Math.min(hexVarInt.length(), 18))));
+    }
+
+    /**
+     * Reads a VarInt at the buffer's position and advances past it. The
+     * value is read as little-endian whatever the buffer's byte order.
+     *
+     * @param buffer the buffer to read from.
+     * @return the value, where a 9-byte VarInt above Long.MAX_VALUE reads as
+     * negative.
+     */
+    public static long read(ByteBuffer buffer) {
+        boolean littleEndian = (buffer.order() == ByteOrder.LITTLE_ENDIAN);
+        int flag = buffer.get() & 0xFF;
+        if (flag == 0xFD) {
+            short num = buffer.getShort();
+            return (littleEndian ? num : Short.reverseBytes(num)) & MAX_UINT16;
+        } else if (flag == 0xFE) {
+            int num = buffer.getInt();
+            return (littleEndian ? num : Integer.reverseBytes(num)) & MAX_UINT32;
+        } else if (flag == 0xFF) {
+            long num = buffer.getLong();
+            return littleEndian ? num : Long.reverseBytes(num);
+        } else {
+            return flag;
+        }
+    }
+
+    /**
+     * Writes a VarInt at the buffer's position and advances past it, in
+     * little-endian order whatever the buffer's byte order.
+     *
+     * @param buffer the buffer to write to, with at least sizeOf(num) bytes
+     * remaining.
+     * @param num the value, treated as unsigned.
+     */
+    public static void write(ByteBuffer buffer, long num) {
+        boolean littleEndian = (buffer.order() == ByteOrder.LITTLE_ENDIAN);
+        int size = sizeOf(num);
+        if (size == 1) {
+            buffer.put((byte) num);
+        } else if (size == 3) {
+            short le = (short) num;
+            buffer.put((byte) 0xFD).putShort(littleEndian ? le : Short.reverseBytes(le));
+        } else if (size == 5) {
+            int le = (int) num;
+            buffer.put((byte) 0xFE).putInt(littleEndian ? le : Integer.reverseBytes(le));
+        } else {
+            buffer.put((byte) 0xFF).putLong(littleEndian ? num : Long.reverseBytes(num));
+        }
+    }
+
+    /**
+     * @param num the value, treated as unsigned.
+     * @return the length in bytes of the VarInt encoding num.
+     */
+    public static int sizeOf(long num) {
+        if (num >= 0 && num < 0xFD) {
+            return 1;
+        } else if (num >= 0 && num <= MAX_UINT16) {
+            return 3;
+        } else if (num >= 0 && num <= MAX_UINT32) {
+            return 5;
         } else {
-            this.varInt = ByteUtil.hex2bytes(flag);
-            value = Byte.toUnsignedLong(ByteUtil.hex2bytes(flag)[0]);
+            return 9;
         }
     }
 
     public int hexLength() {
-        return this.toHex().length();
+        return varInt.length * 2;
     }
 
     public int byteLength() {
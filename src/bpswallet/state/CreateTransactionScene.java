@@ -127,6 +127,8 @@ public class CreateTransactionScene extends FlowScene {
                             } catch (NumberFormatException ex) {
                                 System.out.println("Index must be a positive value.");
                                 state.pause(1000);
+                            } catch (IllegalArgumentException ex) {
+                                state.printInvalidInputNotice();
                             }
                         } else {
                             state.printInvalidInputNotice();
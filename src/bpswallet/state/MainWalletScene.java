@@ -108,12 +108,14 @@ public class MainWalletScene extends Scene {
             @Override
             public void trigger() {
                 System.out.println("EXTERNAL ADDRESSES");
-                for (int i = 0; i < wallet.getExtAddresses().size(); i++) {
-                    System.out.println(wallet.getDerivation() + "/0/" + i + ": " + wallet.getExtAddresses().get(i).getEncoded());
+                String[] extAddresses = AddressFactory.encodeAll(wallet.getExtAddresses());
+                for (int i = 0; i < extAddresses.length; i++) {
+                    System.out.println(wallet.getDerivation() + "/0/" + i + ": " + extAddresses[i]);
                 }
                 System.out.println("INTERNAL ADDRESSES");
-                for (int i = 0; i < wallet.getIntAddresses().size(); i++) {
-                    System.out.println(wallet.getDerivation() + "/1/" + i + ": " + wallet.getIntAddresses().get(i).getEncoded());
+                String[] intAddresses = AddressFactory.encodeAll(wallet.getIntAddresses());
+                for (int i = 0; i < intAddresses.length; i++) {
+                    System.out.println(wallet.getDerivation() + "/1/" + i + ": " + intAddresses[i]);
                 }
             }
         });
@@ -19,7 +19,7 @@ public class BIP32Test {
     }
 
     public boolean runAllTests() {
-        return testDeriveXpub() && testDeriveXprv() && testTestDerivation();
+        return testDeriveXpub() && testDeriveXprv() && testTestDerivation() && testCKDpubRange();
     }
 
     public boolean testDeriveXpub() {
@@ -78,6 +78,29 @@ public class BIP32Test {
         return pass;
     }
 
+    public boolean testCKDpubRange() {
+        System.out.println("CKDpubRange");
+        boolean pass = true;
+        for (int i = 1; i <= 3; i++) {
+            setTestVectors(i);
+            for (BIP32TestObject vector : test_vectors) {
+                ArrayList<ExtendedPubKey> children = BIP32.CKDpubRange(vector.extXpub, 0, 5);
+                for (int childNum = 0; childNum < children.size(); childNum++) {
+                    ExtendedPubKey expected = BIP32.CKDpub(vector.extXpub, childNum);
+                    ExtendedPubKey result = children.get(childNum);
+                    if (!expected.equals(result)) {
+                        System.out.println("Test failed for xpub: " + vector.extXpub.getEncoded());
+                        System.out.println("Child: " + childNum);
+                        System.out.println("Expected: " + expected.getEncoded());
+                        System.out.println("Actual:   " + result.getEncoded());
+                        pass = false;
+                    }
+                }
+            }
+        }
+        return pass;
+    }
+
     private void setTestVectors(int test_unit) {
         test_vectors.clear();
         File file = new File(FileUtil.ETC_DIR + "bip32testvectors" + test_unit + ".txt");
@@ -0,0 +1,166 @@
+package bpswallet.tests;
+
+import bpswallet.ser.Base58Check;
+import bpswallet.util.ByteUtil;
+import bpswallet.util.HashUtil;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Random;
+
+public class Base58CheckTest {
+
+    // Encoded string, payload (version byte(s) and data) in hex
+    private static final String[][] KNOWN = {
+        // P2PKH, the genesis block coinbase address
+        {"1A1zP1eP5QGefi2DMPTfTL5SLmv7DivfNa", "0062e907b15cbf27d5425399ebf6f0fb50ebb88f18"},
+        // P2SH
+        {"3J98t1WpEZ73CNmQviecrnyiWrnqRhWNLy", "05b472a266d0bd89c13706a4132ccfb16f7c3b9fcb"},
+        // Uncompressed WIF
+        {"5HueCGU8rMjxEXxiPuD5BDku4MkFqeZyd4dZ1jvhTVqvbTLvyTJ",
+            "800c28fca386c7a227600b2fe50b7cae11ec86d3bf1fbe471be89827e19d72aa1d"},
+        // BIP32 test vector 1, master keys
+        {"xprv9s21ZrQH143K3QTDL4LXw2F7HEK3wJUD2nW2nRk4stbPy6cq3jPPqjiChkVvvNKmPGJxWUtg6LnF5kejMRNNU3TGtRBeJgk33yuGBxrMPHi",
+            "0488ade4000000000000000000873dff81c02f525623fd1fe5167eac3a55a049de3d314bb42ee227ffed37d50800"
+            + "e8f32e723decf4051aefac8e2c93c9c5b214313817cdb01a1494b917c8436b35"},
+        {"xpub661MyMwAqRbcFtXgS5sYJABqqG9YLmC4Q1Rdap9gSE8NqtwybGhePY2gZ29ESFjqJoCu1Rupje8YtGqsefD265TMg7usUDFdp6W1EGMcet8",
+            "0488b21e000000000000000000873dff81c02f525623fd1fe5167eac3a55a049de3d314bb42ee227ffed37d508"
+            + "0339a36013301597daef41fbe593a02cc513d0b55527ec2df1050e2e8ff49c85c2"}
+    };
+    private static final String[] INVALID = {
+        "1A1zP1eP5QGefi2DMPTfTL5SLmv7DivfNb", // checksum mismatch
+        "1A1zP1eP5QGefi2DMPTfTL5SLmv7Divf0a", // '0' is not a digit
+        "1A1zP1eP5QGefi2DMPTfTL5SLmv7DivfOa", // 'O' is not a digit
+        "1A1zP1eP5QGefi2DMPTfTL5SLmv7DivfIa", // 'I' is not a digit
+        "1A1zP1eP5QGefi2DMPTfTL5SLmv7Divfla", // 'l' is not a digit
+        "1A1zP1eP5QGefi2DMPTfTL5SLmv7Divf\u00e9a", // not ASCII
+        "", // no checksum
+        "1111"
+    };
+
+    private final Random rand = new Random();
+
+    public Base58CheckTest() {
+
+    }
+
+    public boolean runAllTests() {
+        return testKnownStrings() && testInvalid() && testRoundTrip() && testBulkEncode();
+    }
+
+    public boolean testKnownStrings() {
+        System.out.println("knownStrings");
+        boolean pass = true;
+        for (String[] vector : KNOWN) {
+            byte[] payload = ByteUtil.hex2bytes(vector[1]);
+            if (!Base58Check.bytesToBase58(payload).equals(vector[0])) {
+                System.out.println("Test failed to encode: " + vector[0]);
+                pass = false;
+            }
+            if (!Arrays.equals(Base58Check.base58ToBytes(vector[0]), payload)) {
+                System.out.println("Test failed to decode: " + vector[0]);
+                pass = false;
+            }
+        }
+        return pass;
+    }
+
+    public boolean testInvalid() {
+        System.out.println("invalid");
+        boolean pass = true;
+        for (String s : INVALID) {
+            try {
+                Base58Check.base58ToBytes(s);
+                System.out.println("Test failed to reject: " + s);
+                pass = false;
+            } catch (IllegalArgumentException ex) {
+                // expected
+            }
+        }
+        return pass;
+    }
+
+    public boolean testRoundTrip() {
+        System.out.println("roundTrip");
+        boolean pass = true;
+        for (int length = 0; length <= 80; length++) {
+            for (int zeros = 0; zeros <= Math.min(length, 3); zeros++) {
+                for (int fill = 0; fill < 3; fill++) {
+                    byte[] data = new byte[length];
+                    if (fill == 0) {
+                        rand.nextBytes(data);
+                    } else if (fill == 1) {
+                        Arrays.fill(data, (byte) 0xFF);
+                    }
+                    Arrays.fill(data, 0, zeros, (byte) 0);
+                    if (!roundTrip(data)) {
+                        pass = false;
+                    }
+                }
+            }
+        }
+        return pass;
+    }
+
+    public boolean testBulkEncode() {
+        System.out.println("bulkEncode");
+        boolean pass = true;
+        byte[][] payloads = new byte[60][];
+        for (int i = 0; i < payloads.length; i++) {
+            // Runs of equal lengths share buffers; changes in length replace them
+            payloads[i] = new byte[(i / 3 % 4 == 0) ? 21 : rand.nextInt(82)];
+            rand.nextBytes(payloads[i]);
+            if (i % 5 == 0 && payloads[i].length > 0) {
+                payloads[i][0] = 0;
+            }
+        }
+        String[] bulk = Base58Check.bytesToBase58(payloads);
+        for (int i = 0; i < payloads.length; i++) {
+            if (!bulk[i].equals(Base58Check.bytesToBase58(payloads[i]))) {
+                System.out.println("Test failed for payload: " + ByteUtil.hexify(payloads[i]));
+                pass = false;
+            }
+        }
+        if (Base58Check.bytesToBase58(new byte[0][]).length != 0) {
+            System.out.println("Test failed for no payloads");
+            pass = false;
+        }
+        return pass;
+    }
+
+    private static boolean roundTrip(byte[] data) {
+        byte[] checked = Arrays.copyOf(data, data.length + 4);
+        System.arraycopy(HashUtil.doubleSha256(data), 0, checked, data.length, 4);
+        String expected = referenceEncode(checked);
+        String encoded = Base58Check.bytesToBase58(data);
+        if (!encoded.equals(expected)) {
+            System.out.println("Test failed to encode: " + ByteUtil.hexify(data));
+            System.out.println("Expected: " + expected);
+            System.out.println("Actual:   " + encoded);
+            return false;
+        }
+        if (!Arrays.equals(Base58Check.base58ToBytes(encoded), data)) {
+            System.out.println("Test failed to decode: " + encoded);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Straightforward BigInteger conversion, with one '1' for each leading
+     * zero byte.
+     */
+    private static String referenceEncode(byte[] data) {
+        StringBuilder sb = new StringBuilder();
+        BigInteger num = new BigInteger(1, data);
+        BigInteger base = BigInteger.valueOf(58);
+        while (num.signum() > 0) {
+            BigInteger[] divRem = num.divideAndRemainder(base);
+            sb.append(Base58Check.ALPHABET.charAt(divRem[1].intValue()));
+            num = divRem[0];
+        }
+        for (int i = 0; i < data.length && data[i] == 0; i++) {
+            sb.append(Base58Check.ALPHABET.charAt(0));
+        }
+        return sb.reverse().toString();
+    }
+}
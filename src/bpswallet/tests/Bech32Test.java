@@ -0,0 +1,201 @@
+package bpswallet.tests;
+
+import bpswallet.ser.Address;
+import bpswallet.ser.AddressFactory;
+import bpswallet.ser.Bech32;
+import bpswallet.ser.Bech32Address;
+import bpswallet.util.ByteUtil;
+import java.util.Arrays;
+import java.util.Locale;
+
+public class Bech32Test {
+
+    // BIP173 and BIP350 valid segwit addresses: address, scriptPubKey
+    private static final String[][] VALID_ADDRESSES = {
+        {"BC1QW508D6QEJXTDG4Y5R3ZARVARY0C5XW7KV8F3T4", "0014751e76e8199196d454941c45d1b3a323f1433bd6"},
+        {"tb1qrp33g0q5c5txsp9arysrx4k6zdkfs4nce4xj0gdcccefvpysxf3q0sl5k7",
+            "00201863143c14c5166804bd19203356da136c985678cd4d27a1b8c6329604903262"},
+        {"bc1pw508d6qejxtdg4y5r3zarvary0c5xw7kw508d6qejxtdg4y5r3zarvary0c5xw7kt5nd6y",
+            "5128751e76e8199196d454941c45d1b3a323f1433bd6751e76e8199196d454941c45d1b3a323f1433bd6"},
+        {"BC1SW50QGDZ25J", "6002751e"},
+        {"bc1zw508d6qejxtdg4y5r3zarvaryvaxxpcs", "5210751e76e8199196d454941c45d1b3a323"},
+        {"tb1qqqqqp399et2xygdj5xreqhjjvcmzhxw4aywxecjdzew6hylgvsesrxh6hy",
+            "0020000000c4a5cad46221b2a187905e5266362b99d5e91c6ce24d165dab93e86433"},
+        {"tb1pqqqqp399et2xygdj5xreqhjjvcmzhxw4aywxecjdzew6hylgvsesf3hn0c",
+            "5120000000c4a5cad46221b2a187905e5266362b99d5e91c6ce24d165dab93e86433"},
+        {"bc1p0xlxvlhemja6c4dqv22uapctqupfhlxm9h8z3k2e72q4k9hcz7vqzk5jj0",
+            "512079be667ef9dcbbac55a06295ce870b07029bfcdb2dce28d959f2815b16f81798"}
+    };
+    // BIP173 and BIP350 invalid segwit addresses, whatever the human-readable part
+    private static final String[][] INVALID_ADDRESSES = {
+        {"bc1qw508d6qejxtdg4y5r3zarvary0c5xw7kemeawh", "Bech32m checksum for version 0"},
+        {"tb1q0xlxvlhemja6c4dqv22uapctqupfhlxm9h8z3k2e72q4k9hcz7vq24jc47", "Bech32m checksum for version 0"},
+        {"bc1p38j9r5y49hruaue7wxjce0updqjuyyx0kh56v8s25huc6995vvpql3jow4", "Bech32 checksum for version 1"},
+        {"tb1z0xlxvlhemja6c4dqv22uapctqupfhlxm9h8z3k2e72q4k9hcz7vqglt7rf", "Bech32 checksum for version 2"},
+        {"BC1S0XLXVLHEMJA6C4DQV22UAPCTQUPFHLXM9H8Z3K2E72Q4K9HCZ7VQ54WELL", "Bech32 checksum for version 16"},
+        {"bc1p0xlxvlhemja6c4dqv22uapctqupfhlxm9h8z3k2e72q4k9hcz7vqh2y7hd", "Bech32 checksum for version 1"},
+        {"bc1qw508d6qejxtdg4y5r3zarvary0c5xw7kv8f3t5", "invalid checksum"},
+        {"BC130XLXVLHEMJA6C4DQV22UAPCTQUPFHLXM9H8Z3K2E72Q4K9HCZ7VQ7ZWS8R", "invalid witness version"},
+        {"bc1pw5dgrnzv", "program too short"},
+        {"bc1p0xlxvlhemja6c4dqv22uapctqupfhlxm9h8z3k2e72q4k9hcz7v8n0nx0muaewav253zgeav", "program too long"},
+        {"BC1QR508D6QEJXTDG4Y5R3ZARVARYV98GJ9P", "invalid program length for version 0"},
+        {"tb1p0xlxvlhemja6c4dqv22uapctqupfhlxm9h8z3k2e72q4k9hcz7vq47Zagq", "mixed case"},
+        {"tb1qrp33g0q5c5txsp9arysrx4k6zdkfs4nce4xj0gdcccefvpysxf3q0sL5k7", "mixed case"},
+        {"bc1p0xlxvlhemja6c4dqv22uapctqupfhlxm9h8z3k2e72q4k9hcz7v07qwwzcrf", "padding of more than 4 bits"},
+        {"bc1zw508d6qejxtdg4y5r3zarvaryvqyzf3du", "padding of more than 4 bits"},
+        {"tb1p0xlxvlhemja6c4dqv22uapctqupfhlxm9h8z3k2e72q4k9hcz7vpggkg4j", "non-zero padding"},
+        {"tb1qrp33g0q5c5txsp9arysrx4k6zdkfs4nce4xj0gdcccefvpysxf3pjxtptv", "non-zero padding"},
+        {"bc1gmk9yu", "empty data"}
+    };
+    // BIP173 valid Bech32 strings, which need not be segwit addresses
+    private static final String[] VALID_STRINGS = {
+        "A12UEL5L",
+        "a12uel5l",
+        "an83characterlonghumanreadablepartthatcontainsthenumber1andtheexcludedcharactersbio1tt5tgs",
+        "abcdef1qpzry9x8gf2tvdw0s3jn54khce6mua7lmqqqxw",
+        "split1checkupstagehandshakeupstreamerranterredcaperred2y9e3w",
+        "?1ezyfcl"
+    };
+
+    public Bech32Test() {
+
+    }
+
+    public boolean runAllTests() {
+        return testValidAddresses() && testInvalidAddresses() && testHumanReadablePart()
+                && testValidStrings() && testBech32Address();
+    }
+
+    public boolean testValidAddresses() {
+        System.out.println("validAddresses");
+        boolean pass = true;
+        byte[] scriptPubKey = new byte[45];
+        for (String[] vector : VALID_ADDRESSES) {
+            String address = vector[0];
+            String humanPart = address.substring(0, address.lastIndexOf('1')).toLowerCase(Locale.ROOT);
+            try {
+                int length = Bech32.bech32ToScriptPubKey(address, humanPart, scriptPubKey, 3);
+                if (!ByteUtil.hexify(scriptPubKey, 3, length).equals(vector[1])) {
+                    System.out.println("Test failed to decode: " + address);
+                    pass = false;
+                }
+                int witVer = (scriptPubKey[3] == 0) ? 0 : scriptPubKey[3] - 0x50;
+                byte[] witProg = Arrays.copyOfRange(scriptPubKey, 5, 3 + length);
+                if (!Bech32.segwitToBech32(humanPart, witVer, witProg).equals(address.toLowerCase(Locale.ROOT))) {
+                    System.out.println("Test failed to encode: " + address);
+                    pass = false;
+                }
+                Object[] decoded = Bech32.bech32ToHex(address);
+                if (!decoded[0].equals(humanPart) || (Integer) decoded[1] != witVer
+                        || !decoded[2].equals(ByteUtil.hexify(witProg))) {
+                    System.out.println("Test failed to decode to hex: " + address);
+                    pass = false;
+                }
+            } catch (IllegalArgumentException ex) {
+                System.out.println("Test failed to accept: " + address);
+                pass = false;
+            }
+        }
+        return pass;
+    }
+
+    public boolean testInvalidAddresses() {
+        System.out.println("invalidAddresses");
+        boolean pass = true;
+        byte[] scriptPubKey = new byte[42];
+        for (String[] vector : INVALID_ADDRESSES) {
+            String address = vector[0];
+            try {
+                Bech32.bech32ToHex(address);
+                System.out.println("Test failed to reject (" + vector[1] + "): " + address);
+                pass = false;
+            } catch (IllegalArgumentException ex) {
+                // expected
+            }
+            int separator = address.lastIndexOf('1');
+            String humanPart = (separator > 0) ? address.substring(0, separator).toLowerCase(Locale.ROOT) : "bc";
+            try {
+                Bech32.bech32ToScriptPubKey(address, humanPart, scriptPubKey, 0);
+                System.out.println("Test failed to reject scriptPubKey (" + vector[1] + "): " + address);
+                pass = false;
+            } catch (IllegalArgumentException ex) {
+                // expected
+            }
+        }
+        return pass;
+    }
+
+    public boolean testHumanReadablePart() {
+        System.out.println("humanReadablePart");
+        boolean pass = true;
+        byte[] scriptPubKey = new byte[42];
+        String[][] mismatches = {
+            {"tc1qw508d6qejxtdg4y5r3zarvary0c5xw7kg3g4ty", "bc"},
+            {"tb1qrp33g0q5c5txsp9arysrx4k6zdkfs4nce4xj0gdcccefvpysxf3q0sl5k7", "bc"},
+            {"bc1qw508d6qejxtdg4y5r3zarvary0c5xw7kv8f3t4", "tb"},
+            {"bc1qw508d6qejxtdg4y5r3zarvary0c5xw7kv8f3t4", "b"},
+            {"bc1qw508d6qejxtdg4y5r3zarvary0c5xw7kv8f3t4", "bcc"}
+        };
+        for (String[] mismatch : mismatches) {
+            try {
+                Bech32.bech32ToScriptPubKey(mismatch[0], mismatch[1], scriptPubKey, 0);
+                System.out.println("Test failed to reject prefix " + mismatch[1] + " for: " + mismatch[0]);
+                pass = false;
+            } catch (IllegalArgumentException ex) {
+                // expected
+            }
+        }
+        try {
+            Bech32.segwitToBech32("BC", 0, new byte[20]);
+            System.out.println("Test failed to reject uppercase human-readable part");
+            pass = false;
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+        return pass;
+    }
+
+    public boolean testValidStrings() {
+        System.out.println("validStrings");
+        boolean pass = true;
+        for (String s : VALID_STRINGS) {
+            try {
+                Object[] decoded = Bech32.bech32ToBitGroups(s);
+                String encoded = Bech32.bitGroupsToBech32((String) decoded[0], (byte[]) decoded[1]);
+                if (!encoded.equals(s.toLowerCase(Locale.ROOT))) {
+                    System.out.println("Test failed to re-encode: " + s);
+                    pass = false;
+                }
+            } catch (IllegalArgumentException ex) {
+                System.out.println("Test failed to accept: " + s);
+                pass = false;
+            }
+        }
+        return pass;
+    }
+
+    public boolean testBech32Address() {
+        System.out.println("bech32Address");
+        boolean pass = true;
+        String p2wpkh = "bc1qw508d6qejxtdg4y5r3zarvary0c5xw7kv8f3t4";
+        Address address = AddressFactory.fromEncoded(p2wpkh);
+        if (!(address instanceof Bech32Address)
+                || !address.getScriptPubKey().equals("0014751e76e8199196d454941c45d1b3a323f1433bd6")
+                || !address.getEncoded().equals(p2wpkh)) {
+            System.out.println("Test failed for P2WPKH address: " + p2wpkh);
+            pass = false;
+        }
+        // Valid segwit addresses this wallet cannot pay to
+        String[] unsupported = {
+            "bc1p0xlxvlhemja6c4dqv22uapctqupfhlxm9h8z3k2e72q4k9hcz7vqzk5jj0",
+            "bc1qrp33g0q5c5txsp9arysrx4k6zdkfs4nce4xj0gdcccefvpysxf3qccfmv3"
+        };
+        for (String encoded : unsupported) {
+            if (AddressFactory.fromEncoded(encoded) != null) {
+                System.out.println("Test failed to reject: " + encoded);
+                pass = false;
+            }
+        }
+        return pass;
+    }
+}
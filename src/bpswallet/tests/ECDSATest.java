@@ -0,0 +1,136 @@
+package bpswallet.tests;
+
+import bpswallet.crypto.CurveParams;
+import bpswallet.crypto.ECKeyPair;
+import bpswallet.crypto.ECPrvKey;
+import bpswallet.crypto.ECPubKey;
+import bpswallet.crypto.ECSignature;
+import bpswallet.crypto.SignatureBatch;
+import bpswallet.util.ByteUtil;
+import java.math.BigInteger;
+import java.util.Random;
+
+public class ECDSATest {
+
+    private final Random rand = new Random();
+
+    public ECDSATest() {
+
+    }
+
+    public boolean runAllTests() {
+        return testSignVerify() && testDeterministicNonce() && testBatchVerify() && testPubKeyEncoding();
+    }
+
+    public boolean testSignVerify() {
+        System.out.println("signVerify");
+        boolean pass = true;
+        for (int i = 0; i < 16; i++) {
+            ECKeyPair keyPair = ECKeyPair.randomKeyPair();
+            String sigHash = ByteUtil.hexify(randomBytes(32));
+            ECSignature sig = keyPair.getPrv().sign(sigHash);
+            if (!keyPair.getPub().verify(sigHash, sig)) {
+                System.out.println("Valid signature rejected for sighash: " + sigHash);
+                pass = false;
+            }
+            String otherHash = ByteUtil.hexify(randomBytes(32));
+            if (keyPair.getPub().verify(otherHash, sig)) {
+                System.out.println("Invalid signature accepted for sighash: " + otherHash);
+                pass = false;
+            }
+        }
+        return pass;
+    }
+
+    public boolean testDeterministicNonce() {
+        System.out.println("deterministicNonce");
+        boolean pass = true;
+        // sha256("Satoshi Nakamoto") signed with keys 1 and n - 1, per RFC 6979
+        String sigHash = "a0dc65ffca799873cbea0ac274015b9526505daaaed385155425f7337704883e";
+        BigInteger[] secrets = {BigInteger.ONE, CurveParams.n.subtract(BigInteger.ONE)};
+        String[] expected = {
+            "934b1ea10a4b3c1757e2b0c017d0b6143ce3c9a7e6a4a49860d7a6ab210ee3d8"
+            + "2442ce9d2b916064108014783e923ec36b49743e2ffa1c4496f01a512aafd9e5",
+            "fd567d121db66e382991534ada77a6bd3106f0a1098c231e47993447cd6af2d0"
+            + "6b39cd0eb1bc8603e159ef5c20a5c8ad685a45b06ce9bebed3f153d10d93bed5"
+        };
+        for (int i = 0; i < secrets.length; i++) {
+            ECSignature sig = new ECPrvKey(secrets[i]).sign(sigHash);
+            String result = String.format("%064x%064x", sig.getR(), sig.getS());
+            if (!result.equals(expected[i])) {
+                System.out.println("Test failed for secret: " + secrets[i].toString(16));
+                pass = false;
+            }
+        }
+        return pass;
+    }
+
+    public boolean testBatchVerify() {
+        System.out.println("batchVerify");
+        boolean pass = true;
+        SignatureBatch batch = new SignatureBatch();
+        boolean[] expected = new boolean[24];
+        for (int i = 0; i < expected.length; i++) {
+            ECKeyPair keyPair = ECKeyPair.randomKeyPair();
+            String sigHash = ByteUtil.hexify(randomBytes(32));
+            ECSignature sig = keyPair.getPrv().sign(sigHash);
+            expected[i] = rand.nextInt(4) != 0;
+            batch.add(expected[i] ? sigHash : ByteUtil.hexify(randomBytes(32)), sig, keyPair.getPub());
+        }
+        boolean[] result = batch.verifyEach();
+        boolean allValid = true;
+        for (int i = 0; i < expected.length; i++) {
+            allValid = allValid && expected[i];
+            if (result[i] != expected[i]) {
+                System.out.println("Batch result mismatch at index " + i);
+                pass = false;
+            }
+        }
+        if (batch.verify() != allValid) {
+            System.out.println("Batch verify returned " + !allValid);
+            pass = false;
+        }
+        return pass;
+    }
+
+    public boolean testPubKeyEncoding() {
+        System.out.println("pubKeyEncoding");
+        boolean pass = true;
+        String gx = "79be667ef9dcbbac55a06295ce870b07029bfcdb2dce28d959f2815b16f81798";
+        String gy = "483ada7726a3c4655da4fbfc0e1108a8fd17b448a68554199c47d08ffb10d4b8";
+        String[] valid = {"02" + gx, "04" + gx + gy};
+        for (String encoded : valid) {
+            try {
+                ECPubKey pubKey = new ECPubKey(ByteUtil.hex2bytes(encoded));
+                if (!pubKey.getPoint().equals(CurveParams.G)) {
+                    System.out.println("Test failed for valid key: " + encoded);
+                    pass = false;
+                }
+            } catch (IllegalArgumentException ex) {
+                System.out.println("Test failed for valid key: " + encoded);
+                pass = false;
+            }
+        }
+        // No point has x = 5, 7 or 9; then an off-curve y, and x = p + 1
+        String[] invalid = {
+            "02" + String.format("%064x", 5), "03" + String.format("%064x", 7), "02" + String.format("%064x", 9),
+            "04" + gx + gy.substring(0, 63) + "9",
+            "02fffffffffffffffffffffffffffffffffffffffffffffffffffffffefffffc30"};
+        for (String encoded : invalid) {
+            try {
+                new ECPubKey(ByteUtil.hex2bytes(encoded));
+                System.out.println("Test failed for invalid key: " + encoded);
+                pass = false;
+            } catch (IllegalArgumentException ex) {
+                // expected
+            }
+        }
+        return pass;
+    }
+
+    private byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        rand.nextBytes(bytes);
+        return bytes;
+    }
+}
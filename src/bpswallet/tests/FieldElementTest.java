@@ -0,0 +1,137 @@
+package bpswallet.tests;
+
+import bpswallet.crypto.CurveParams;
+import bpswallet.crypto.FieldElement;
+import bpswallet.crypto.Scalar;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Random;
+
+public class FieldElementTest {
+
+    private final Random rand = new Random();
+    private final BigInteger[] edgeValues = {
+        BigInteger.ZERO,
+        BigInteger.ONE,
+        BigInteger.ONE.shiftLeft(255),
+        CurveParams.p.subtract(BigInteger.ONE),
+        CurveParams.n.subtract(BigInteger.ONE),
+        CurveParams.n.shiftRight(1)
+    };
+
+    public FieldElementTest() {
+
+    }
+
+    public boolean runAllTests() {
+        return testFieldArithmetic() && testFieldInverse() && testFieldBytes() && testScalarArithmetic();
+    }
+
+    public boolean testFieldArithmetic() {
+        System.out.println("fieldArithmetic");
+        boolean pass = true;
+        BigInteger p = CurveParams.p;
+        for (int i = 0; i < 1000; i++) {
+            BigInteger a = value(i, p);
+            BigInteger b = value(i / edgeValues.length, p);
+            FieldElement fa = FieldElement.fromBigInteger(a);
+            FieldElement fb = FieldElement.fromBigInteger(b);
+            // A chain of operations exercises the weakly reduced intermediate forms
+            FieldElement result = new FieldElement().sub(fa, fb);
+            result.mulInt(result, 3).add(result, fa).mul(result, fb).sqr(result).negate(result);
+            BigInteger expected = a.subtract(b).multiply(BigInteger.valueOf(3)).add(a).multiply(b).pow(2).negate().mod(p);
+            if (!result.toBigInteger().equals(expected)) {
+                System.out.println("Test failed for values: " + a.toString(16) + ", " + b.toString(16));
+                pass = false;
+            }
+        }
+        return pass;
+    }
+
+    public boolean testFieldInverse() {
+        System.out.println("fieldInverse");
+        boolean pass = true;
+        BigInteger p = CurveParams.p;
+        for (int i = 0; i < 32; i++) {
+            BigInteger a = value(i, p);
+            FieldElement inverse = new FieldElement().inverse(FieldElement.fromBigInteger(a));
+            BigInteger expected = (a.signum() == 0) ? BigInteger.ZERO : a.modInverse(p);
+            if (!inverse.toBigInteger().equals(expected)) {
+                System.out.println("Inverse failed for value: " + a.toString(16));
+                pass = false;
+            }
+            FieldElement root = new FieldElement();
+            boolean square = root.sqrt(FieldElement.fromBigInteger(a));
+            boolean expectSquare = a.modPow(p.subtract(BigInteger.ONE).shiftRight(1), p).compareTo(BigInteger.ONE) <= 0;
+            if (square != expectSquare || square && !root.toBigInteger().pow(2).mod(p).equals(a)) {
+                System.out.println("Square root failed for value: " + a.toString(16));
+                pass = false;
+            }
+        }
+        return pass;
+    }
+
+    public boolean testFieldBytes() {
+        System.out.println("fieldBytes");
+        boolean pass = true;
+        byte[] bytes = new byte[33];
+        for (int i = 0; i < 64; i++) {
+            rand.nextBytes(bytes);
+            if (i < 8) {
+                // Values at or above p must read as their residue
+                Arrays.fill(bytes, 1, 28, (byte) 0xFF);
+            }
+            BigInteger expected = new BigInteger(1, Arrays.copyOfRange(bytes, 1, 33)).mod(CurveParams.p);
+            FieldElement element = new FieldElement().setBytes(bytes, 1);
+            byte[] out = new byte[32];
+            element.getBytes(out, 0);
+            if (!element.toBigInteger().equals(expected) || !new BigInteger(1, out).equals(expected)) {
+                System.out.println("Test failed for value: " + expected.toString(16));
+                pass = false;
+            }
+        }
+        return pass;
+    }
+
+    public boolean testScalarArithmetic() {
+        System.out.println("scalarArithmetic");
+        boolean pass = true;
+        BigInteger n = CurveParams.n;
+        for (int i = 0; i < 1000; i++) {
+            BigInteger a = value(i, n);
+            BigInteger b = value(i / edgeValues.length, n);
+            Scalar sa = Scalar.fromBigInteger(a);
+            Scalar sb = Scalar.fromBigInteger(b);
+            Scalar result = new Scalar().mul(sa, sb);
+            result.add(result, sa).sqr(result).negate(result);
+            BigInteger expected = a.multiply(b).add(a).pow(2).negate().mod(n);
+            if (!result.toBigInteger().equals(expected)) {
+                System.out.println("Test failed for scalars: " + a.toString(16) + ", " + b.toString(16));
+                pass = false;
+            }
+            if (sa.isHigh() != (a.compareTo(n.shiftRight(1)) > 0)) {
+                System.out.println("isHigh failed for scalar: " + a.toString(16));
+                pass = false;
+            }
+            if (i % 50 == 0) {
+                Scalar inverse = new Scalar().inverse(sa);
+                BigInteger expectedInverse = (a.signum() == 0) ? BigInteger.ZERO : a.modInverse(n);
+                if (!inverse.toBigInteger().equals(expectedInverse)) {
+                    System.out.println("Inverse failed for scalar: " + a.toString(16));
+                    pass = false;
+                }
+            }
+        }
+        return pass;
+    }
+
+    /**
+     * Picks the edge values first, then random values below the modulus.
+     */
+    private BigInteger value(int i, BigInteger modulus) {
+        if (i < edgeValues.length * edgeValues.length) {
+            return edgeValues[i % edgeValues.length].mod(modulus);
+        }
+        return new BigInteger(256, rand).mod(modulus);
+    }
+}
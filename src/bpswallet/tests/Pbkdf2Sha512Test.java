@@ -0,0 +1,171 @@
+package bpswallet.tests;
+
+import bpswallet.util.ByteUtil;
+import bpswallet.util.Pbkdf2Sha512;
+import bpswallet.wallet.BIP39;
+import java.security.NoSuchAlgorithmException;
+import java.security.spec.InvalidKeySpecException;
+import java.util.Arrays;
+import java.util.Random;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+public class Pbkdf2Sha512Test {
+
+    // BIP39 test vectors (passphrase "TREZOR"): mnemonic, seed
+    private static final String[][] BIP39_VECTORS = {
+        {"abandon abandon abandon abandon abandon abandon abandon abandon abandon abandon abandon about",
+            "c55257c360c07c72029aebc1b53c05ed0362ada38ead3e3e9efa3708e53495531f09a6987599d18264c1e1c92f2cf141630c7a3c4ab7c81b2f001698e7463b04"},
+        {"legal winner thank year wave sausage worth useful legal winner thank yellow",
+            "2e8905819b8723fe2c1d161860e5ee1830318dbf49a83bd451cfb8440c28bd6fa457fe1296106559a3c80937a1c1069be3a3a5bd381ee6260e8d9739fce1f607"},
+        {"letter advice cage absurd amount doctor acoustic avoid letter advice cage above",
+            "d71de856f81a8acc65e6fc851a38d4d7ec216fd0796d0a6827a3ad6ed5511a30fa280f12eb2e47ed2ac03b5c462a0358d18d69fe4f985ec81778c1b370b652a8"},
+        {"zoo zoo zoo zoo zoo zoo zoo zoo zoo zoo zoo wrong",
+            "ac27495480225222079d7be181583751e86f571027b0497b5b5d11218e0a8a13332572917f0f8e5a589620c6f15b11c61dee327651a14c34e18231052e48c069"}
+    };
+    private static final char[] PASSPHRASE = "TREZOR".toCharArray();
+
+    private final Random rand = new Random();
+
+    public Pbkdf2Sha512Test() {
+
+    }
+
+    public boolean runAllTests() {
+        return testBip39Seeds() && testAgainstJca() && testDeriveAll() && testInvalidParameters();
+    }
+
+    public boolean testBip39Seeds() {
+        System.out.println("bip39Seeds");
+        boolean pass = true;
+        String[] mnemonics = new String[BIP39_VECTORS.length];
+        for (int i = 0; i < BIP39_VECTORS.length; i++) {
+            mnemonics[i] = BIP39_VECTORS[i][0];
+            String result = BIP39.generateSeed(mnemonics[i], PASSPHRASE);
+            if (!result.equals(BIP39_VECTORS[i][1])) {
+                System.out.println("Test failed for mnemonic: " + mnemonics[i]);
+                System.out.println("Expected: " + BIP39_VECTORS[i][1]);
+                System.out.println("Actual:   " + result);
+                pass = false;
+            }
+        }
+        String[] seeds = BIP39.generateSeeds(mnemonics, PASSPHRASE);
+        for (int i = 0; i < BIP39_VECTORS.length; i++) {
+            if (!seeds[i].equals(BIP39_VECTORS[i][1])) {
+                System.out.println("Test failed for batched mnemonic: " + mnemonics[i]);
+                pass = false;
+            }
+        }
+        return pass;
+    }
+
+    public boolean testAgainstJca() {
+        System.out.println("againstJca");
+        boolean pass = true;
+        // Password lengths either side of the 128-byte block, which longer
+        // passwords are pre-hashed to; salt lengths either side of 111 bytes,
+        // past which the first HMAC message needs a second padding block
+        int[] passwordLengths = {0, 1, 64, 127, 128, 129, 200, 300};
+        int[] saltLengths = {1, 8, 111, 112, 113, 127, 128, 200, 256};
+        int[] keyLengths = {20, 64, 100, 128};
+        for (int i = 0; i < passwordLengths.length * saltLengths.length; i++) {
+            char[] password = randomPassword(passwordLengths[i % passwordLengths.length]);
+            byte[] salt = randomBytes(saltLengths[i / passwordLengths.length]);
+            int iterations = 1 + rand.nextInt(50);
+            int dkLen = keyLengths[i % keyLengths.length];
+            if (!check(password, salt, iterations, dkLen)) {
+                pass = false;
+            }
+        }
+        // Non-ASCII characters are encoded as UTF-8 by both
+        if (!check("p\u00e4ssw\u00f6rd \u20ac\u4e2d".toCharArray(), randomBytes(16), 2048, 64)) {
+            pass = false;
+        }
+        return pass;
+    }
+
+    public boolean testDeriveAll() {
+        System.out.println("deriveAll");
+        boolean pass = true;
+        char[][] passwords = new char[17][];
+        for (int i = 0; i < passwords.length; i++) {
+            passwords[i] = randomPassword(rand.nextInt(200));
+        }
+        byte[] salt = randomBytes(120);
+        byte[][] keys = Pbkdf2Sha512.deriveAll(passwords, salt, 100, 64);
+        for (int i = 0; i < passwords.length; i++) {
+            byte[] expected = new Pbkdf2Sha512(passwords[i]).derive(salt, 100, 64);
+            if (!Arrays.equals(keys[i], expected) || !Arrays.equals(keys[i], jca(passwords[i], salt, 100, 64))) {
+                System.out.println("Test failed for password index: " + i);
+                pass = false;
+            }
+        }
+        if (Pbkdf2Sha512.deriveAll(new char[0][], salt, 100, 64).length != 0) {
+            System.out.println("Test failed for no passwords");
+            pass = false;
+        }
+        return pass;
+    }
+
+    public boolean testInvalidParameters() {
+        System.out.println("invalidParameters");
+        boolean pass = true;
+        // iterations, dkLen
+        int[][] invalid = {{0, 64}, {-1, 64}, {Integer.MIN_VALUE, 64}, {1, 0}, {1, -1}, {2048, Integer.MIN_VALUE}};
+        byte[] salt = randomBytes(16);
+        for (int[] params : invalid) {
+            try {
+                new Pbkdf2Sha512(randomPassword(8)).derive(salt, params[0], params[1]);
+                System.out.println("Test failed to reject " + params[0] + " iterations, key length " + params[1]);
+                pass = false;
+            } catch (IllegalArgumentException ex) {
+                // expected
+            }
+            try {
+                Pbkdf2Sha512.deriveAll(new char[3][8], salt, params[0], params[1]);
+                System.out.println("Test failed to reject for all " + params[0] + " iterations, key length "
+                        + params[1]);
+                pass = false;
+            } catch (IllegalArgumentException ex) {
+                // expected
+            }
+        }
+        return pass;
+    }
+
+    private boolean check(char[] password, byte[] salt, int iterations, int dkLen) {
+        byte[] result = new Pbkdf2Sha512(password).derive(salt, iterations, dkLen);
+        byte[] expected = jca(password, salt, iterations, dkLen);
+        if (!Arrays.equals(result, expected)) {
+            System.out.println("Test failed for password length " + password.length + ", salt length "
+                    + salt.length + ", " + iterations + " iterations, key length " + dkLen);
+            System.out.println("Expected: " + ByteUtil.hexify(expected));
+            System.out.println("Actual:   " + ByteUtil.hexify(result));
+            return false;
+        }
+        return true;
+    }
+
+    private static byte[] jca(char[] password, byte[] salt, int iterations, int dkLen) {
+        try {
+            PBEKeySpec spec = new PBEKeySpec(password, salt, iterations, dkLen * 8);
+            return SecretKeyFactory.getInstance("PBKDF2WithHmacSHA512").generateSecret(spec).getEncoded();
+        } catch (NoSuchAlgorithmException | InvalidKeySpecException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    private char[] randomPassword(int length) {
+        char[] password = new char[length];
+        for (int i = 0; i < length; i++) {
+            password[i] = (char) (' ' + rand.nextInt(95));
+        }
+        return password;
+    }
+
+    private byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        rand.nextBytes(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,99 @@
+package bpswallet.tests;
+
+import bpswallet.util.ByteUtil;
+import bpswallet.util.Ripemd160;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+public class Ripemd160Test {
+
+    // Test vectors from the RIPEMD-160 specification
+    private static final String[][] VECTORS = {
+        {"", "9c1185a5c5e9fc54612808977ee8f548b2258d31"},
+        {"a", "0bdc9d2d256b3ee9daae347be6f4dc835a467ffe"},
+        {"abc", "8eb208f7e05d987a9b044a8e98c6b087f15a0bfc"},
+        {"message digest", "5d0689ef49d2fae572b881b123a85ffa21595f36"},
+        {"abcdefghijklmnopqrstuvwxyz", "f71c27109c692c1b56bbdceb5b9d2865b3708dbc"},
+        {"abcdbcdecdefdefgefghfghighijhijkijkljklmklmnlmnomnopnopq", "12a053384a9c0c88e405a06c27dcf49ada62eb2b"},
+        {"ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789", "b0e20b6e3116640286ed3a87a5713079b21f5189"},
+        {"12345678901234567890123456789012345678901234567890123456789012345678901234567890",
+            "9b752e45573d4b39f4dbd3323cab82bf63326bfb"}
+    };
+    private static final String MILLION_A = "52783243c1697bdbe16d37f97f68f08325dc1528";
+
+    public Ripemd160Test() {
+
+    }
+
+    public boolean runAllTests() {
+        return testVectors() && testMillionA() && testReuse();
+    }
+
+    public boolean testVectors() {
+        System.out.println("vectors");
+        boolean pass = true;
+        for (String[] vector : VECTORS) {
+            byte[] msg = vector[0].getBytes(StandardCharsets.US_ASCII);
+            String result = ByteUtil.hexify(Ripemd160.getHash(msg));
+            if (!result.equals(vector[1])) {
+                System.out.println("Test failed for message: \"" + vector[0] + "\"");
+                pass = false;
+            }
+            // Byte at a time, through the single-byte update
+            Ripemd160 hasher = new Ripemd160();
+            for (byte b : msg) {
+                hasher.update(b);
+            }
+            if (!ByteUtil.hexify(hasher.digest()).equals(vector[1])) {
+                System.out.println("Test failed for message, byte by byte: \"" + vector[0] + "\"");
+                pass = false;
+            }
+        }
+        return pass;
+    }
+
+    public boolean testMillionA() {
+        System.out.println("millionA");
+        boolean pass = true;
+        byte[] msg = new byte[1000000];
+        Arrays.fill(msg, (byte) 'a');
+        // Odd chunk sizes straddle the 64-byte block boundary in every way
+        int[] chunkSizes = {1, 3, 7, 63, 65, 127, 129, 1001};
+        for (int chunkSize : chunkSizes) {
+            Ripemd160 hasher = new Ripemd160();
+            for (int offset = 0; offset < msg.length; offset += chunkSize) {
+                hasher.update(msg, offset, Math.min(chunkSize, msg.length - offset));
+            }
+            byte[] digest = new byte[Ripemd160.DIGEST_LENGTH + 2];
+            hasher.digest(digest, 1);
+            if (!ByteUtil.hexify(digest, 1, Ripemd160.DIGEST_LENGTH).equals(MILLION_A)) {
+                System.out.println("Test failed for chunk size: " + chunkSize);
+                pass = false;
+            }
+        }
+        return pass;
+    }
+
+    public boolean testReuse() {
+        System.out.println("reuse");
+        boolean pass = true;
+        Ripemd160 hasher = new Ripemd160();
+        for (int round = 0; round < 2; round++) {
+            for (String[] vector : VECTORS) {
+                byte[] msg = vector[0].getBytes(StandardCharsets.US_ASCII);
+                if (!ByteUtil.hexify(hasher.update(msg, 0, msg.length).digest()).equals(vector[1])) {
+                    System.out.println("Test failed after reset for message: \"" + vector[0] + "\"");
+                    pass = false;
+                }
+            }
+        }
+        // A digest abandoned midway is discarded by reset
+        hasher.update(new byte[100], 0, 100);
+        hasher.reset();
+        if (!ByteUtil.hexify(hasher.update(new byte[0], 0, 0).digest()).equals(VECTORS[0][1])) {
+            System.out.println("Test failed for explicit reset");
+            pass = false;
+        }
+        return pass;
+    }
+}
@@ -0,0 +1,127 @@
+package bpswallet.tests;
+
+import bpswallet.crypto.CurveParams;
+import bpswallet.crypto.FieldElement;
+import bpswallet.crypto.ScalarMultiply;
+import java.math.BigInteger;
+import java.security.spec.ECPoint;
+import java.util.Random;
+
+public class ScalarMultiplyBenchmark {
+
+    private static final int WARMUP = 1000;
+    private static final int ITERATIONS = 2000;
+    private static final int FIELD_ITERATIONS = 1000000;
+
+    private final Random rand = new Random();
+    private final BigInteger[] scalars = new BigInteger[ITERATIONS];
+
+    public ScalarMultiplyBenchmark() {
+        for (int i = 0; i < scalars.length; i++) {
+            scalars[i] = new BigInteger(256, rand).mod(CurveParams.n);
+        }
+    }
+
+    public void runAllBenchmarks() {
+        benchField();
+        benchGenerator();
+        benchVariableBase();
+        benchVerify();
+    }
+
+    public void benchField() {
+        System.out.println("field multiplication");
+        BigInteger a = scalars[0];
+        BigInteger b = scalars[1];
+        FieldElement fa = FieldElement.fromBigInteger(a);
+        FieldElement fb = FieldElement.fromBigInteger(b);
+        for (int i = 0; i < FIELD_ITERATIONS; i++) {
+            a = a.multiply(b).mod(CurveParams.p);
+            fa.mul(fa, fb);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < FIELD_ITERATIONS; i++) {
+            a = a.multiply(b).mod(CurveParams.p);
+        }
+        reportOps("BigInteger", System.nanoTime() - start);
+        start = System.nanoTime();
+        for (int i = 0; i < FIELD_ITERATIONS; i++) {
+            fa.mul(fa, fb);
+        }
+        reportOps("FieldElement", System.nanoTime() - start);
+    }
+
+    public void benchGenerator() {
+        System.out.println("generator multiplication");
+        // Build the generator table outside of the timed section
+        ScalarMultiply.scalmultBase(BigInteger.ONE);
+        for (int i = 0; i < WARMUP; i++) {
+            ScalarMultiply.scalmult(CurveParams.G, scalars[i]);
+            ScalarMultiply.scalmultBase(scalars[i]);
+        }
+        long start = System.nanoTime();
+        for (BigInteger k : scalars) {
+            ScalarMultiply.scalmult(CurveParams.G, k);
+        }
+        report("double-and-add", System.nanoTime() - start);
+        start = System.nanoTime();
+        for (BigInteger k : scalars) {
+            ScalarMultiply.scalmultBase(k);
+        }
+        report("fixed-base table", System.nanoTime() - start);
+    }
+
+    public void benchVariableBase() {
+        System.out.println("variable-base multiplication");
+        ECPoint P = ScalarMultiply.scalmultBase(scalars[0]);
+        for (int i = 0; i < WARMUP; i++) {
+            ScalarMultiply.scalmult(P, scalars[i]);
+            ScalarMultiply.scalmultWnaf(P, scalars[i]);
+            ScalarMultiply.scalmultGlv(P, scalars[i]);
+        }
+        long start = System.nanoTime();
+        for (BigInteger k : scalars) {
+            ScalarMultiply.scalmult(P, k);
+        }
+        report("double-and-add", System.nanoTime() - start);
+        start = System.nanoTime();
+        for (BigInteger k : scalars) {
+            ScalarMultiply.scalmultWnaf(P, k);
+        }
+        report("wNAF (w=" + ScalarMultiply.DEFAULT_WNAF_WIDTH + ")", System.nanoTime() - start);
+        start = System.nanoTime();
+        for (BigInteger k : scalars) {
+            ScalarMultiply.scalmultGlv(P, k);
+        }
+        report("GLV + wNAF", System.nanoTime() - start);
+    }
+
+    public void benchVerify() {
+        System.out.println("verification (u1 * G + u2 * Q)");
+        ECPoint Q = ScalarMultiply.scalmultBase(scalars[0]);
+        for (int i = 0; i < WARMUP; i++) {
+            ScalarMultiply.addPoint(ScalarMultiply.scalmultBase(scalars[i]), ScalarMultiply.scalmultWnaf(Q, scalars[i + 1]));
+            ScalarMultiply.multiplyTwo(scalars[i], CurveParams.G, scalars[i + 1], Q);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            BigInteger u2 = scalars[(i + 1) % ITERATIONS];
+            ScalarMultiply.addPoint(ScalarMultiply.scalmultBase(scalars[i]), ScalarMultiply.scalmultWnaf(Q, u2));
+        }
+        report("separate", System.nanoTime() - start);
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            ScalarMultiply.multiplyTwo(scalars[i], CurveParams.G, scalars[(i + 1) % ITERATIONS], Q);
+        }
+        report("interleaved", System.nanoTime() - start);
+    }
+
+    private void report(String name, long nanos) {
+        double perSecond = ITERATIONS / (nanos / 1e9);
+        System.out.println(String.format("\t%-20s %10.1f keys/s", name, perSecond));
+    }
+
+    private void reportOps(String name, long nanos) {
+        System.out.println(String.format("\t%-20s %10.1f ns/op", name, (double) nanos / FIELD_ITERATIONS));
+    }
+}
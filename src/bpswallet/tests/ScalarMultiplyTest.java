@@ -0,0 +1,136 @@
+package bpswallet.tests;
+
+import bpswallet.crypto.CurveParams;
+import bpswallet.crypto.ScalarMultiply;
+import java.math.BigInteger;
+import java.security.spec.ECPoint;
+import java.util.Random;
+
+public class ScalarMultiplyTest {
+
+    private final Random rand = new Random();
+
+    public ScalarMultiplyTest() {
+
+    }
+
+    public boolean runAllTests() {
+        return testSmallMultiples() && testDistributive() && testOrder() && testBaseTable() && testWnaf() && testGlv() && testMultiplyTwo();
+    }
+
+    public boolean testSmallMultiples() {
+        System.out.println("smallMultiples");
+        boolean pass = true;
+        ECPoint expected = CurveParams.G;
+        for (int k = 2; k <= 64; k++) {
+            expected = ScalarMultiply.addPoint(expected, CurveParams.G);
+            ECPoint result = ScalarMultiply.scalmult(CurveParams.G, BigInteger.valueOf(k));
+            if (!expected.equals(result)) {
+                System.out.println("Test failed for scalar: " + k);
+                pass = false;
+            }
+        }
+        return pass;
+    }
+
+    public boolean testDistributive() {
+        System.out.println("distributive");
+        boolean pass = true;
+        for (int i = 0; i < 16; i++) {
+            BigInteger k1 = randomScalar();
+            BigInteger k2 = randomScalar();
+            ECPoint P = ScalarMultiply.scalmult(CurveParams.G, randomScalar());
+            ECPoint expected = ScalarMultiply.scalmult(P, k1.add(k2));
+            ECPoint result = ScalarMultiply.addPoint(ScalarMultiply.scalmult(P, k1), ScalarMultiply.scalmult(P, k2));
+            if (!expected.equals(result)) {
+                System.out.println("Test failed for scalars: " + k1.toString(16) + ", " + k2.toString(16));
+                pass = false;
+            }
+        }
+        return pass;
+    }
+
+    public boolean testOrder() {
+        System.out.println("order");
+        ECPoint result = ScalarMultiply.scalmult(CurveParams.G, CurveParams.n.subtract(BigInteger.ONE));
+        ECPoint expected = new ECPoint(CurveParams.G.getAffineX(), CurveParams.p.subtract(CurveParams.G.getAffineY()));
+        if (!expected.equals(result)) {
+            System.out.println("Test failed for scalar: n - 1");
+            return false;
+        }
+        return true;
+    }
+
+    public boolean testBaseTable() {
+        System.out.println("baseTable");
+        boolean pass = true;
+        for (int i = 0; i < 32; i++) {
+            BigInteger k = randomScalar();
+            ECPoint expected = ScalarMultiply.scalmult(CurveParams.G, k);
+            ECPoint result = ScalarMultiply.scalmultBase(k);
+            if (!expected.equals(result)) {
+                System.out.println("Test failed for scalar: " + k.toString(16));
+                pass = false;
+            }
+        }
+        return pass;
+    }
+
+    public boolean testWnaf() {
+        System.out.println("wnaf");
+        boolean pass = true;
+        for (int width = 2; width <= 8; width++) {
+            for (int i = 0; i < 8; i++) {
+                BigInteger k = randomScalar();
+                ECPoint P = ScalarMultiply.scalmultBase(randomScalar());
+                ECPoint expected = ScalarMultiply.scalmult(P, k);
+                ECPoint result = ScalarMultiply.scalmultWnaf(P, k, width);
+                if (!expected.equals(result)) {
+                    System.out.println("Test failed for width " + width + ", scalar: " + k.toString(16));
+                    pass = false;
+                }
+            }
+        }
+        return pass;
+    }
+
+    public boolean testGlv() {
+        System.out.println("glv");
+        boolean pass = true;
+        BigInteger n = CurveParams.n;
+        BigInteger[] edge = {BigInteger.ZERO, BigInteger.ONE, n.subtract(BigInteger.ONE), n.shiftRight(1), BigInteger.ONE.shiftLeft(128)};
+        for (int i = 0; i < 64; i++) {
+            BigInteger k = (i < edge.length) ? edge[i] : randomScalar();
+            ECPoint P = (i % 8 == 0) ? CurveParams.G : ScalarMultiply.scalmultBase(randomScalar());
+            ECPoint expected = ScalarMultiply.scalmult(P, k);
+            ECPoint result = ScalarMultiply.scalmultGlv(P, k);
+            if (!expected.equals(result)) {
+                System.out.println("Test failed for scalar: " + k.toString(16));
+                pass = false;
+            }
+        }
+        return pass;
+    }
+
+    public boolean testMultiplyTwo() {
+        System.out.println("multiplyTwo");
+        boolean pass = true;
+        for (int i = 0; i < 16; i++) {
+            BigInteger k1 = randomScalar();
+            BigInteger k2 = randomScalar();
+            ECPoint P1 = (i % 2 == 0) ? CurveParams.G : ScalarMultiply.scalmultBase(randomScalar());
+            ECPoint P2 = ScalarMultiply.scalmultBase(randomScalar());
+            ECPoint expected = ScalarMultiply.addPoint(ScalarMultiply.scalmult(P1, k1), ScalarMultiply.scalmult(P2, k2));
+            ECPoint result = ScalarMultiply.multiplyTwo(k1, P1, k2, P2);
+            if (!expected.equals(result)) {
+                System.out.println("Test failed for scalars: " + k1.toString(16) + ", " + k2.toString(16));
+                pass = false;
+            }
+        }
+        return pass;
+    }
+
+    private BigInteger randomScalar() {
+        return new BigInteger(256, rand).mod(CurveParams.n);
+    }
+}
@@ -0,0 +1,166 @@
+package bpswallet.tests;
+
+import bpswallet.txn.Transaction;
+import bpswallet.txn.TransactionCodec;
+import bpswallet.txn.TransactionOutput;
+import bpswallet.util.ByteUtil;
+import bpswallet.util.ByteWriter;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+public class TransactionCodecTest {
+
+    // The genesis block coinbase
+    private static final String LEGACY_HEX = "01000000010000000000000000000000000000000000000000000000000000000000000000"
+            + "ffffffff4d04ffff001d0104455468652054696d65732030332f4a616e2f32303039204368616e63656c6c6f72206f6e206272"
+            + "696e6b206f66207365636f6e64206261696c6f757420666f722062616e6b73ffffffff0100f2052a010000004341046"
+            + "78afdb0fe5548271967f1a67130b7105cd6a828e03909a67962e0ea1f61deb649f6bc3f4cef38c4f35504e51ec112de5c"
+            + "384df7ba0b8d578a4c702b6bf11d5fac00000000";
+    private static final String LEGACY_TXID = "4a5e1e4baab89f3a32518a88c31bc87f618f76673e2cc77ab2127b7afdeda33b";
+    // The signed native P2WPKH transaction from BIP143
+    private static final String SEGWIT_HEX = "01000000000102fff7f7881a8099afa6940d42d1e7f6362bec38171ea3edf433541db4e4ad"
+            + "969f00000000494830450221008b9d1dc26ba6a9cb62127b02742fa9d754cd3bebf337f7a55d114c8e5cdd30be022040529b"
+            + "194ba3f9281a99f2b1c0a19c0489bc22ede944ccf4ecbab4cc618ef3ed01eeffffffef51e1b804cc89d182d279655c3aa89e"
+            + "815b1b309fe287d9b2b55d57b90ec68a0100000000ffffffff02202cb206000000001976a9148280b37df378db99f66f85c9"
+            + "5a783a76ac7a6d5988ac9093510d000000001976a9143bde42dbee7e4dbe6a21b2d50ce2f0167faa815988ac000247304402"
+            + "203609e17b84f6a7d30c80bfa610b5b4542f32a8a0d5447a12fb1366d7f01cc44a0220573a954c4518331561406f90300e8f"
+            + "3358f51928d43c212a8caed02de67eebee0121025476c2e83188368da1ff3e292e7acafcdb3566bb0ad253f62fc70f07aeee"
+            + "635711000000";
+    private static final String SEGWIT_TXID = "e8151a2af31c368a35053ddd4bdb285a8595c769a3ad83e0fa02314a602d4609";
+    private static final String SEGWIT_WTXID = "c36c38370907df2324d9ce9d149d191192f338b37665a82e78e76a12c909b762";
+
+    public TransactionCodecTest() {
+
+    }
+
+    public boolean runAllTests() {
+        return testLegacy() && testSegwit() && testByteOrder() && testTruncated() && testLongScript();
+    }
+
+    public boolean testLegacy() {
+        System.out.println("legacy");
+        Transaction txn = Transaction.fromHex(LEGACY_HEX);
+        boolean pass = check(txn, LEGACY_HEX, LEGACY_TXID, LEGACY_TXID);
+        if (txn.isSegwit() || txn.getNumInputs() != 1 || txn.getNumOutputs() != 1
+                || txn.getOutputAt(0).getValue() != 5000000000L) {
+            System.out.println("Test failed for legacy fields");
+            pass = false;
+        }
+        return pass;
+    }
+
+    public boolean testSegwit() {
+        System.out.println("segwit");
+        Transaction txn = Transaction.fromHex(SEGWIT_HEX);
+        boolean pass = check(txn, SEGWIT_HEX, SEGWIT_TXID, SEGWIT_WTXID);
+        if (!txn.isSegwit() || txn.getNumInputs() != 2 || txn.getNumOutputs() != 2
+                || txn.getLocktime() != 0x11 || txn.getWitness(0).getNumPushes() != 0
+                || txn.getWitness(1).getNumPushes() != 2 || txn.getOutputAt(1).getValue() != 223450000L) {
+            System.out.println("Test failed for segwit fields");
+            pass = false;
+        }
+        return pass;
+    }
+
+    public boolean testByteOrder() {
+        System.out.println("byteOrder");
+        boolean pass = true;
+        byte[] legacy = ByteUtil.hex2bytes(LEGACY_HEX);
+        byte[] segwit = ByteUtil.hex2bytes(SEGWIT_HEX);
+        // Back to back after a prefix, read through a big-endian buffer
+        ByteBuffer in = ByteBuffer.allocate(3 + legacy.length + segwit.length + 2).order(ByteOrder.BIG_ENDIAN);
+        in.position(3);
+        in.put(legacy).put(segwit);
+        in.position(3);
+        Transaction first = TransactionCodec.readTransaction(in);
+        if (in.position() != 3 + legacy.length || !first.getHex().equals(LEGACY_HEX)) {
+            System.out.println("Test failed for first transaction in buffer");
+            pass = false;
+        }
+        Transaction second = TransactionCodec.readTransaction(in);
+        if (in.position() != 3 + legacy.length + segwit.length || !second.getHex().equals(SEGWIT_HEX)) {
+            System.out.println("Test failed for second transaction in buffer");
+            pass = false;
+        }
+        ByteWriter out = new ByteWriter();
+        TransactionCodec.writeTransaction(out, second, false);
+        if (!ByteUtil.hexify(out.toByteArray()).equals(second.getNonSegwitHex())) {
+            System.out.println("Test failed to write without witness");
+            pass = false;
+        }
+        return pass;
+    }
+
+    public boolean testTruncated() {
+        System.out.println("truncated");
+        boolean pass = true;
+        for (String hex : new String[]{LEGACY_HEX, SEGWIT_HEX}) {
+            byte[] bytes = ByteUtil.hex2bytes(hex);
+            for (int length = 0; length < bytes.length; length++) {
+                try {
+                    TransactionCodec.readTransaction(ByteBuffer.wrap(bytes, 0, length));
+                    System.out.println("Test failed to reject " + length + " of " + bytes.length + " bytes");
+                    pass = false;
+                } catch (BufferUnderflowException ex) {
+                    // expected
+                }
+            }
+        }
+        return pass;
+    }
+
+    public boolean testLongScript() {
+        System.out.println("longScript");
+        boolean pass = true;
+        // A 0xFD length prefix above 0x7FFF, which reads negative as a short
+        int[] lengths = {0xFC, 0xFD, 0x7FFF, 0x8000, 0xFFFF};
+        for (int length : lengths) {
+            byte[] script = new byte[length];
+            Arrays.fill(script, (byte) 0x51);
+            StringBuilder hex = new StringBuilder("01000000");
+            hex.append("01").append(String.format("%064x", 1)).append("00000000").append("00").append("ffffffff");
+            hex.append("01").append("e803000000000000");
+            hex.append((length < 0xFD) ? String.format("%02x", length)
+                    : String.format("fd%02x%02x", length & 0xFF, length >>> 8));
+            hex.append(ByteUtil.hexify(script)).append("00000000");
+            try {
+                Transaction txn = Transaction.fromHex(hex.toString());
+                TransactionOutput output = txn.getOutputAt(0);
+                if (output.getScriptPubKey().length() != length * 2 || output.getValue() != 1000
+                        || !txn.getHex().equals(hex.toString())) {
+                    System.out.println("Test failed for script length: " + length);
+                    pass = false;
+                }
+            } catch (RuntimeException ex) {
+                System.out.println("Test failed to parse script length " + length + ": " + ex);
+                pass = false;
+            }
+        }
+        return pass;
+    }
+
+    private static boolean check(Transaction txn, String hex, String txid, String wtxid) {
+        boolean pass = true;
+        if (!txn.getHex().equals(hex)) {
+            System.out.println("Test failed to round-trip: " + hex);
+            pass = false;
+        }
+        if (!Arrays.equals(Transaction.fromBytes(txn.getBytes()).getBytes(), ByteUtil.hex2bytes(hex))) {
+            System.out.println("Test failed to round-trip bytes: " + hex);
+            pass = false;
+        }
+        if (!txn.getHash(true).equals(txid)) {
+            System.out.println("Test failed for txid: " + txid);
+            System.out.println("Actual: " + txn.getHash(true));
+            pass = false;
+        }
+        if (!txn.getSegwitHash(true).equals(wtxid)) {
+            System.out.println("Test failed for wtxid: " + wtxid);
+            System.out.println("Actual: " + txn.getSegwitHash(true));
+            pass = false;
+        }
+        return pass;
+    }
+}
@@ -0,0 +1,133 @@
+package bpswallet.tests;
+
+import bpswallet.txn.Outpoint;
+import bpswallet.txn.Transaction;
+import bpswallet.txn.TransactionCodec;
+import bpswallet.txn.TransactionInput;
+import bpswallet.txn.TransactionOutput;
+import bpswallet.util.ByteUtil;
+import bpswallet.util.ByteWriter;
+import bpswallet.util.HashUtil;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Collections;
+
+public class TransactionTest {
+
+    // The signed native P2WPKH transaction from BIP143
+    private static final String SEGWIT_HEX = "01000000000102fff7f7881a8099afa6940d42d1e7f6362bec38171ea3edf433541db4e4ad"
+            + "969f00000000494830450221008b9d1dc26ba6a9cb62127b02742fa9d754cd3bebf337f7a55d114c8e5cdd30be022040529b"
+            + "194ba3f9281a99f2b1c0a19c0489bc22ede944ccf4ecbab4cc618ef3ed01eeffffffef51e1b804cc89d182d279655c3aa89e"
+            + "815b1b309fe287d9b2b55d57b90ec68a0100000000ffffffff02202cb206000000001976a9148280b37df378db99f66f85c9"
+            + "5a783a76ac7a6d5988ac9093510d000000001976a9143bde42dbee7e4dbe6a21b2d50ce2f0167faa815988ac000247304402"
+            + "203609e17b84f6a7d30c80bfa610b5b4542f32a8a0d5447a12fb1366d7f01cc44a0220573a954c4518331561406f90300e8f"
+            + "3358f51928d43c212a8caed02de67eebee0121025476c2e83188368da1ff3e292e7acafcdb3566bb0ad253f62fc70f07aeee"
+            + "635711000000";
+
+    // The serialization and txid seen by the previous memoization check
+    private String lastHex;
+    private String lastTxid;
+
+    public TransactionTest() {
+
+    }
+
+    public boolean runAllTests() {
+        return testMemoization() && testSighashCache();
+    }
+
+    public boolean testMemoization() {
+        System.out.println("memoization");
+        boolean pass = true;
+        Transaction txn = Transaction.fromHex(SEGWIT_HEX);
+        lastHex = txn.getHex();
+        lastTxid = txn.getHash(true);
+        // Changes made through the objects and lists the transaction hands
+        // out, which bypass its own mutators
+        txn.getInputs().get(1).setScriptSig("51");
+        pass &= checkChanged(txn, true, "setScriptSig");
+        txn.getInputs().get(0).clearScriptSig();
+        pass &= checkChanged(txn, true, "clearScriptSig");
+        txn.getOutputs().get(0).setValue(12345);
+        pass &= checkChanged(txn, true, "setValue");
+        Collections.swap(txn.getOutputs(), 0, 1);
+        pass &= checkChanged(txn, true, "reordered outputs");
+        txn.getOutputs().remove(1);
+        pass &= checkChanged(txn, true, "removed output");
+        txn.getWitness(0).addPush("abcd");
+        pass &= checkChanged(txn, false, "addPush");
+        return pass;
+    }
+
+    public boolean testSighashCache() {
+        System.out.println("sighashCache");
+        boolean pass = true;
+        Transaction txn = new Transaction();
+        for (int i = 0; i < 3; i++) {
+            txn.addInput(new TransactionInput(new Outpoint(String.format("%064x", i + 1), i)));
+        }
+        txn.addOutput(new TransactionOutput(50000, "0014751e76e8199196d454941c45d1b3a323f1433bd6"));
+        txn.addOutput(new TransactionOutput(1000, "76a91462e907b15cbf27d5425399ebf6f0fb50ebb88f1888ac"));
+        Object cache = sighashCache(txn);
+        if (sighashCache(txn) != cache) {
+            System.out.println("Test failed for an unchanged transaction");
+            pass = false;
+        }
+        // scriptSigs are not covered by the digests, and signing rewrites them
+        txn.getInputs().get(0).setScriptSig("160014751e76e8199196d454941c45d1b3a323f1433bd6");
+        txn.setInputScriptSigs(txn.clearInputScriptSigs());
+        if (sighashCache(txn) != cache) {
+            System.out.println("Test failed to keep the cache after a scriptSig change");
+            pass = false;
+        }
+        txn.getOutputAt(1).setValue(999);
+        Object rebuilt = sighashCache(txn);
+        if (rebuilt == cache) {
+            System.out.println("Test failed to rebuild the cache after an output value change");
+            pass = false;
+        }
+        txn.getOutputs().add(0, txn.getOutputs().remove(1));
+        if (sighashCache(txn) == rebuilt) {
+            System.out.println("Test failed to rebuild the cache after reordering outputs");
+            pass = false;
+        }
+        return pass;
+    }
+
+    /**
+     * Checks the memoized serialization and hashes changed after a mutation
+     * and agree with a fresh, unmemoized serialization.
+     */
+    private boolean checkChanged(Transaction txn, boolean txidChanges, String mutation) {
+        boolean pass = true;
+        ByteWriter full = new ByteWriter();
+        TransactionCodec.writeTransaction(full, txn, true);
+        ByteWriter stripped = new ByteWriter();
+        TransactionCodec.writeTransaction(stripped, txn, false);
+        String hex = txn.getHex();
+        String txid = txn.getHash(true);
+        if (hex.equals(lastHex) || txid.equals(lastTxid) != !txidChanges) {
+            System.out.println("Test failed to see mutation: " + mutation);
+            pass = false;
+        }
+        if (!hex.equals(ByteUtil.hexify(full.toByteArray()))
+                || !txn.getHash(false).equals(ByteUtil.hexify(HashUtil.doubleSha256(stripped.toByteArray())))
+                || !txn.getSegwitHash(false).equals(ByteUtil.hexify(HashUtil.doubleSha256(full.toByteArray())))) {
+            System.out.println("Test failed for serialization after mutation: " + mutation);
+            pass = false;
+        }
+        lastHex = hex;
+        lastTxid = txid;
+        return pass;
+    }
+
+    private static Object sighashCache(Transaction txn) {
+        try {
+            Method getter = Transaction.class.getDeclaredMethod("getSighashCache");
+            getter.setAccessible(true);
+            return getter.invoke(txn);
+        } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package bpswallet.tests;
+
+import bpswallet.txn.Transaction;
+import bpswallet.txn.TransactionCodec;
+import bpswallet.txn.TransactionInput;
+import bpswallet.txn.TransactionOutput;
+import bpswallet.txn.TransactionView;
+import bpswallet.util.ByteUtil;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+public class TransactionViewTest {
+
+    private static final String[] VECTORS = {
+        // The genesis block coinbase
+        "01000000010000000000000000000000000000000000000000000000000000000000000000ffffffff4d04ffff001d010445"
+        + "5468652054696d65732030332f4a616e2f32303039204368616e63656c6c6f72206f6e206272696e6b206f66207365636f"
+        + "6e64206261696c6f757420666f722062616e6b73ffffffff0100f2052a01000000434104678afdb0fe5548271967f1a671"
+        + "30b7105cd6a828e03909a67962e0ea1f61deb649f6bc3f4cef38c4f35504e51ec112de5c384df7ba0b8d578a4c702b6bf1"
+        + "1d5fac00000000",
+        // The signed native P2WPKH transaction from BIP143
+        "01000000000102fff7f7881a8099afa6940d42d1e7f6362bec38171ea3edf433541db4e4ad969f0000000049483045022100"
+        + "8b9d1dc26ba6a9cb62127b02742fa9d754cd3bebf337f7a55d114c8e5cdd30be022040529b194ba3f9281a99f2b1c0a19c"
+        + "0489bc22ede944ccf4ecbab4cc618ef3ed01eeffffffef51e1b804cc89d182d279655c3aa89e815b1b309fe287d9b2b55d"
+        + "57b90ec68a0100000000ffffffff02202cb206000000001976a9148280b37df378db99f66f85c95a783a76ac7a6d5988ac"
+        + "9093510d000000001976a9143bde42dbee7e4dbe6a21b2d50ce2f0167faa815988ac000247304402203609e17b84f6a7d3"
+        + "0c80bfa610b5b4542f32a8a0d5447a12fb1366d7f01cc44a0220573a954c4518331561406f90300e8f3358f51928d43c21"
+        + "2a8caed02de67eebee0121025476c2e83188368da1ff3e292e7acafcdb3566bb0ad253f62fc70f07aeee635711000000"
+    };
+
+    public TransactionViewTest() {
+
+    }
+
+    public boolean runAllTests() {
+        return testAgainstCodec() && testLongScript() && testTruncated();
+    }
+
+    public boolean testAgainstCodec() {
+        System.out.println("againstCodec");
+        boolean pass = true;
+        for (String hex : VECTORS) {
+            if (!compare(ByteUtil.hex2bytes(hex))) {
+                System.out.println("Test failed for transaction: " + hex);
+                pass = false;
+            }
+        }
+        return pass;
+    }
+
+    public boolean testLongScript() {
+        System.out.println("longScript");
+        // A scriptPubKey with a 3-byte length prefix above 0x7FFF
+        byte[] script = new byte[0x8001];
+        Arrays.fill(script, (byte) 0x6a);
+        String hex = "0200000001" + String.format("%064x", 7) + "05000000" + "00" + "feffffff"
+                + "02" + "0100000000000000" + "fd0180" + ByteUtil.hexify(script)
+                + "0200000000000000" + "00" + "2a000000";
+        if (!compare(ByteUtil.hex2bytes(hex))) {
+            System.out.println("Test failed for long scriptPubKey");
+            return false;
+        }
+        return true;
+    }
+
+    public boolean testTruncated() {
+        System.out.println("truncated");
+        boolean pass = true;
+        for (String hex : VECTORS) {
+            byte[] bytes = ByteUtil.hex2bytes(hex);
+            for (int length = 0; length < bytes.length; length++) {
+                try {
+                    new TransactionView(ByteBuffer.wrap(bytes, 0, length)).getLength();
+                    System.out.println("Test failed to reject " + length + " of " + bytes.length + " bytes");
+                    pass = false;
+                } catch (BufferUnderflowException ex) {
+                    // expected
+                }
+            }
+        }
+        return pass;
+    }
+
+    /**
+     * Reads the transaction through a view and through the codec, from a
+     * buffer with bytes before and after it, and compares every accessor.
+     */
+    private static boolean compare(byte[] bytes) {
+        boolean pass = true;
+        byte[] padded = new byte[5 + bytes.length + 7];
+        Arrays.fill(padded, (byte) 0xAB);
+        System.arraycopy(bytes, 0, padded, 5, bytes.length);
+        ByteBuffer buffer = ByteBuffer.wrap(padded);
+        buffer.position(5);
+        TransactionView view = new TransactionView(buffer);
+        Transaction txn = TransactionCodec.readTransaction(ByteBuffer.wrap(bytes));
+        if (buffer.position() != 5) {
+            System.out.println("Test failed: view moved the buffer's position");
+            pass = false;
+        }
+        if (view.getLength() != bytes.length || view.getVersion() != txn.getVersion()
+                || view.getLocktime() != txn.getLocktime()) {
+            System.out.println("Test failed for length, version or locktime");
+            pass = false;
+        }
+        if (view.getNumInputs() != txn.getNumInputs() || view.getNumOutputs() != txn.getNumOutputs()) {
+            System.out.println("Test failed for input or output count");
+            return false;
+        }
+        for (int i = 0; i < txn.getNumInputs(); i++) {
+            TransactionInput input = txn.getInputs().get(i);
+            byte[] hash = new byte[32];
+            view.getOutpointHash(i).get(hash);
+            if (!view.getOutpoint(i).equals(input.getOutpoint())
+                    || !Arrays.equals(hash, input.getOutpoint().getHashBytes())
+                    || view.getOutpointIndex(i) != input.getOutpoint().getIndex()) {
+                System.out.println("Test failed for outpoint of input " + i);
+                pass = false;
+            }
+        }
+        for (int i = 0; i < txn.getNumOutputs(); i++) {
+            TransactionOutput output = txn.getOutputAt(i);
+            byte[] script = ByteUtil.hex2bytes(output.getScriptPubKey());
+            ByteBuffer viewScript = view.getScriptPubKey(i);
+            byte[] viewBytes = new byte[viewScript.remaining()];
+            viewScript.get(viewBytes);
+            if (view.getOutputValue(i) != output.getValue() || !Arrays.equals(viewBytes, script)
+                    || !view.getOutput(i).equals(output)) {
+                System.out.println("Test failed for output " + i);
+                pass = false;
+            }
+            if (!view.scriptPubKeyEquals(i, script)) {
+                System.out.println("Test failed to match scriptPubKey of output " + i);
+                pass = false;
+            }
+            byte[] changed = script.clone();
+            if (changed.length > 0) {
+                changed[changed.length - 1] ^= 1;
+            }
+            byte[] shorter = Arrays.copyOf(script, Math.max(0, script.length - 1));
+            byte[] longer = Arrays.copyOf(script, script.length + 1);
+            if ((changed.length > 0 && view.scriptPubKeyEquals(i, changed))
+                    || (script.length > 0 && view.scriptPubKeyEquals(i, shorter))
+                    || view.scriptPubKeyEquals(i, longer)) {
+                System.out.println("Test failed to reject wrong scriptPubKey for output " + i);
+                pass = false;
+            }
+        }
+        if (!view.toTransaction().getHex().equals(txn.getHex())) {
+            System.out.println("Test failed to convert view to transaction");
+            pass = false;
+        }
+        return pass;
+    }
+}
@@ -0,0 +1,94 @@
+package bpswallet.tests;
+
+import bpswallet.ser.VarInt;
+import bpswallet.util.ByteUtil;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+public class VarIntTest {
+
+    // Values either side of each size boundary and of the sign bit of the
+    // 2- and 4-byte fields: value, encoding in hex
+    private static final Object[][] VECTORS = {
+        {0L, "00"},
+        {0xFCL, "fc"},
+        {0xFDL, "fdfd00"},
+        {0x7FFFL, "fdff7f"},
+        {0x8000L, "fd0080"},
+        {0xFFFFL, "fdffff"},
+        {0x10000L, "fe00000100"},
+        {0x7FFFFFFFL, "feffffff7f"},
+        {0x80000000L, "fe00000080"},
+        {0xFFFFFFFFL, "feffffffff"},
+        {0x100000000L, "ff0000000001000000"},
+        {Long.MAX_VALUE, "ffffffffffffffff7f"},
+        {-1L, "ffffffffffffffffff"}
+    };
+
+    public VarIntTest() {
+
+    }
+
+    public boolean runAllTests() {
+        return testBuffers(ByteOrder.BIG_ENDIAN) && testBuffers(ByteOrder.LITTLE_ENDIAN) && testHex();
+    }
+
+    public boolean testBuffers(ByteOrder order) {
+        System.out.println("buffers " + order);
+        boolean pass = true;
+        for (Object[] vector : VECTORS) {
+            long value = (Long) vector[0];
+            byte[] encoded = ByteUtil.hex2bytes((String) vector[1]);
+            if (VarInt.sizeOf(value) != encoded.length) {
+                System.out.println("Test failed for size of: " + vector[1]);
+                pass = false;
+            }
+            // At an offset, with a trailing byte that must be left alone
+            ByteBuffer buffer = ByteBuffer.allocate(encoded.length + 3).order(order);
+            buffer.put(0, (byte) 0xAA).put(encoded.length + 2, (byte) 0xBB);
+            buffer.position(2);
+            VarInt.write(buffer, value);
+            byte[] written = new byte[encoded.length];
+            ByteBuffer check = buffer.duplicate();
+            check.position(2);
+            check.get(written);
+            if (buffer.position() != 2 + encoded.length || !ByteUtil.hexify(written).equals(vector[1])
+                    || buffer.get(encoded.length + 2) != (byte) 0xBB) {
+                System.out.println("Test failed to write: " + vector[1]);
+                pass = false;
+            }
+            buffer.position(2);
+            long read = VarInt.read(buffer);
+            if (read != value || buffer.position() != 2 + encoded.length) {
+                System.out.println("Test failed to read: " + vector[1]);
+                System.out.println("Expected: " + value);
+                System.out.println("Actual:   " + read);
+                pass = false;
+            }
+        }
+        return pass;
+    }
+
+    public boolean testHex() {
+        System.out.println("hex");
+        boolean pass = true;
+        for (Object[] vector : VECTORS) {
+            long value = (Long) vector[0];
+            String hex = (String) vector[1];
+            // Decoding ignores what follows the VarInt
+            VarInt decoded = new VarInt(hex + "abcdef");
+            if (decoded.toLong() != value || !decoded.toHex().equals(hex) || decoded.byteLength() != hex.length() / 2) {
+                System.out.println("Test failed to decode: " + hex);
+                pass = false;
+            }
+            if (value >= 0) {
+                VarInt encoded = new VarInt(value);
+                if (!encoded.toHex().equals(hex) || encoded.hexLength() != hex.length()) {
+                    System.out.println("Test failed to encode: " + value);
+                    pass = false;
+                }
+            }
+        }
+        return pass;
+    }
+}
@@ -1,36 +1,118 @@
 package bpswallet.txn;
 
 import bpswallet.util.ByteUtil;
-import java.util.Objects;
+import bpswallet.util.ByteWriter;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 
+/**
+ * A reference to one output of a transaction. The 32-byte transaction hash
+ * is packed into four longs, in serialized order, so comparing outpoints
+ * allocates nothing, and the hash code is computed once.
+ */
 public class Outpoint {
 
-    private final String hash;
+    public static final int HASH_LENGTH = 32;
+    public static final int LENGTH = HASH_LENGTH + 4;
+
+    private final long hash0, hash1, hash2, hash3;
     private final int index;
+    private final int hashCode;
+    private String hash;
 
     public Outpoint(String hash, int index) {
-        this.hash = hash;
+        if (hash.length() != HASH_LENGTH * 2) {
+            throw new IllegalArgumentException("Outpoint hash must be 32 bytes");
+        }
+        this.hash0 = parseLong(hash, 0);
+        this.hash1 = parseLong(hash, 16);
+        this.hash2 = parseLong(hash, 32);
+        this.hash3 = parseLong(hash, 48);
         this.index = index;
+        hashCode = this.computeHashCode();
     }
 
-    public String getHash() {
+    public Outpoint(byte[] hash, int index) {
+        this(ByteBuffer.wrap(checkLength(hash)), index);
+    }
+
+    /**
+     * Reads the hash from the next 32 bytes of the buffer, in serialized
+     * order whatever the buffer's byte order, and advances past them.
+     */
+    Outpoint(ByteBuffer hash, int index) {
+        boolean bigEndian = (hash.order() == ByteOrder.BIG_ENDIAN);
+        long h0 = hash.getLong(), h1 = hash.getLong(), h2 = hash.getLong(), h3 = hash.getLong();
+        this.hash0 = bigEndian ? h0 : Long.reverseBytes(h0);
+        this.hash1 = bigEndian ? h1 : Long.reverseBytes(h1);
+        this.hash2 = bigEndian ? h2 : Long.reverseBytes(h2);
+        this.hash3 = bigEndian ? h3 : Long.reverseBytes(h3);
+        this.index = index;
+        hashCode = this.computeHashCode();
+    }
+
+    private static byte[] checkLength(byte[] hash) {
+        if (hash.length != HASH_LENGTH) {
+            throw new IllegalArgumentException("Outpoint hash must be 32 bytes");
+        }
         return hash;
     }
 
+    private static long parseLong(String hex, int offset) {
+        long value = 0;
+        for (int i = offset; i < offset + 16; i++) {
+            int digit = Character.digit(hex.charAt(i), 16);
+            if (digit < 0) {
+                throw new IllegalArgumentException("Invalid hex character in outpoint hash");
+            }
+            value = (value << 4) | digit;
+        }
+        return value;
+    }
+
+    private int computeHashCode() {
+        long h = hash0 ^ (hash1 * 31) ^ (hash2 * 961) ^ (hash3 * 29791);
+        return (int) (h ^ (h >>> 32)) * 31 + index;
+    }
+
+    public String getHash() {
+        String hex = hash;
+        if (hex == null) {
+            hex = hash = ByteUtil.hexify(this.getHashBytes());
+        }
+        return hex;
+    }
+
+    /**
+     * @return the 32 hash bytes, in serialized order.
+     */
+    public byte[] getHashBytes() {
+        byte[] bytes = new byte[HASH_LENGTH];
+        ByteBuffer.wrap(bytes).putLong(hash0).putLong(hash1).putLong(hash2).putLong(hash3);
+        return bytes;
+    }
+
     public int getIndex() {
         return index;
     }
 
     public String getHex() {
-        return hash + ByteUtil.int2hex(index, true);
+        return this.getHash() + ByteUtil.int2hex(index, true);
     }
 
     public static Outpoint fromHex(String hex) {
-        String hash = hex.substring(0, 64);
-        int index = ByteUtil.hex2int(hex.substring(64, 72), true);
-        return new Outpoint(hash, index);
+        return TransactionCodec.readOutpoint(ByteBuffer.wrap(ByteUtil.hex2bytes(hex)));
     }
-    
+
+    /**
+     * Writes the hash, in serialized order, and the index.
+     */
+    void write(ByteWriter out) {
+        out.putLong(Long.reverseBytes(hash0)).putLong(Long.reverseBytes(hash1));
+        out.putLong(Long.reverseBytes(hash2)).putLong(Long.reverseBytes(hash3));
+        out.putInt(index);
+    }
+
     @Override
     public boolean equals(Object o) {
         if (o == null) {
@@ -39,7 +121,9 @@ public class Outpoint {
             return true;
         } else if (o instanceof Outpoint) {
             Outpoint other = (Outpoint) o;
-            return this.getHex().equalsIgnoreCase(other.getHex());
+            return hashCode == other.hashCode && index == other.index
+                    && hash0 == other.hash0 && hash1 == other.hash1
+                    && hash2 == other.hash2 && hash3 == other.hash3;
         } else {
             return false;
         }
@@ -47,6 +131,6 @@ public class Outpoint {
 
     @Override
     public int hashCode() {
-        return Objects.hash(this.getHex());
+        return hashCode;
     }
 }
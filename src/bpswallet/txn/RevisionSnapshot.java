@@ -0,0 +1,80 @@
+package bpswallet.txn;
+
+import java.util.List;
+
+/**
+ * Records which inputs, outputs and witness programs a transaction held, and
+ * the revision of each, so that anything derived from them can tell when it
+ * has gone stale. The parts can change through the objects and lists the
+ * transaction hands out, not only through its own mutators, so identity and
+ * revision together are compared rather than trusting a dirty flag.
+ *
+ * Input revisions only count changes to the scriptSig; a snapshot that does
+ * not depend on it can leave them out and record the inputs by identity
+ * alone, since their outpoints and sequences never change.
+ */
+final class RevisionSnapshot {
+
+    private final Object[] parts;
+    private final int[] revisions;
+    private final boolean inputRevisions;
+
+    RevisionSnapshot(List<TransactionInput> inputs, List<TransactionOutput> outputs,
+            List<WitnessProgram> witness) {
+        this(inputs, outputs, witness, true);
+    }
+
+    /**
+     * @param inputRevisions whether a changed scriptSig makes the snapshot
+     * stale.
+     */
+    RevisionSnapshot(List<TransactionInput> inputs, List<TransactionOutput> outputs,
+            List<WitnessProgram> witness, boolean inputRevisions) {
+        this.inputRevisions = inputRevisions;
+        int count = inputs.size() + outputs.size() + witness.size();
+        parts = new Object[count];
+        revisions = new int[count];
+        int i = 0;
+        for (TransactionInput input : inputs) {
+            parts[i] = input;
+            revisions[i++] = inputRevisions ? input.getRevision() : 0;
+        }
+        for (TransactionOutput output : outputs) {
+            parts[i] = output;
+            revisions[i++] = output.getRevision();
+        }
+        for (WitnessProgram program : witness) {
+            parts[i] = program;
+            revisions[i++] = program.getRevision();
+        }
+    }
+
+    /**
+     * @return true if the lists hold the same objects, in the same order and
+     * at the same revisions, as when the snapshot was taken.
+     */
+    boolean matches(List<TransactionInput> inputs, List<TransactionOutput> outputs,
+            List<WitnessProgram> witness) {
+        if (inputs.size() + outputs.size() + witness.size() != parts.length) {
+            return false;
+        }
+        int i = 0;
+        for (TransactionInput input : inputs) {
+            if (parts[i] != input || (inputRevisions && revisions[i] != input.getRevision())) {
+                return false;
+            }
+            i++;
+        }
+        for (TransactionOutput output : outputs) {
+            if (parts[i] != output || revisions[i++] != output.getRevision()) {
+                return false;
+            }
+        }
+        for (WitnessProgram program : witness) {
+            if (parts[i] != program || revisions[i++] != program.getRevision()) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
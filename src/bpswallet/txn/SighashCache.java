@@ -0,0 +1,70 @@
+package bpswallet.txn;
+
+import bpswallet.util.ByteWriter;
+import bpswallet.util.HashUtil;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The BIP143 digests shared by every segwit input of a transaction:
+ * hashPrevouts, hashSequence and hashOutputs. They are computed once from a
+ * snapshot of the inputs and outputs and reused for each input's sighash,
+ * which keeps signing linear in the number of inputs.
+ *
+ * The snapshot is the same identity and revision record the transaction's
+ * memoized serialization uses, so {@link #matches(List, List)} detects
+ * reordered or replaced inputs and reordered, replaced or modified outputs.
+ * Input revisions are left out: they only track the scriptSig, which none
+ * of the digests cover, and signing rewrites scriptSigs between inputs.
+ */
+final class SighashCache {
+
+    private final RevisionSnapshot snapshot;
+
+    private final byte[] hashPrevouts;
+    private final byte[] hashSequence;
+    private final byte[] hashOutputs;
+
+    SighashCache(List<TransactionInput> inputs, List<TransactionOutput> outputs) {
+        snapshot = new RevisionSnapshot(inputs, outputs, Collections.emptyList(), false);
+        ByteWriter prevOuts = new ByteWriter(inputs.size() * Outpoint.LENGTH);
+        ByteWriter sequences = new ByteWriter(inputs.size() * 4);
+        ByteWriter outs = new ByteWriter();
+        for (TransactionInput input : inputs) {
+            TransactionCodec.writeOutpoint(prevOuts, input.getOutpoint());
+            sequences.putInt(input.getSequence());
+        }
+        for (TransactionOutput output : outputs) {
+            TransactionCodec.writeOutput(outs, output);
+        }
+        hashPrevouts = HashUtil.doubleSha256(prevOuts.toByteBuffer());
+        hashSequence = HashUtil.doubleSha256(sequences.toByteBuffer());
+        hashOutputs = HashUtil.doubleSha256(outs.toByteBuffer());
+    }
+
+    /**
+     * Tests whether the inputs and outputs are still those of the snapshot.
+     *
+     * @param inputs the transaction's current inputs.
+     * @param outputs the transaction's current outputs.
+     * @return true if the cached digests still apply.
+     */
+    boolean matches(List<TransactionInput> inputs, List<TransactionOutput> outputs) {
+        return snapshot.matches(inputs, outputs, Collections.emptyList());
+    }
+
+    /**
+     * The digests are shared, not copied; callers must not modify them.
+     */
+    byte[] getHashPrevouts() {
+        return hashPrevouts;
+    }
+
+    byte[] getHashSequence() {
+        return hashSequence;
+    }
+
+    byte[] getHashOutputs() {
+        return hashOutputs;
+    }
+}
@@ -1,17 +1,20 @@
 package bpswallet.txn;
 
 import bpswallet.wallet.BPSWallet;
-import bpswallet.ser.Address;
 import bpswallet.ser.AddressType;
 import bpswallet.ser.VarInt;
 import bpswallet.crypto.ECKeyPair;
 import bpswallet.crypto.ECPubKey;
 import bpswallet.crypto.ECSignature;
 import bpswallet.util.ByteUtil;
+import bpswallet.util.ByteWriter;
 import bpswallet.util.FileUtil;
 import bpswallet.util.HashUtil;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Objects;
+import java.util.stream.IntStream;
 
 public class Transaction {
 
@@ -22,11 +25,15 @@ public class Transaction {
     public static final int SEGWIT_MARKER = 0;
     public static final int SEGWIT_FLAG = 1;
 
+    private static final int PARALLEL_THRESHOLD = 8;
+
     private int version, marker, flag;
     private final ArrayList<TransactionInput> inputs;
     private final ArrayList<TransactionOutput> outputs;
     private final ArrayList<WitnessProgram> witness;
     private int locktime;
+    private SighashCache sighashCache;
+    private Serialization serialization;
 
     public Transaction() {
         version = DEFAULT_VERSION;
@@ -39,128 +46,198 @@ public class Transaction {
     }
 
     public boolean sign(ArrayList<ECKeyPair> keyPairs) {
+        return sign(keyPairs, inputs.size() >= PARALLEL_THRESHOLD);
+    }
+
+    /**
+     * Signs every input with the matching key pair. The referenced outputs
+     * are looked up once per previous transaction and every sighash is
+     * computed first, sharing one SighashCache between segwit inputs. The
+     * ECDSA signatures, which are the expensive part, are then produced
+     * concurrently when parallel is set, and written back in input order.
+     * Nonces are deterministic, so the result does not depend on the mode.
+     *
+     * @param keyPairs the key pair for each input, in input order.
+     * @param parallel whether to sign on the common ForkJoin pool.
+     * @return true if every input was signed.
+     */
+    public boolean sign(ArrayList<ECKeyPair> keyPairs, boolean parallel) {
         if (keyPairs.size() != inputs.size()) {
             return false;
         }
-        boolean result = true;
-        for (int i = 0; i < inputs.size(); i++) {
-            result = result && signSingleInput(i, keyPairs.get(i));
+        int count = inputs.size();
+        HashMap<String, Transaction> refTxns = new HashMap<>();
+        TransactionOutput[] refOutputs = new TransactionOutput[count];
+        AddressType[] types = new AddressType[count];
+        String[] sigHashes = new String[count];
+        SighashCache cache = null;
+        for (int i = 0; i < count; i++) {
+            Outpoint outpoint = inputs.get(i).getOutpoint();
+            Transaction refTxn = refTxns.computeIfAbsent(outpoint.getHash(), hash -> FileUtil.getTransaction(hash, false));
+            refOutputs[i] = refTxn.getOutputAt(outpoint.getIndex());
+            types[i] = refOutputs[i].getAddress().getType();
+            if (types[i] == AddressType.LEGACY) {
+                sigHashes[i] = this.getLegacySigHash(i, refOutputs[i]);
+            } else if (types[i] == AddressType.SEGWIT || types[i] == AddressType.BECH32) {
+                if (cache == null) {
+                    cache = this.getSighashCache();
+                }
+                sigHashes[i] = this.getSegwitSigHash(i, refOutputs[i], keyPairs.get(i).getPub(), cache);
+            } else {
+                this.clearInputScriptSigs();
+                this.clearWitness();
+                return false;
+            }
         }
-        if (!result) {
-            this.clearInputScriptSigs();
-            this.clearWitness();
+        ECSignature[] sigs = new ECSignature[count];
+        IntStream indices = IntStream.range(0, count);
+        if (parallel) {
+            indices = indices.parallel();
         }
-        return result;
+        indices.forEach(i -> sigs[i] = keyPairs.get(i).getPrv().sign(sigHashes[i]));
+        for (int i = 0; i < count; i++) {
+            this.applySignature(i, types[i], keyPairs.get(i).getPub(), sigs[i]);
+        }
+        return true;
     }
 
     public boolean signSingleInput(int index, ECKeyPair keyPair) {
-        TransactionInput input = inputs.get(index);
-        Outpoint outpoint = input.getOutpoint();
+        Outpoint outpoint = inputs.get(index).getOutpoint();
         Transaction refTxn = FileUtil.getTransaction(outpoint.getHash(), false);
         TransactionOutput refOutput = refTxn.getOutputAt(outpoint.getIndex());
-        Address addr = refOutput.getAddress();
-        if (addr.getType() == AddressType.LEGACY) {
-            String[] oldScripts = this.clearInputScriptSigs();
-            input.setScriptSig(refOutput.getScriptPubKey());
-            // temporarily clear witness
-            ArrayList<WitnessProgram> oldWitness = this.clearWitness();
-            String preimage = this.getHex() + ByteUtil.int2hex(SIGHASH_ALL, true);
-            String sigHash = HashUtil.doubleSha256(preimage);
-            ECSignature sig = keyPair.getPrv().sign(sigHash);
-            this.setInputScriptSigs(oldScripts);
-            this.setWitnessPrograms(oldWitness);
+        AddressType type = refOutput.getAddress().getType();
+        String sigHash;
+        if (type == AddressType.LEGACY) {
+            sigHash = this.getLegacySigHash(index, refOutput);
+        } else if (type == AddressType.SEGWIT || type == AddressType.BECH32) {
+            sigHash = this.getSegwitSigHash(index, refOutput, keyPair.getPub(), this.getSighashCache());
+        } else {
+            return false;
+        }
+        this.applySignature(index, type, keyPair.getPub(), keyPair.getPrv().sign(sigHash));
+        return true;
+    }
+
+    /**
+     * Computes the original sighash of a legacy input: the transaction
+     * without witness data, with every scriptSig cleared except this
+     * input's, which is replaced by the referenced scriptPubKey.
+     */
+    private String getLegacySigHash(int index, TransactionOutput refOutput) {
+        String[] oldScripts = this.clearInputScriptSigs();
+        inputs.get(index).setScriptSig(refOutput.getScriptPubKey());
+        // temporarily clear witness
+        ArrayList<WitnessProgram> oldWitness = this.clearWitness();
+        String preimage = this.getHex() + ByteUtil.int2hex(SIGHASH_ALL, true);
+        this.setInputScriptSigs(oldScripts);
+        this.setWitnessPrograms(oldWitness);
+        return HashUtil.doubleSha256(preimage);
+    }
+
+    /**
+     * Returns the BIP143 digests for the current inputs and outputs,
+     * rebuilding them only if the transaction changed since they were
+     * computed.
+     */
+    private SighashCache getSighashCache() {
+        if (sighashCache == null || !sighashCache.matches(inputs, outputs)) {
+            sighashCache = new SighashCache(inputs, outputs);
+        }
+        return sighashCache;
+    }
+
+    private String getSegwitSigHash(int index, TransactionOutput refOutput, ECPubKey pubKey, SighashCache cache) {
+        TransactionInput input = inputs.get(index);
+        ByteWriter preimage = new ByteWriter(4 + 32 + 32 + Outpoint.LENGTH + 26 + 8 + 4 + 32 + 4 + 4);
+        preimage.putInt(version).putBytes(cache.getHashPrevouts()).putBytes(cache.getHashSequence());
+        TransactionCodec.writeOutpoint(preimage, input.getOutpoint());
+        // scriptCode: the P2PKH script for the key, with its length
+        preimage.putByte(0x19).putByte(0x76).putByte(0xa9).putByte(0x14);
+        preimage.putBytes(HashUtil.hash160(pubKey.getBytes())).putByte(0x88).putByte(0xac);
+        preimage.putLong(refOutput.getValue()).putInt(input.getSequence());
+        preimage.putBytes(cache.getHashOutputs()).putInt(locktime).putInt(SIGHASH_ALL);
+        return ByteUtil.hexify(HashUtil.doubleSha256(preimage.toByteBuffer()));
+    }
+
+    private void applySignature(int index, AddressType type, ECPubKey pubKey, ECSignature sig) {
+        TransactionInput input = inputs.get(index);
+        if (type == AddressType.LEGACY) {
             String scriptSig = new VarInt(sig.getHex().length() / 2 + 1).toHex()
                     + sig.getHex() + String.format("%02x", SIGHASH_ALL)
-                    + new VarInt(33).toHex() + keyPair.getPub().getEncoded();
+                    + new VarInt(33).toHex() + pubKey.getEncoded();
             input.setScriptSig(scriptSig);
-            return true;
-        } else if (addr.getType() == AddressType.SEGWIT
-                || addr.getType() == AddressType.BECH32) {
-            String nVersion = ByteUtil.int2hex(version, true);
-            String nLocktime = ByteUtil.int2hex(locktime, true);
-            String nHashType = ByteUtil.int2hex(SIGHASH_ALL, true);
-            String nSequence = ByteUtil.int2hex(input.getSequence(), true);
-            String prevOuts = "";
-            String sequences = "";
-            String outs = "";
-            for (TransactionInput txIn : inputs) {
-                prevOuts += txIn.getOutpoint().getHex();
-                sequences += ByteUtil.int2hex(txIn.getSequence(), true);
-            }
-            for (TransactionOutput output : this.getOutputs()) {
-                outs += output.getHex();
-            }
-            String hashPrevouts = HashUtil.doubleSha256(prevOuts);
-            String hashSequence = HashUtil.doubleSha256(sequences);
-            String hashOutputs = HashUtil.doubleSha256(outs);
-            ECPubKey pubKey = keyPair.getPub();
-            String pubKeyHash = HashUtil.hash160(pubKey.getEncoded());
-            String scriptCode = "1976a914" + pubKeyHash + "88ac";
-            if (addr.getType() == AddressType.SEGWIT) {
-                input.setScriptSig("160014" + pubKeyHash);
+        } else {
+            if (type == AddressType.SEGWIT) {
+                input.setScriptSig("160014" + HashUtil.hash160(pubKey.getEncoded()));
             }
-            String preimage = nVersion + hashPrevouts + hashSequence
-                    + outpoint.getHex() + scriptCode + ByteUtil.long2hex(refOutput.getValue(), true)
-                    + nSequence + hashOutputs + nLocktime + nHashType;
-            String sigHash = HashUtil.doubleSha256(preimage);
-            ECSignature sig = keyPair.getPrv().sign(sigHash);
             WitnessProgram program = new WitnessProgram();
             program.addPush(sig.getHex() + String.format("%02x", SIGHASH_ALL));
             program.addPush(pubKey.getEncoded());
             witness.set(index, program);
-            return true;
-        } else {
-            return false;
         }
     }
 
     public void setVersion(int version) {
+        serialization = null;
         this.version = version;
     }
 
     public void setLocktime(int locktime) {
+        serialization = null;
         this.locktime = locktime;
     }
 
     public void setMarker(int marker) {
+        serialization = null;
         this.marker = marker;
     }
 
     public void setFlag(int flag) {
+        serialization = null;
         this.flag = flag;
     }
 
     public void addInput(TransactionInput input) {
+        sighashCache = null;
+        serialization = null;
         inputs.add(input);
         witness.add(new WitnessProgram());
     }
 
     public void addOutput(TransactionOutput output) {
+        sighashCache = null;
+        serialization = null;
         outputs.add(output);
     }
 
     public void setWitness(int i, WitnessProgram program) {
+        serialization = null;
         witness.set(i, program);
     }
 
     public void setWitnessPrograms(ArrayList<WitnessProgram> witness) {
+        serialization = null;
         for (int i = 0; i < witness.size(); i++) {
             this.witness.set(i, witness.get(i));
         }
     }
 
     public void setInputScriptSigs(String[] scriptSigs) {
+        serialization = null;
         for (int i = 0; i < scriptSigs.length; i++) {
             inputs.get(i).setScriptSig(scriptSigs[i]);
         }
     }
 
     public void clearInputs() {
+        sighashCache = null;
+        serialization = null;
         inputs.clear();
         this.clearWitness();
     }
 
     public ArrayList<WitnessProgram> clearWitness() {
+        serialization = null;
         ArrayList<WitnessProgram> oldWitness = new ArrayList<>();
         for (WitnessProgram program : witness) {
             oldWitness.add(program);
@@ -173,6 +250,7 @@ public class Transaction {
     }
 
     public String[] clearInputScriptSigs() {
+        serialization = null;
         String[] oldSigs = new String[inputs.size()];
         for (int i = 0; i < inputs.size(); i++) {
             oldSigs[i] = inputs.get(i).clearScriptSig();
@@ -180,6 +258,22 @@ public class Transaction {
         return oldSigs;
     }
 
+    public int getVersion() {
+        return version;
+    }
+
+    public int getLocktime() {
+        return locktime;
+    }
+
+    public int getMarker() {
+        return marker;
+    }
+
+    public int getFlag() {
+        return flag;
+    }
+
     public int getNumInputs() {
         return inputs.size();
     }
@@ -200,6 +294,10 @@ public class Transaction {
         return outputs.get(index);
     }
 
+    public WitnessProgram getWitness(int index) {
+        return witness.get(index);
+    }
+
     public boolean isSegwit() {
         for (WitnessProgram program : witness) {
             if (program.getNumPushes() > 0) {
@@ -210,53 +308,36 @@ public class Transaction {
     }
 
     public String getSegwitHash(boolean littleEndian) {
-        String hash = HashUtil.doubleSha256(this.getHex());
+        String hash = this.getSerialization().getWtxid();
         return (littleEndian) ? ByteUtil.flipendian(hash) : hash;
     }
 
     public String getHash(boolean littleEndian) {
-        String hash = HashUtil.doubleSha256(this.getNonSegwitHex());
+        String hash = this.getSerialization().getTxid();
         return (littleEndian) ? ByteUtil.flipendian(hash) : hash;
     }
 
     public String getHex() {
-        if (!this.isSegwit()) {
-            return this.getNonSegwitHex();
-        }
-        String hex = ByteUtil.int2hex(version, true);
-        hex += new VarInt(marker).toHex();
-        hex += new VarInt(flag).toHex();
-        hex += new VarInt(inputs.size()).toHex();
-        for (TransactionInput input : inputs) {
-            hex += input.getHex();
-        }
-        hex += new VarInt(outputs.size()).toHex();
-        for (TransactionOutput output : outputs) {
-            hex += output.getHex();
-        }
-        for (WitnessProgram program : witness) {
-            hex += program.getHex();
-        }
-        hex += ByteUtil.int2hex(locktime, true);
-        return hex;
+        return this.getSerialization().getHex();
     }
 
     public String getNonSegwitHex() {
-        String hex = ByteUtil.int2hex(version, true);
-        hex += new VarInt(inputs.size()).toHex();
-        for (TransactionInput input : inputs) {
-            hex += input.getHex();
-        }
-        hex += new VarInt(outputs.size()).toHex();
-        for (TransactionOutput output : outputs) {
-            hex += output.getHex();
-        }
-        hex += ByteUtil.int2hex(locktime, true);
-        return hex;
+        return this.getSerialization().getNonSegwitHex();
     }
 
     public byte[] getBytes() {
-        return ByteUtil.hex2bytes(this.getHex());
+        return this.getSerialization().bytes.clone();
+    }
+
+    /**
+     * Returns the memoized serialization, rebuilding it only if the
+     * transaction changed since it was made.
+     */
+    private Serialization getSerialization() {
+        if (serialization == null || !serialization.matches(inputs, outputs, witness)) {
+            serialization = new Serialization(this);
+        }
+        return serialization;
     }
 
     public long getFee() {
@@ -287,11 +368,11 @@ public class Transaction {
         int txWeight = (this.isSegwit() ? 42 : 40);
         for (int i = 0; i < inputs.size(); i++) {
             TransactionInput input = inputs.get(i);
-            txWeight += input.getHex().length() / 2 * 4;
-            txWeight += witness.get(i).getHex().length() / 2;
+            txWeight += input.getSize() * 4;
+            txWeight += witness.get(i).getSize();
         }
         for (TransactionOutput output : outputs) {
-            txWeight += output.getHex().length() / 2 * 4;
+            txWeight += output.getSize() * 4;
         }
         return txWeight;
     }
@@ -305,51 +386,17 @@ public class Transaction {
             txWeight += txn.getOutputAt(outpoint.getIndex()).getAddress().getType().INPUT_WEIGHT;
         }
         for (TransactionOutput output : outputs) {
-            txWeight += output.getHex().length() / 2 * 4;
+            txWeight += output.getSize() * 4;
         }
         return txWeight;
     }
 
     public static Transaction fromBytes(byte[] bytes) {
-        return Transaction.fromHex(ByteUtil.hexify(bytes));
+        return TransactionCodec.readTransaction(ByteBuffer.wrap(bytes));
     }
 
     public static Transaction fromHex(String hex) {
-        Transaction transaction = new Transaction();
-        int offset = 0;
-        transaction.setVersion(ByteUtil.hex2int(hex.substring(offset, offset += 8), true));
-        VarInt numInputs = new VarInt(hex.substring(offset));
-        offset += numInputs.hexLength();
-        boolean segwit = (numInputs.toInt() == SEGWIT_MARKER);
-        if (segwit) {
-            transaction.setMarker(numInputs.toInt());
-            VarInt flagVI = new VarInt(hex.substring(offset));
-            offset += flagVI.hexLength();
-            transaction.setFlag(flagVI.toInt());
-            numInputs = new VarInt(hex.substring(offset));
-            offset += numInputs.hexLength();
-        }
-        for (int i = 0; i < numInputs.toInt(); i++) {
-            TransactionInput input = TransactionInput.fromHex(hex.substring(offset));
-            transaction.addInput(input);
-            offset += input.getHex().length();
-        }
-        VarInt numOutputs = new VarInt(hex.substring(offset));
-        offset += numOutputs.hexLength();
-        for (int i = 0; i < numOutputs.toInt(); i++) {
-            TransactionOutput output = TransactionOutput.fromHex(hex.substring(offset));
-            transaction.addOutput(output);
-            offset += output.getHex().length();
-        }
-        if (segwit) {
-            for (int i = 0; i < numInputs.toInt(); i++) {
-                WitnessProgram program = WitnessProgram.fromHex(hex.substring(offset));
-                offset += program.getHex().length();
-                transaction.setWitness(i, program);
-            }
-        }
-        transaction.setLocktime(ByteUtil.hex2int(hex.substring(offset, offset + 8), true));
-        return transaction;
+        return Transaction.fromBytes(ByteUtil.hex2bytes(hex));
     }
 
     @Override
@@ -370,10 +417,10 @@ public class Transaction {
             feeKnown = feeKnown && prevTxn != null;
             if (prevTxn != null) {
                 TransactionOutput output = prevTxn.getOutputAt(outpoint.getIndex());
-                Address address = output.getAddress();
+                String address = output.getEncodedAddress();
                 res += "\tADDRESS:      ";
                 if (address != null) {
-                    res += address.getEncoded() + "\n";
+                    res += address + "\n";
                 } else {
                     res += "UNKNOWN\n";
                 }
@@ -393,26 +440,26 @@ public class Transaction {
                     res += " " + data;
                 }
                 res += "\n";
-                txWeight += witness.get(i).getHex().length() / 2;
+                txWeight += witness.get(i).getSize();
             }
             res += "\n";
-            txWeight += input.getHex().length() / 2 * 4;
+            txWeight += input.getSize() * 4;
         }
         res += "OUTPUTS:\n";
         if (outputs.isEmpty()) {
             res += "\tNONE\n\n";
         }
         for (TransactionOutput output : outputs) {
-            Address address = output.getAddress();
+            String address = output.getEncodedAddress();
             res += "\tADDRESS:      ";
             if (address != null) {
-                res += address.getEncoded() + "\n";
+                res += address + "\n";
             } else {
                 res += "UNKNOWN\n";
             }
             res += "\tAMOUNT:       " + BPSWallet.sats2btc(output.getValue()) + " BTC\n";
             res += "\tSCRIPT:       " + output.getScriptPubKey() + "\n\n";
-            txWeight += output.getHex().length() / 2 * 4;
+            txWeight += output.getSize() * 4;
         }
         if (feeKnown) {
             long fee = this.getFee();
@@ -443,4 +490,80 @@ public class Transaction {
     public int hashCode() {
         return Objects.hash(this.getHash(false));
     }
+
+    /**
+     * A memoized serialization of the transaction, with and without witness
+     * data, and the hex forms, txid and wtxid derived from it on first use.
+     * The inputs and outputs are encoded once; the witness form reuses those
+     * bytes from the non-witness form.
+     *
+     * The transaction's own mutators drop it, but inputs, outputs and
+     * witness programs can also change through the objects the transaction
+     * hands out, so it keeps a {@link RevisionSnapshot} of them and is
+     * rebuilt when that no longer matches.
+     */
+    private static final class Serialization {
+
+        private final RevisionSnapshot snapshot;
+        private final byte[] bytes;
+        private final byte[] nonSegwitBytes;
+        private String hex;
+        private String nonSegwitHex;
+        private String txid;
+        private String wtxid;
+
+        private Serialization(Transaction txn) {
+            snapshot = new RevisionSnapshot(txn.inputs, txn.outputs, txn.witness);
+            ByteWriter out = new ByteWriter();
+            out.putInt(txn.version);
+            TransactionCodec.writeBody(out, txn.inputs, txn.outputs);
+            out.putInt(txn.locktime);
+            nonSegwitBytes = out.toByteArray();
+            if (txn.isSegwit()) {
+                out = new ByteWriter(nonSegwitBytes.length * 2);
+                out.putInt(txn.version).putVarInt(txn.marker).putVarInt(txn.flag);
+                out.putBytes(nonSegwitBytes, 4, nonSegwitBytes.length - 8);
+                for (WitnessProgram program : txn.witness) {
+                    TransactionCodec.writeWitness(out, program);
+                }
+                out.putInt(txn.locktime);
+                bytes = out.toByteArray();
+            } else {
+                bytes = nonSegwitBytes;
+            }
+        }
+
+        private boolean matches(ArrayList<TransactionInput> inputs, ArrayList<TransactionOutput> outputs,
+                ArrayList<WitnessProgram> witness) {
+            return snapshot.matches(inputs, outputs, witness);
+        }
+
+        private String getHex() {
+            if (hex == null) {
+                hex = (bytes == nonSegwitBytes) ? this.getNonSegwitHex() : ByteUtil.hexify(bytes);
+            }
+            return hex;
+        }
+
+        private String getNonSegwitHex() {
+            if (nonSegwitHex == null) {
+                nonSegwitHex = ByteUtil.hexify(nonSegwitBytes);
+            }
+            return nonSegwitHex;
+        }
+
+        private String getTxid() {
+            if (txid == null) {
+                txid = ByteUtil.hexify(HashUtil.doubleSha256(nonSegwitBytes));
+            }
+            return txid;
+        }
+
+        private String getWtxid() {
+            if (wtxid == null) {
+                wtxid = (bytes == nonSegwitBytes) ? this.getTxid() : ByteUtil.hexify(HashUtil.doubleSha256(bytes));
+            }
+            return wtxid;
+        }
+    }
 }
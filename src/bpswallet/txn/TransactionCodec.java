@@ -0,0 +1,182 @@
+package bpswallet.txn;
+
+import bpswallet.ser.VarInt;
+import bpswallet.util.ByteUtil;
+import bpswallet.util.ByteWriter;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+
+/**
+ * Reads and writes transactions and their parts in the Bitcoin wire format.
+ *
+ * Readers consume from the buffer's current position and leave it just
+ * past what they read, so a buffer holding several transactions back to
+ * back can be read one after another. Multi-byte fields are read as
+ * little-endian whatever the buffer's byte order. Truncated data raises a
+ * BufferUnderflowException. Writers append to a {@link ByteWriter}.
+ */
+public final class TransactionCodec {
+
+    private TransactionCodec() {
+    }
+
+    public static Transaction readTransaction(ByteBuffer in) {
+        Transaction transaction = new Transaction();
+        transaction.setVersion(readInt(in));
+        long numInputs = VarInt.read(in);
+        boolean segwit = (numInputs == Transaction.SEGWIT_MARKER);
+        if (segwit) {
+            transaction.setMarker((int) numInputs);
+            transaction.setFlag((int) VarInt.read(in));
+            numInputs = VarInt.read(in);
+        }
+        for (long i = 0; i < numInputs; i++) {
+            transaction.addInput(readInput(in));
+        }
+        long numOutputs = VarInt.read(in);
+        for (long i = 0; i < numOutputs; i++) {
+            transaction.addOutput(readOutput(in));
+        }
+        if (segwit) {
+            for (int i = 0; i < numInputs; i++) {
+                transaction.setWitness(i, readWitness(in));
+            }
+        }
+        transaction.setLocktime(readInt(in));
+        return transaction;
+    }
+
+    public static TransactionInput readInput(ByteBuffer in) {
+        Outpoint outpoint = readOutpoint(in);
+        String scriptSig = readHex(in, readLength(in));
+        int sequence = readInt(in);
+        return new TransactionInput(outpoint, scriptSig, sequence);
+    }
+
+    public static Outpoint readOutpoint(ByteBuffer in) {
+        if (in.remaining() < Outpoint.LENGTH) {
+            throw new BufferUnderflowException();
+        }
+        int index = in.getInt(in.position() + Outpoint.HASH_LENGTH);
+        Outpoint outpoint = new Outpoint(in, (in.order() == ByteOrder.LITTLE_ENDIAN) ? index : Integer.reverseBytes(index));
+        in.position(in.position() + 4);
+        return outpoint;
+    }
+
+    public static TransactionOutput readOutput(ByteBuffer in) {
+        long value = readLong(in);
+        String scriptPubKey = readHex(in, readLength(in));
+        return new TransactionOutput(value, scriptPubKey);
+    }
+
+    public static WitnessProgram readWitness(ByteBuffer in) {
+        WitnessProgram program = new WitnessProgram();
+        long numPushes = VarInt.read(in);
+        for (long i = 0; i < numPushes; i++) {
+            program.addPush(readHex(in, readLength(in)));
+        }
+        return program;
+    }
+
+    /**
+     * Writes a transaction.
+     *
+     * @param out the writer to append to.
+     * @param transaction the transaction.
+     * @param withWitness whether to include the marker, flag and witness
+     * programs of a segwit transaction, as for the wtxid, or leave them out,
+     * as for the txid.
+     */
+    public static void writeTransaction(ByteWriter out, Transaction transaction, boolean withWitness) {
+        boolean segwit = withWitness && transaction.isSegwit();
+        out.putInt(transaction.getVersion());
+        if (segwit) {
+            out.putVarInt(transaction.getMarker()).putVarInt(transaction.getFlag());
+        }
+        writeBody(out, transaction.getInputs(), transaction.getOutputs());
+        if (segwit) {
+            for (int i = 0; i < transaction.getNumInputs(); i++) {
+                writeWitness(out, transaction.getWitness(i));
+            }
+        }
+        out.putInt(transaction.getLocktime());
+    }
+
+    /**
+     * Writes the part of a transaction between the version (or segwit flag)
+     * and the witness programs: the counted inputs, then the counted outputs.
+     */
+    static void writeBody(ByteWriter out, List<TransactionInput> inputs, List<TransactionOutput> outputs) {
+        out.putVarInt(inputs.size());
+        for (TransactionInput input : inputs) {
+            writeInput(out, input);
+        }
+        out.putVarInt(outputs.size());
+        for (TransactionOutput output : outputs) {
+            writeOutput(out, output);
+        }
+    }
+
+    public static void writeInput(ByteWriter out, TransactionInput input) {
+        String scriptSig = input.getScriptSig();
+        writeOutpoint(out, input.getOutpoint());
+        out.putVarInt(scriptSig.length() / 2).putHex(scriptSig);
+        out.putInt(input.getSequence());
+    }
+
+    public static void writeOutpoint(ByteWriter out, Outpoint outpoint) {
+        outpoint.write(out);
+    }
+
+    public static void writeOutput(ByteWriter out, TransactionOutput output) {
+        String scriptPubKey = output.getScriptPubKey();
+        out.putLong(output.getValue());
+        out.putVarInt(scriptPubKey.length() / 2).putHex(scriptPubKey);
+    }
+
+    public static void writeWitness(ByteWriter out, WitnessProgram program) {
+        out.putVarInt(program.getNumPushes());
+        for (String data : program.getPushes()) {
+            out.putVarInt(data.length() / 2).putHex(data);
+        }
+    }
+
+    static int readInt(ByteBuffer in) {
+        int num = in.getInt();
+        return (in.order() == ByteOrder.LITTLE_ENDIAN) ? num : Integer.reverseBytes(num);
+    }
+
+    static long readLong(ByteBuffer in) {
+        long num = in.getLong();
+        return (in.order() == ByteOrder.LITTLE_ENDIAN) ? num : Long.reverseBytes(num);
+    }
+
+    /**
+     * Reads a length prefix, rejecting one longer than the data left.
+     */
+    static int readLength(ByteBuffer in) {
+        long length = VarInt.read(in);
+        if (length < 0 || length > in.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        return (int) length;
+    }
+
+    private static String readHex(ByteBuffer in, int length) {
+        if (length > in.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        String hex;
+        if (in.hasArray()) {
+            hex = ByteUtil.hexify(in.array(), in.arrayOffset() + in.position(), length);
+            in.position(in.position() + length);
+        } else {
+            byte[] bytes = new byte[length];
+            in.get(bytes);
+            hex = ByteUtil.hexify(bytes);
+        }
+        return hex;
+    }
+}
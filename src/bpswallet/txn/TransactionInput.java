@@ -2,6 +2,7 @@ package bpswallet.txn;
 
 import bpswallet.ser.VarInt;
 import bpswallet.util.ByteUtil;
+import java.nio.ByteBuffer;
 import java.util.Objects;
 
 public class TransactionInput {
@@ -11,6 +12,9 @@ public class TransactionInput {
     private final Outpoint outpoint;
     private String scriptSig;
     private final int sequence;
+    // Bumped on every change, so a transaction can tell its memoized
+    // serialization is stale
+    private int revision;
 
     public TransactionInput(Outpoint outpoint, String scriptSig, int sequence) {
         this.outpoint = outpoint;
@@ -28,14 +32,20 @@ public class TransactionInput {
 
     public void setScriptSig(String scriptSig) {
         this.scriptSig = scriptSig;
+        revision++;
     }
 
     public String clearScriptSig() {
         String oldScriptSig = scriptSig;
         scriptSig = "";
+        revision++;
         return oldScriptSig;
     }
 
+    int getRevision() {
+        return revision;
+    }
+
     public Outpoint getOutpoint() {
         return outpoint;
     }
@@ -52,14 +62,16 @@ public class TransactionInput {
         return outpoint.getHex() + new VarInt(scriptSig.length() / 2).toHex() + scriptSig + ByteUtil.int2hex(sequence, true);
     }
 
+    /**
+     * @return the serialized length of the input in bytes.
+     */
+    public int getSize() {
+        int scriptLength = scriptSig.length() / 2;
+        return 36 + VarInt.sizeOf(scriptLength) + scriptLength + 4;
+    }
+
     public static TransactionInput fromHex(String hex) {
-        int offset = 0;
-        Outpoint outpoint = Outpoint.fromHex(hex.substring(offset, offset += 72));
-        VarInt scriptLength = new VarInt(hex.substring(offset));
-        offset += scriptLength.hexLength();
-        String scriptSig = hex.substring(offset, offset += scriptLength.toInt() * 2);
-        int sequence = ByteUtil.hex2int(hex.substring(offset, offset + 8), true);
-        return new TransactionInput(outpoint, scriptSig, sequence);
+        return TransactionCodec.readInput(ByteBuffer.wrap(ByteUtil.hex2bytes(hex)));
     }
 
     @Override
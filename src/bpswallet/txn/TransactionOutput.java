@@ -5,6 +5,7 @@ import bpswallet.ser.AddressFactory;
 import bpswallet.ser.AddressType;
 import bpswallet.ser.VarInt;
 import bpswallet.util.ByteUtil;
+import java.nio.ByteBuffer;
 import java.util.Comparator;
 import java.util.Objects;
 
@@ -12,6 +13,12 @@ public class TransactionOutput {
 
     private long value;
     private final String scriptPubKey;
+    // Bumped on every change, see TransactionInput
+    private int revision;
+    // The script never changes, so it is classified at most once
+    private boolean parsed;
+    private Address address;
+    private String encodedAddress;
 
     public TransactionOutput(long value, String scriptPubKey) {
         this.value = value;
@@ -23,12 +30,40 @@ public class TransactionOutput {
         this.scriptPubKey = address.getScriptPubKey();
     }
 
+    /**
+     * Classifies the scriptPubKey on first use and returns the same Address
+     * from then on.
+     *
+     * @return the address paid to, or null if the script is not a standard
+     * P2PKH, P2SH or P2WPKH script.
+     */
     public Address getAddress() {
-        return AddressFactory.fromScriptPubKey(scriptPubKey);
+        if (!parsed) {
+            address = AddressFactory.fromScriptPubKey(scriptPubKey);
+            parsed = true;
+        }
+        return address;
+    }
+
+    /**
+     * @return the encoded form of the address paid to, computed once, or
+     * null if the script has no address.
+     */
+    public String getEncodedAddress() {
+        String encoded = encodedAddress;
+        if (encoded == null && this.getAddress() != null) {
+            encoded = encodedAddress = address.getEncoded();
+        }
+        return encoded;
     }
     
     public void setValue(long value) {
         this.value = value;
+        revision++;
+    }
+
+    int getRevision() {
+        return revision;
     }
 
     public long getValue() {
@@ -43,6 +78,14 @@ public class TransactionOutput {
         return ByteUtil.long2hex(value, true) + new VarInt(scriptPubKey.length() / 2).toHex() + scriptPubKey;
     }
 
+    /**
+     * @return the serialized length of the output in bytes.
+     */
+    public int getSize() {
+        int scriptLength = scriptPubKey.length() / 2;
+        return 8 + VarInt.sizeOf(scriptLength) + scriptLength;
+    }
+
     public static Comparator<TransactionOutput> reverseValueCompare() {
         return (TransactionOutput coin1, TransactionOutput coin2) -> Long.compare(coin1.value, coin2.value);
     }
@@ -72,12 +115,7 @@ public class TransactionOutput {
     }
 
     public static TransactionOutput fromHex(String hex) {
-        int offset = 0;
-        long value = ByteUtil.hex2long(hex.substring(offset, offset += 16), true);
-        VarInt scriptLength = new VarInt(hex.substring(offset));
-        offset += scriptLength.hexLength();
-        String scriptPubKey = hex.substring(offset, offset + scriptLength.toInt() * 2);
-        return new TransactionOutput(value, scriptPubKey);
+        return TransactionCodec.readOutput(ByteBuffer.wrap(ByteUtil.hex2bytes(hex)));
     }
 
     @Override
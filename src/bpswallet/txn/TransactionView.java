@@ -0,0 +1,222 @@
+package bpswallet.txn;
+
+import bpswallet.ser.VarInt;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * A read-only view of one serialized transaction, for example a slice of a
+ * memory-mapped transaction file. Values, scripts and outpoints are read
+ * straight from the underlying bytes, without building a Transaction, its
+ * inputs and outputs or any hex strings; {@link #toTransaction()} does that
+ * when the full object is needed.
+ *
+ * The offsets of the inputs and outputs are indexed on first access.
+ * Instances are not thread-safe.
+ */
+public final class TransactionView {
+
+    private static final int MIN_INPUT_LENGTH = 41;
+    private static final int MIN_OUTPUT_LENGTH = 9;
+
+    private final ByteBuffer data;
+    private int[] inputOffsets;
+    private int[] outputOffsets;
+    private int length;
+
+    /**
+     * @param buffer the buffer holding the transaction from its current
+     * position on; trailing bytes after the transaction are ignored. The
+     * view shares the bytes but not the position of the buffer.
+     */
+    public TransactionView(ByteBuffer buffer) {
+        data = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private void index() {
+        if (outputOffsets != null) {
+            return;
+        }
+        ByteBuffer in = data.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        skip(in, 4);
+        long numInputs = VarInt.read(in);
+        boolean segwit = (numInputs == Transaction.SEGWIT_MARKER);
+        if (segwit) {
+            VarInt.read(in);
+            numInputs = VarInt.read(in);
+        }
+        int[] inputs = new int[count(in, numInputs, MIN_INPUT_LENGTH)];
+        for (int i = 0; i < inputs.length; i++) {
+            inputs[i] = in.position();
+            skip(in, 36);
+            skip(in, TransactionCodec.readLength(in));
+            skip(in, 4);
+        }
+        int[] outputs = new int[count(in, VarInt.read(in), MIN_OUTPUT_LENGTH)];
+        for (int i = 0; i < outputs.length; i++) {
+            outputs[i] = in.position();
+            skip(in, 8);
+            skip(in, TransactionCodec.readLength(in));
+        }
+        if (segwit) {
+            for (int i = 0; i < inputs.length; i++) {
+                long numPushes = VarInt.read(in);
+                for (long j = 0; j < numPushes; j++) {
+                    skip(in, TransactionCodec.readLength(in));
+                }
+            }
+        }
+        skip(in, 4);
+        length = in.position();
+        inputOffsets = inputs;
+        outputOffsets = outputs;
+    }
+
+    /**
+     * Checks a count read from the data against the bytes left, so corrupt
+     * data cannot cause a huge allocation.
+     */
+    private static int count(ByteBuffer in, long count, int minLength) {
+        if (count < 0 || count > in.remaining() / minLength) {
+            throw new BufferUnderflowException();
+        }
+        return (int) count;
+    }
+
+    private static void skip(ByteBuffer in, int length) {
+        if (length > in.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        in.position(in.position() + length);
+    }
+
+    /**
+     * @return the serialized length of the transaction in bytes.
+     */
+    public int getLength() {
+        this.index();
+        return length;
+    }
+
+    public int getVersion() {
+        return data.getInt(0);
+    }
+
+    public int getLocktime() {
+        this.index();
+        return data.getInt(length - 4);
+    }
+
+    public int getNumInputs() {
+        this.index();
+        return inputOffsets.length;
+    }
+
+    public int getNumOutputs() {
+        this.index();
+        return outputOffsets.length;
+    }
+
+    /**
+     * @param index the input index.
+     * @return a read-only view of the 32 hash bytes of the outpoint the
+     * input spends, in serialized order.
+     */
+    public ByteBuffer getOutpointHash(int index) {
+        this.index();
+        return this.slice(inputOffsets[index], 32);
+    }
+
+    public int getOutpointIndex(int index) {
+        this.index();
+        return data.getInt(inputOffsets[index] + 32);
+    }
+
+    public Outpoint getOutpoint(int index) {
+        this.index();
+        return TransactionCodec.readOutpoint(this.slice(inputOffsets[index], 36));
+    }
+
+    public long getOutputValue(int index) {
+        this.index();
+        return data.getLong(outputOffsets[index]);
+    }
+
+    /**
+     * @param index the output index.
+     * @return a read-only view of the output's scriptPubKey bytes.
+     */
+    public ByteBuffer getScriptPubKey(int index) {
+        this.index();
+        int offset = outputOffsets[index] + 8;
+        return this.slice(offset + varIntSize(data.get(offset)), (int) this.varIntAt(offset));
+    }
+
+    /**
+     * Compares an output's scriptPubKey with the given script without
+     * copying either.
+     *
+     * @param index the output index.
+     * @param script the script bytes.
+     * @return true if the scripts are equal.
+     */
+    public boolean scriptPubKeyEquals(int index, byte[] script) {
+        this.index();
+        int offset = outputOffsets[index] + 8;
+        if (this.varIntAt(offset) != script.length) {
+            return false;
+        }
+        offset += varIntSize(data.get(offset));
+        for (int i = 0; i < script.length; i++) {
+            if (data.get(offset + i) != script[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Builds a TransactionOutput for a single output, leaving the rest of
+     * the transaction unparsed.
+     *
+     * @param index the output index.
+     * @return the output.
+     */
+    public TransactionOutput getOutput(int index) {
+        this.index();
+        return TransactionCodec.readOutput(this.slice(outputOffsets[index], length - outputOffsets[index]));
+    }
+
+    public Transaction toTransaction() {
+        return TransactionCodec.readTransaction(data.duplicate());
+    }
+
+    /**
+     * Reads a VarInt at an offset already validated by the index.
+     */
+    private long varIntAt(int offset) {
+        int flag = data.get(offset) & 0xFF;
+        if (flag == 0xFD) {
+            return data.getShort(offset + 1) & 0xFFFF;
+        } else if (flag == 0xFE) {
+            return data.getInt(offset + 1) & 0xFFFFFFFFL;
+        } else if (flag == 0xFF) {
+            return data.getLong(offset + 1);
+        } else {
+            return flag;
+        }
+    }
+
+    private static int varIntSize(byte flag) {
+        int value = flag & 0xFF;
+        return (value < 0xFD) ? 1 : (value == 0xFD) ? 3 : (value == 0xFE) ? 5 : 9;
+    }
+
+    private ByteBuffer slice(int offset, int sliceLength) {
+        ByteBuffer view = data.duplicate();
+        view.position(offset);
+        view.limit(offset + sliceLength);
+        return view.slice().asReadOnlyBuffer();
+    }
+}
@@ -1,12 +1,16 @@
 package bpswallet.txn;
 
 import bpswallet.ser.VarInt;
+import bpswallet.util.ByteUtil;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Objects;
 
 public class WitnessProgram {
 
     private final ArrayList<String> pushes;
+    // Bumped on every change, see TransactionInput
+    private int revision;
 
     public WitnessProgram() {
         pushes = new ArrayList<>();
@@ -14,6 +18,11 @@ public class WitnessProgram {
 
     public void addPush(String data) {
         pushes.add(data);
+        revision++;
+    }
+
+    int getRevision() {
+        return revision;
     }
 
     public int getNumPushes() {
@@ -32,17 +41,19 @@ public class WitnessProgram {
         return hex;
     }
 
-    public static WitnessProgram fromHex(String hex) {
-        WitnessProgram program = new WitnessProgram();
-        int offset = 0;
-        VarInt numPushes = new VarInt(hex);
-        offset += numPushes.hexLength();
-        for (int i = 0; i < numPushes.toInt(); i++) {
-            VarInt dataLength = new VarInt(hex.substring(offset));
-            offset += dataLength.hexLength();
-            program.addPush(hex.substring(offset, offset += dataLength.toInt() * 2));
+    /**
+     * @return the serialized length of the program in bytes.
+     */
+    public int getSize() {
+        int size = VarInt.sizeOf(pushes.size());
+        for (String data : pushes) {
+            size += VarInt.sizeOf(data.length() / 2) + data.length() / 2;
         }
-        return program;
+        return size;
+    }
+
+    public static WitnessProgram fromHex(String hex) {
+        return TransactionCodec.readWitness(ByteBuffer.wrap(ByteUtil.hex2bytes(hex)));
     }
     
     @Override
@@ -9,15 +9,30 @@ import java.security.NoSuchAlgorithmException;
 public final class ByteUtil {
 
     public static boolean isHex(String str) {
-        return !str.isEmpty() && str.matches("-?[0-9a-fA-F]+");
+        // Same as matching -?[0-9a-fA-F]+ without compiling a regex per call
+        int start = str.startsWith("-") ? 1 : 0;
+        if (str.length() == start) {
+            return false;
+        }
+        for (int i = start; i < str.length(); i++) {
+            char c = str.charAt(i);
+            if (!(c >= '0' && c <= '9' || c >= 'a' && c <= 'f' || c >= 'A' && c <= 'F')) {
+                return false;
+            }
+        }
+        return true;
     }
 
     private static final char[] HEX_ARRAY = "0123456789abcdef".toCharArray();
 
     public static String hexify(byte[] bytes) {
-        char[] hexChars = new char[bytes.length * 2];
-        for (int j = 0; j < bytes.length; j++) {
-            int v = bytes[j] & 0xFF;
+        return hexify(bytes, 0, bytes.length);
+    }
+
+    public static String hexify(byte[] bytes, int offset, int length) {
+        char[] hexChars = new char[length * 2];
+        for (int j = 0; j < length; j++) {
+            int v = bytes[offset + j] & 0xFF;
             hexChars[j * 2] = HEX_ARRAY[v >>> 4];
             hexChars[j * 2 + 1] = HEX_ARRAY[v & 0x0F];
         }
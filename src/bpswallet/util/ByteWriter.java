@@ -0,0 +1,117 @@
+package bpswallet.util;
+
+import bpswallet.ser.VarInt;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * A growable little-endian byte buffer for building wire-format data such
+ * as serialized transactions. The backing array doubles in size whenever a
+ * write does not fit, so appending is amortized constant time.
+ */
+public final class ByteWriter {
+
+    private ByteBuffer buffer;
+
+    public ByteWriter() {
+        this(256);
+    }
+
+    public ByteWriter(int capacity) {
+        buffer = ByteBuffer.allocate(Math.max(capacity, 16)).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private void ensureRemaining(int length) {
+        if (buffer.remaining() < length) {
+            int capacity = Math.max(buffer.capacity() * 2, buffer.position() + length);
+            ByteBuffer grown = ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.flip();
+            grown.put(buffer);
+            buffer = grown;
+        }
+    }
+
+    public ByteWriter putByte(int b) {
+        this.ensureRemaining(1);
+        buffer.put((byte) b);
+        return this;
+    }
+
+    public ByteWriter putInt(int num) {
+        this.ensureRemaining(4);
+        buffer.putInt(num);
+        return this;
+    }
+
+    public ByteWriter putLong(long num) {
+        this.ensureRemaining(8);
+        buffer.putLong(num);
+        return this;
+    }
+
+    public ByteWriter putBytes(byte[] bytes) {
+        return this.putBytes(bytes, 0, bytes.length);
+    }
+
+    public ByteWriter putBytes(byte[] bytes, int offset, int length) {
+        this.ensureRemaining(length);
+        buffer.put(bytes, offset, length);
+        return this;
+    }
+
+    /**
+     * Appends the bytes a hex string encodes, without decoding it to an
+     * intermediate array.
+     *
+     * @param hex the hex string.
+     * @return this writer.
+     */
+    public ByteWriter putHex(String hex) {
+        int length = hex.length() / 2;
+        this.ensureRemaining(length);
+        for (int i = 0; i < length; i++) {
+            int hi = Character.digit(hex.charAt(2 * i), 16);
+            int lo = Character.digit(hex.charAt(2 * i + 1), 16);
+            buffer.put((byte) ((hi << 4) + lo));
+        }
+        return this;
+    }
+
+    /**
+     * Appends a Bitcoin variable-length integer (CompactSize).
+     *
+     * @param num the value, treated as unsigned.
+     * @return this writer.
+     */
+    public ByteWriter putVarInt(long num) {
+        this.ensureRemaining(VarInt.sizeOf(num));
+        VarInt.write(buffer, num);
+        return this;
+    }
+
+    public int size() {
+        return buffer.position();
+    }
+
+    /**
+     * @return a copy of the bytes written so far.
+     */
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer.array(), buffer.position());
+    }
+
+    /**
+     * Exposes the bytes written so far without copying them, for a caller
+     * that consumes the encoding straight away, such as hashing a sighash
+     * preimage. Later writes do not change the view's contents, but it stops
+     * sharing the writer's array once a write grows it.
+     *
+     * @return a read-only little-endian view of the bytes written so far.
+     */
+    public ByteBuffer toByteBuffer() {
+        ByteBuffer view = buffer.duplicate();
+        view.flip();
+        return view.asReadOnlyBuffer().order(ByteOrder.LITTLE_ENDIAN);
+    }
+}
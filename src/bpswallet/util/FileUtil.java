@@ -2,14 +2,20 @@ package bpswallet.util;
 
 import bpswallet.wallet.BPSWallet;
 import bpswallet.txn.Transaction;
+import bpswallet.txn.TransactionCodec;
+import bpswallet.txn.TransactionView;
 import bpswallet.crypto.ECIESData;
 import bpswallet.crypto.InvalidPasswordException;
 import java.util.Arrays;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.io.File;
 import java.io.IOException;
 import java.io.FileOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
 import java.nio.file.Files;
 import java.nio.channels.Channels;
 import java.nio.channels.FileChannel;
@@ -33,6 +39,15 @@ public final class FileUtil {
     public static final String BIP39WORDS_URL = "https://raw.githubusercontent.com/bitcoin/bips/master/bip-0039/english.txt";
     private static ArrayList<String> bip39words;
     private static HashMap<String, TxIndex> txIndex;
+    private static final int MAX_MAPPED_FILES = 8;
+    // Least recently used txn file mappings, see mapTxnFile
+    private static final LinkedHashMap<Integer, MappedByteBuffer> txnFileMaps
+            = new LinkedHashMap<Integer, MappedByteBuffer>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, MappedByteBuffer> eldest) {
+            return size() > MAX_MAPPED_FILES;
+        }
+    };
 
     public static HashMap<String, TxIndex> getTxIndex() {
         if (txIndex == null) {
@@ -85,6 +100,56 @@ public final class FileUtil {
         }
     }
 
+    /**
+     * Looks up a stored transaction without parsing it. The view reads from
+     * a memory mapping of its transaction file, shared with other views into
+     * that file; see mapTxnFile for how long mappings live.
+     *
+     * @param hash the transaction hash.
+     * @param littleEndian whether the hash is in little-endian order.
+     * @return a view of the transaction, or null if it is not stored.
+     */
+    public static TransactionView getTransactionView(String hash, boolean littleEndian) {
+        String txHash = (littleEndian) ? ByteUtil.flipendian(hash) : hash;
+        mkdirs();
+        if (txIndex == null) {
+            loadTxIndex();
+        }
+        if (!txIndex.containsKey(txHash)) {
+            return null;
+        }
+        TxIndex indexObj = txIndex.get(txHash);
+        try {
+            ByteBuffer buffer = mapTxnFile(indexObj.fileNum, indexObj.pointer).duplicate();
+            buffer.position((int) indexObj.pointer);
+            return new TransactionView(buffer);
+        } catch (IOException ex) {
+            System.out.println("Transaction file(s) is missing and/or read permission is denied.");
+            throw new RuntimeException(ex);
+        }
+    }
+
+    /**
+     * Returns a read-only mapping of a txn file that covers the given offset.
+     * Files only grow by appending whole transactions, so a mapping stays
+     * valid for everything stored before it was made and is only replaced
+     * when a newer transaction lies past its end. At most MAX_MAPPED_FILES
+     * mappings are cached, least recently used first out. A replaced or
+     * evicted mapping is not unmapped explicitly: it stays readable for the
+     * views still holding it and is released once they are all garbage.
+     */
+    private static synchronized ByteBuffer mapTxnFile(int fileNum, long pointer) throws IOException {
+        File file = new File(TXNS_DIR + TXN_PREFIX + String.format("%03d", fileNum) + ".dat");
+        MappedByteBuffer mapped = txnFileMaps.get(fileNum);
+        if (mapped == null || pointer >= mapped.capacity()) {
+            RandomAccessFile accessor = new RandomAccessFile(file, "r");
+            mapped = accessor.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, accessor.length());
+            accessor.close();
+            txnFileMaps.put(fileNum, mapped);
+        }
+        return mapped;
+    }
+
     public static boolean addTransaction(Transaction txn) {
         mkdirs();
         if (txIndex == null) {
@@ -211,12 +276,12 @@ public final class FileUtil {
                 byte[] buffer = new byte[1024 * 1024];
                 int read;
                 while ((read = accessor.read(buffer)) > 0) {
-                    byte[] bytes = Arrays.copyOfRange(buffer, 0, read);
+                    ByteBuffer bytes = ByteBuffer.wrap(buffer, 0, read);
                     try {
-                        Transaction txn = Transaction.fromBytes(bytes);
+                        Transaction txn = TransactionCodec.readTransaction(bytes);
                         String txHash = txn.getHash(false);
-                        long pointer = accessor.getFilePointer() - bytes.length;
-                        accessor.seek(pointer + txn.getHex().length() / 2);
+                        long pointer = accessor.getFilePointer() - read;
+                        accessor.seek(pointer + bytes.position());
                         indexAccessor.writeInt(fileNum);
                         indexAccessor.writeLong(pointer);
                         indexAccessor.write(ByteUtil.hex2bytes(txHash));
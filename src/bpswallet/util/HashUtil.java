@@ -1,234 +1,175 @@
 package bpswallet.util;
 
-import static java.lang.Integer.rotateLeft;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
-import java.security.InvalidKeyException;
+import java.security.DigestException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
-import java.security.spec.InvalidKeySpecException;
-import java.util.Arrays;
-import java.util.Objects;
-import javax.crypto.Mac;
 import javax.crypto.SecretKey;
-import javax.crypto.SecretKeyFactory;
-import javax.crypto.spec.PBEKeySpec;
 import javax.crypto.spec.SecretKeySpec;
 
 public final class HashUtil {
 
-    public static String sha256(String data) {
+    private static final ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(() -> newDigest("SHA-256"));
+    private static final ThreadLocal<Ripemd160> RIPEMD160 = ThreadLocal.withInitial(Ripemd160::new);
+    private static final ThreadLocal<byte[]> SHA256_OUT = ThreadLocal.withInitial(() -> new byte[32]);
+
+    private static MessageDigest newDigest(String algorithm) {
         try {
-            MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            byte[] dataBytes;
-            if (ByteUtil.isHex(data)) {
-                dataBytes = ByteUtil.hex2bytes(data);
-            } else {
-                dataBytes = data.getBytes(StandardCharsets.UTF_8);
-            }
-            byte[] hash = digest.digest(dataBytes);
-            return ByteUtil.hexify(hash);
+            return MessageDigest.getInstance(algorithm);
         } catch (NoSuchAlgorithmException ex) {
             throw new RuntimeException(ex);
         }
     }
 
+    /**
+     * Decodes the argument of the hex string API: hex strings are hashed as
+     * the bytes they encode, anything else as its UTF-8 bytes.
+     */
+    private static byte[] decode(String data) {
+        if (ByteUtil.isHex(data)) {
+            return ByteUtil.hex2bytes(data);
+        }
+        return data.getBytes(StandardCharsets.UTF_8);
+    }
+
+    public static String sha256(String data) {
+        return ByteUtil.hexify(sha256(decode(data)));
+    }
+
     public static String doubleSha256(String data) {
-        return sha256(sha256(data));
+        return ByteUtil.hexify(doubleSha256(decode(data)));
     }
 
     public static String doubleSha256Checksum(String data) {
-        return sha256(sha256(data)).substring(0, 8);
+        return doubleSha256(data).substring(0, 8);
     }
 
     public static String ripemd160(String data) {
-        byte[] dataBytes;
-        if (ByteUtil.isHex(data)) {
-            dataBytes = ByteUtil.hex2bytes(data);
-        } else {
-            dataBytes = data.getBytes(StandardCharsets.UTF_8);
-        }
-        byte[] hash = Ripemd160.getHash(dataBytes);
-        return ByteUtil.hexify(hash);
+        return ByteUtil.hexify(ripemd160(decode(data)));
     }
 
     public static String hash160(String data) {
-        return ripemd160(sha256(data));
+        return ByteUtil.hexify(hash160(decode(data)));
     }
 
     public static String checksum(String data) {
         return doubleSha256(data).substring(0, 8);
     }
 
-    public static SecretKey PBKDF2(char[] password, String salt, int iterations, int dkLen) {
-        try {
-            SecretKeyFactory keyFactory = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA512");
-            PBEKeySpec keySpec = new PBEKeySpec(password, ByteUtil.hex2bytes(salt), iterations, dkLen);
-            return keyFactory.generateSecret(keySpec);
-        } catch (NoSuchAlgorithmException | InvalidKeySpecException ex) {
-            throw new RuntimeException(ex);
-        }
+    /*
+     * Binary API. The SHA-256 digest is reused per thread, and the fused
+     * doubleSha256 and hash160 feed the first round straight into the second.
+     */
+    public static byte[] sha256(byte[] data) {
+        return sha256(data, 0, data.length);
     }
 
-    public static String hmac(String key, String message) {
-        try {
-            Mac hmac = Mac.getInstance("HmacSHA512");
-            SecretKeySpec keySpec = new SecretKeySpec(ByteUtil.hex2bytes(key), "HmacSHA512");
-            hmac.init(keySpec);
-            return ByteUtil.hexify(hmac.doFinal(ByteUtil.hex2bytes(message)));
-        } catch (NoSuchAlgorithmException | InvalidKeyException ex) {
-            throw new RuntimeException(ex);
-        }
+    public static byte[] sha256(byte[] data, int offset, int length) {
+        MessageDigest digest = SHA256.get();
+        digest.update(data, offset, length);
+        return digest.digest();
     }
 
     /**
-     * Internal class that adds ability to calculate RIPEMD-160 hash.
+     * Hashes the remaining bytes of a buffer, advancing its position to its
+     * limit.
+     *
+     * @param data the buffer to hash.
+     * @return the 32-byte digest.
      */
-    static class Ripemd160 {
-
-        /**
-         * Bitcoin cryptography library Copyright (c) Project Nayuki
-         *
-         * <a href="https://www.nayuki.io/page/bitcoin-cryptography-library">Project
-         * Nayuki Website</a>
-         * <a href="https://github.com/nayuki/Bitcoin-Cryptography-Library">Project
-         * Nayuki Github</a>
-         */
-        private static final int BLOCK_LEN = 64;  // In bytes
-
-        /*---- Static functions ----*/
-        /**
-         * Computes and returns a 20-byte (160-bit) hash of the specified binary
-         * message. Each call will return a new byte array object instance.
-         *
-         * @param msg the message to compute the hash of
-         * @return a 20-byte array representing the message's RIPEMD-160 hash
-         * @throws NullPointerException if the message is {@code null}
-         */
-        public static byte[] getHash(byte[] msg) {
-            // Compress whole message blocks
-            Objects.requireNonNull(msg);
-            int[] state = {0x67452301, 0xEFCDAB89, 0x98BADCFE, 0x10325476, 0xC3D2E1F0};
-            int off = msg.length / BLOCK_LEN * BLOCK_LEN;
-            compress(state, msg, off);
-
-            // Final blocks, padding, and length
-            byte[] block = new byte[BLOCK_LEN];
-            System.arraycopy(msg, off, block, 0, msg.length - off);
-            off = msg.length % block.length;
-            block[off] = (byte) 0x80;
-            off++;
-            if (off + 8 > block.length) {
-                compress(state, block, block.length);
-                Arrays.fill(block, (byte) 0);
-            }
-            long len = (long) msg.length << 3;
-            for (int i = 0; i < 8; i++) {
-                block[block.length - 8 + i] = (byte) (len >>> (i * 8));
-            }
-            compress(state, block, block.length);
-
-            // Int32 array to bytes in little endian
-            byte[] result = new byte[state.length * 4];
-            for (int i = 0; i < result.length; i++) {
-                result[i] = (byte) (state[i / 4] >>> (i % 4 * 8));
-            }
-            return result;
-        }
+    public static byte[] sha256(ByteBuffer data) {
+        MessageDigest digest = SHA256.get();
+        digest.update(data);
+        return digest.digest();
+    }
 
-        /*---- Private functions ----*/
-        private static void compress(int[] state, byte[] blocks, int len) {
-            if (len % BLOCK_LEN != 0) {
-                throw new IllegalArgumentException();
-            }
-            for (int i = 0; i < len; i += BLOCK_LEN) {
-
-                // Message schedule
-                int[] schedule = new int[16];
-                for (int j = 0; j < BLOCK_LEN; j++) {
-                    schedule[j / 4] |= (blocks[i + j] & 0xFF) << (j % 4 * 8);
-                }
-
-                // The 80 rounds
-                int al = state[0], ar = state[0];
-                int bl = state[1], br = state[1];
-                int cl = state[2], cr = state[2];
-                int dl = state[3], dr = state[3];
-                int el = state[4], er = state[4];
-                for (int j = 0; j < 80; j++) {
-                    int temp;
-                    temp = rotateLeft(al + f(j, bl, cl, dl) + schedule[RL[j]] + KL[j / 16], SL[j]) + el;
-                    al = el;
-                    el = dl;
-                    dl = rotateLeft(cl, 10);
-                    cl = bl;
-                    bl = temp;
-                    temp = rotateLeft(ar + f(79 - j, br, cr, dr) + schedule[RR[j]] + KR[j / 16], SR[j]) + er;
-                    ar = er;
-                    er = dr;
-                    dr = rotateLeft(cr, 10);
-                    cr = br;
-                    br = temp;
-                }
-                int temp = state[1] + cl + dr;
-                state[1] = state[2] + dl + er;
-                state[2] = state[3] + el + ar;
-                state[3] = state[4] + al + br;
-                state[4] = state[0] + bl + cr;
-                state[0] = temp;
-            }
-        }
+    public static byte[] doubleSha256(byte[] data) {
+        return doubleSha256(data, 0, data.length);
+    }
 
-        private static int f(int i, int x, int y, int z) {
-            assert 0 <= i && i < 80;
-            if (i < 16) {
-                return x ^ y ^ z;
-            }
-            if (i < 32) {
-                return (x & y) | (~x & z);
-            }
-            if (i < 48) {
-                return (x | ~y) ^ z;
-            }
-            if (i < 64) {
-                return (x & z) | (y & ~z);
-            }
-            return x ^ (y | ~z);
+    public static byte[] doubleSha256(byte[] data, int offset, int length) {
+        MessageDigest digest = SHA256.get();
+        digest.update(data, offset, length);
+        return digest.digest(digest.digest());
+    }
+
+    /**
+     * Double SHA-256 of the remaining bytes of a buffer, advancing its
+     * position to its limit.
+     *
+     * @param data the buffer to hash.
+     * @return the 32-byte digest.
+     */
+    public static byte[] doubleSha256(ByteBuffer data) {
+        MessageDigest digest = SHA256.get();
+        digest.update(data);
+        return digest.digest(digest.digest());
+    }
+
+    public static byte[] ripemd160(byte[] data) {
+        return RIPEMD160.get().update(data, 0, data.length).digest();
+    }
+
+    public static byte[] hash160(byte[] data) {
+        byte[] hash = new byte[Ripemd160.DIGEST_LENGTH];
+        hash160(data, 0, data.length, hash, 0);
+        return hash;
+    }
+
+    public static byte[] hash160(ByteBuffer data) {
+        MessageDigest digest = SHA256.get();
+        digest.update(data);
+        return ripemd160Of(digest).digest();
+    }
+
+    /**
+     * Computes RIPEMD-160(SHA-256(data)) into a caller-supplied array
+     * without allocating.
+     *
+     * @param data the array holding the message.
+     * @param offset the index of the first message byte.
+     * @param length the message length.
+     * @param out the array to receive the 20-byte hash.
+     * @param outOffset the index of the first hash byte.
+     */
+    public static void hash160(byte[] data, int offset, int length, byte[] out, int outOffset) {
+        MessageDigest digest = SHA256.get();
+        digest.update(data, offset, length);
+        ripemd160Of(digest).digest(out, outOffset);
+    }
+
+    /**
+     * Finishes a SHA-256 digest and feeds the result to this thread's
+     * RIPEMD-160 instance.
+     */
+    private static Ripemd160 ripemd160Of(MessageDigest digest) {
+        byte[] sha = SHA256_OUT.get();
+        try {
+            digest.digest(sha, 0, sha.length);
+        } catch (DigestException ex) {
+            throw new RuntimeException(ex);
         }
+        return RIPEMD160.get().update(sha, 0, sha.length);
+    }
 
-        /*---- Class constants ----*/
-        private static final int[] KL = {0x00000000, 0x5A827999, 0x6ED9EBA1, 0x8F1BBCDC, 0xA953FD4E};  // Round constants for left line
-        private static final int[] KR = {0x50A28BE6, 0x5C4DD124, 0x6D703EF3, 0x7A6D76E9, 0x00000000};  // Round constants for right line
-
-        private static final int[] RL = { // Message schedule for left line
-            0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15,
-            7, 4, 13, 1, 10, 6, 15, 3, 12, 0, 9, 5, 2, 14, 11, 8,
-            3, 10, 14, 4, 9, 15, 8, 1, 2, 7, 0, 6, 13, 11, 5, 12,
-            1, 9, 11, 10, 0, 8, 12, 4, 13, 3, 7, 15, 14, 5, 6, 2,
-            4, 0, 5, 9, 7, 12, 2, 10, 14, 1, 3, 8, 11, 6, 15, 13};
-
-        private static final int[] RR = { // Message schedule for right line
-            5, 14, 7, 0, 9, 2, 11, 4, 13, 6, 15, 8, 1, 10, 3, 12,
-            6, 11, 3, 7, 0, 13, 5, 10, 14, 15, 8, 12, 4, 9, 1, 2,
-            15, 5, 1, 3, 7, 14, 6, 9, 11, 8, 12, 2, 10, 0, 4, 13,
-            8, 6, 4, 1, 3, 11, 15, 0, 5, 12, 2, 13, 9, 7, 10, 14,
-            12, 15, 10, 4, 1, 5, 8, 7, 6, 2, 13, 14, 0, 3, 9, 11};
-
-        private static final int[] SL = { // Left-rotation for left line
-            11, 14, 15, 12, 5, 8, 7, 9, 11, 13, 14, 15, 6, 7, 9, 8,
-            7, 6, 8, 13, 11, 9, 7, 15, 7, 12, 15, 9, 11, 7, 13, 12,
-            11, 13, 6, 7, 14, 9, 13, 15, 14, 8, 13, 6, 5, 12, 7, 5,
-            11, 12, 14, 15, 14, 15, 9, 8, 9, 14, 5, 6, 8, 6, 5, 12,
-            9, 15, 5, 11, 6, 8, 13, 12, 5, 12, 13, 14, 11, 8, 5, 6};
-
-        private static final int[] SR = { // Left-rotation for right line
-            8, 9, 9, 11, 13, 15, 15, 5, 7, 7, 8, 11, 14, 14, 12, 6,
-            9, 13, 15, 7, 12, 8, 9, 11, 7, 7, 12, 7, 6, 15, 13, 11,
-            9, 7, 15, 11, 8, 6, 6, 14, 12, 13, 5, 14, 13, 13, 7, 5,
-            15, 5, 8, 11, 14, 14, 6, 14, 6, 9, 12, 9, 12, 5, 15, 8,
-            8, 5, 12, 9, 12, 5, 14, 6, 8, 13, 6, 5, 15, 13, 11, 11};
-
-        /*---- Miscellaneous ----*/
-        private Ripemd160() {
-        }  // Not instantiable
+    /**
+     * PBKDF2-HMAC-SHA512 of a UTF-8 password.
+     *
+     * @param password the password.
+     * @param salt the salt, in hex.
+     * @param iterations the iteration count.
+     * @param dkLen the key length in bits.
+     * @return the derived key.
+     * @throws IllegalArgumentException if iterations or the key length in
+     * bytes is not positive.
+     */
+    public static SecretKey PBKDF2(char[] password, String salt, int iterations, int dkLen) {
+        byte[] key = new Pbkdf2Sha512(password).derive(ByteUtil.hex2bytes(salt), iterations, dkLen / 8);
+        return new SecretKeySpec(key, "PBKDF2WithHmacSHA512");
+    }
+
+    public static String hmac(String key, String message) {
+        return ByteUtil.hexify(new HmacSha512(ByteUtil.hex2bytes(key)).mac(ByteUtil.hex2bytes(message)));
     }
 }
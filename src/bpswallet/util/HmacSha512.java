@@ -0,0 +1,86 @@
+package bpswallet.util;
+
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * HMAC-SHA512 (RFC 2104) under a fixed key. The key is padded and absorbed
+ * into the inner (key ^ ipad) and outer (key ^ opad) SHA-512 states once, on
+ * construction; each message then starts from copies of those states, so
+ * MACing many messages under one key, such as the children of a BIP32
+ * parent, pays the key setup only once.
+ *
+ * The precomputed states are never modified after construction, so an
+ * instance can be shared between threads.
+ */
+public final class HmacSha512 {
+
+    public static final int MAC_LENGTH = 64;
+    private static final int BLOCK_LEN = 128;
+
+    private final MessageDigest inner;
+    private final MessageDigest outer;
+
+    public HmacSha512(byte[] key) {
+        inner = newDigest();
+        outer = newDigest();
+        byte[] block = new byte[BLOCK_LEN];
+        if (key.length > BLOCK_LEN) {
+            key = inner.digest(key);
+        }
+        System.arraycopy(key, 0, block, 0, key.length);
+        for (int i = 0; i < BLOCK_LEN; i++) {
+            block[i] ^= 0x36;
+        }
+        inner.update(block);
+        for (int i = 0; i < BLOCK_LEN; i++) {
+            block[i] ^= 0x36 ^ 0x5c;
+        }
+        outer.update(block);
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-512");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    private static MessageDigest copy(MessageDigest digest) {
+        try {
+            return (MessageDigest) digest.clone();
+        } catch (CloneNotSupportedException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    public byte[] mac(byte[] data) {
+        byte[] out = new byte[MAC_LENGTH];
+        this.mac(data, 0, data.length, out, 0);
+        return out;
+    }
+
+    /**
+     * Computes the MAC of a message into a caller-supplied array.
+     *
+     * @param data the array holding the message.
+     * @param offset the index of the first message byte.
+     * @param length the message length.
+     * @param out the array to receive the 64-byte MAC.
+     * @param outOffset the index of the first MAC byte.
+     */
+    public void mac(byte[] data, int offset, int length, byte[] out, int outOffset) {
+        MessageDigest digest = copy(inner);
+        digest.update(data, offset, length);
+        byte[] innerHash = digest.digest();
+        digest = copy(outer);
+        digest.update(innerHash);
+        try {
+            digest.digest(out, outOffset, MAC_LENGTH);
+        } catch (DigestException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package bpswallet.util;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * PBKDF2 with HMAC-SHA512 (RFC 8018), as used for BIP39 seeds and wallet
+ * password keys. The password's inner and outer HMAC pad blocks are
+ * compressed once, on construction. Every iteration after the first hashes
+ * a 64-byte message, which is exactly one SHA-512 block for each of the
+ * inner and outer hash; those two compressions run directly on long words,
+ * with no byte conversion, padding or digest objects in the loop.
+ *
+ * Instances keep scratch state and are not thread-safe; use
+ * {@link #deriveAll(char[][], byte[], int, int)} to derive keys for many
+ * passwords in parallel.
+ */
+public final class Pbkdf2Sha512 {
+
+    private static final int BLOCK_LEN = 128;
+    private static final int HASH_LEN = 64;
+    private static final int PARALLEL_THRESHOLD = 2;
+
+    private final long[] innerPad = new long[8];
+    private final long[] outerPad = new long[8];
+    private final long[] state = new long[8];
+    private final long[] w = new long[80];
+
+    /**
+     * @param password the password, encoded as UTF-8.
+     */
+    public Pbkdf2Sha512(char[] password) {
+        this(utf8(password));
+    }
+
+    public Pbkdf2Sha512(byte[] password) {
+        if (password.length > BLOCK_LEN) {
+            try {
+                password = MessageDigest.getInstance("SHA-512").digest(password);
+            } catch (NoSuchAlgorithmException ex) {
+                throw new RuntimeException(ex);
+            }
+        }
+        byte[] block = new byte[BLOCK_LEN];
+        System.arraycopy(password, 0, block, 0, password.length);
+        for (int i = 0; i < BLOCK_LEN; i++) {
+            block[i] ^= 0x36;
+        }
+        System.arraycopy(IV, 0, innerPad, 0, 8);
+        this.compress(innerPad, block, 0);
+        for (int i = 0; i < BLOCK_LEN; i++) {
+            block[i] ^= 0x36 ^ 0x5c;
+        }
+        System.arraycopy(IV, 0, outerPad, 0, 8);
+        this.compress(outerPad, block, 0);
+        Arrays.fill(block, (byte) 0);
+    }
+
+    private static byte[] utf8(char[] password) {
+        ByteBuffer encoded = StandardCharsets.UTF_8.encode(CharBuffer.wrap(password));
+        byte[] bytes = new byte[encoded.remaining()];
+        encoded.get(bytes);
+        if (encoded.hasArray()) {
+            Arrays.fill(encoded.array(), (byte) 0);
+        }
+        return bytes;
+    }
+
+    /**
+     * Derives a key from the password this engine was built with.
+     *
+     * @param salt the salt.
+     * @param iterations the iteration count.
+     * @param dkLen the key length in bytes.
+     * @return the derived key.
+     * @throws IllegalArgumentException if iterations or dkLen is not
+     * positive.
+     */
+    public byte[] derive(byte[] salt, int iterations, int dkLen) {
+        checkParameters(iterations, dkLen);
+        byte[] key = new byte[dkLen];
+        long[] u = new long[8];
+        long[] t = new long[8];
+        byte[] first = Arrays.copyOf(salt, salt.length + 4);
+        for (int block = 1; (block - 1) * HASH_LEN < dkLen; block++) {
+            // U_1 = HMAC(P, S || INT(block))
+            first[salt.length] = (byte) (block >>> 24);
+            first[salt.length + 1] = (byte) (block >>> 16);
+            first[salt.length + 2] = (byte) (block >>> 8);
+            first[salt.length + 3] = (byte) block;
+            this.hashFrom(innerPad, first, u);
+            this.hashWordsFrom(outerPad, u, u);
+            System.arraycopy(u, 0, t, 0, 8);
+            // U_j = HMAC(P, U_(j-1)), T = U_1 ^ ... ^ U_c
+            for (int j = 1; j < iterations; j++) {
+                this.hashWordsFrom(innerPad, u, u);
+                this.hashWordsFrom(outerPad, u, u);
+                for (int i = 0; i < 8; i++) {
+                    t[i] ^= u[i];
+                }
+            }
+            int offset = (block - 1) * HASH_LEN;
+            for (int i = 0; i < HASH_LEN && offset + i < dkLen; i++) {
+                key[offset + i] = (byte) (t[i >>> 3] >>> (56 - (i & 7) * 8));
+            }
+        }
+        return key;
+    }
+
+    /**
+     * Derives keys for many passwords under the same salt, spreading the
+     * passwords across the common ForkJoin pool.
+     *
+     * @param passwords the passwords, encoded as UTF-8.
+     * @param salt the salt shared by every password.
+     * @param iterations the iteration count.
+     * @param dkLen the key length in bytes.
+     * @return the derived keys, in the same order as the passwords.
+     * @throws IllegalArgumentException if iterations or dkLen is not
+     * positive.
+     */
+    public static byte[][] deriveAll(char[][] passwords, byte[] salt, int iterations, int dkLen) {
+        checkParameters(iterations, dkLen);
+        byte[][] keys = new byte[passwords.length][];
+        IntStream indices = IntStream.range(0, passwords.length);
+        if (passwords.length >= PARALLEL_THRESHOLD) {
+            indices = indices.parallel();
+        }
+        indices.forEach(i -> keys[i] = new Pbkdf2Sha512(passwords[i]).derive(salt, iterations, dkLen));
+        return keys;
+    }
+
+    /**
+     * Rejects the same iteration counts and key lengths as PBEKeySpec.
+     */
+    private static void checkParameters(int iterations, int dkLen) {
+        if (iterations < 1) {
+            throw new IllegalArgumentException("Invalid iteration count");
+        }
+        if (dkLen < 1) {
+            throw new IllegalArgumentException("Invalid key length");
+        }
+    }
+
+    /**
+     * Finishes a SHA-512 hash of one pad block followed by an arbitrary
+     * message, starting from the precomputed state of the pad block.
+     */
+    private void hashFrom(long[] pad, byte[] message, long[] out) {
+        System.arraycopy(pad, 0, state, 0, 8);
+        int whole = message.length / BLOCK_LEN * BLOCK_LEN;
+        for (int offset = 0; offset < whole; offset += BLOCK_LEN) {
+            this.compress(state, message, offset);
+        }
+        byte[] block = new byte[BLOCK_LEN];
+        int rest = message.length - whole;
+        System.arraycopy(message, whole, block, 0, rest);
+        block[rest] = (byte) 0x80;
+        if (rest + 1 > BLOCK_LEN - 16) {
+            this.compress(state, block, 0);
+            Arrays.fill(block, (byte) 0);
+        }
+        long bits = (long) (BLOCK_LEN + message.length) * 8;
+        for (int i = 0; i < 8; i++) {
+            block[BLOCK_LEN - 1 - i] = (byte) (bits >>> (i * 8));
+        }
+        this.compress(state, block, 0);
+        System.arraycopy(state, 0, out, 0, 8);
+    }
+
+    /**
+     * Finishes a SHA-512 hash of one pad block followed by a 64-byte message
+     * given as words, which with its padding fills exactly one block.
+     */
+    private void hashWordsFrom(long[] pad, long[] message, long[] out) {
+        System.arraycopy(message, 0, w, 0, 8);
+        w[8] = 0x8000000000000000L;
+        Arrays.fill(w, 9, 15, 0L);
+        w[15] = (BLOCK_LEN + HASH_LEN) * 8;
+        System.arraycopy(pad, 0, state, 0, 8);
+        this.compressWords(state);
+        System.arraycopy(state, 0, out, 0, 8);
+    }
+
+    private void compress(long[] h, byte[] block, int offset) {
+        for (int i = 0; i < 16; i++) {
+            long word = 0;
+            for (int j = 0; j < 8; j++) {
+                word = (word << 8) | (block[offset + i * 8 + j] & 0xFF);
+            }
+            w[i] = word;
+        }
+        this.compressWords(h);
+    }
+
+    /**
+     * The SHA-512 compression function over the 16 message words already in
+     * w[0..15].
+     */
+    private void compressWords(long[] h) {
+        for (int i = 16; i < 80; i++) {
+            long s0 = Long.rotateRight(w[i - 15], 1) ^ Long.rotateRight(w[i - 15], 8) ^ (w[i - 15] >>> 7);
+            long s1 = Long.rotateRight(w[i - 2], 19) ^ Long.rotateRight(w[i - 2], 61) ^ (w[i - 2] >>> 6);
+            w[i] = w[i - 16] + s0 + w[i - 7] + s1;
+        }
+        long a = h[0], b = h[1], c = h[2], d = h[3];
+        long e = h[4], f = h[5], g = h[6], hh = h[7];
+        for (int i = 0; i < 80; i++) {
+            long s1 = Long.rotateRight(e, 14) ^ Long.rotateRight(e, 18) ^ Long.rotateRight(e, 41);
+            long ch = (e & f) ^ (~e & g);
+            long temp1 = hh + s1 + ch + K[i] + w[i];
+            long s0 = Long.rotateRight(a, 28) ^ Long.rotateRight(a, 34) ^ Long.rotateRight(a, 39);
+            long maj = (a & b) ^ (a & c) ^ (b & c);
+            long temp2 = s0 + maj;
+            hh = g;
+            g = f;
+            f = e;
+            e = d + temp1;
+            d = c;
+            c = b;
+            b = a;
+            a = temp1 + temp2;
+        }
+        h[0] += a;
+        h[1] += b;
+        h[2] += c;
+        h[3] += d;
+        h[4] += e;
+        h[5] += f;
+        h[6] += g;
+        h[7] += hh;
+    }
+
+    private static final long[] IV = {
+        0x6a09e667f3bcc908L, 0xbb67ae8584caa73bL, 0x3c6ef372fe94f82bL, 0xa54ff53a5f1d36f1L,
+        0x510e527fade682d1L, 0x9b05688c2b3e6c1fL, 0x1f83d9abfb41bd6bL, 0x5be0cd19137e2179L};
+
+    private static final long[] K = {
+        0x428a2f98d728ae22L, 0x7137449123ef65cdL, 0xb5c0fbcfec4d3b2fL, 0xe9b5dba58189dbbcL,
+        0x3956c25bf348b538L, 0x59f111f1b605d019L, 0x923f82a4af194f9bL, 0xab1c5ed5da6d8118L,
+        0xd807aa98a3030242L, 0x12835b0145706fbeL, 0x243185be4ee4b28cL, 0x550c7dc3d5ffb4e2L,
+        0x72be5d74f27b896fL, 0x80deb1fe3b1696b1L, 0x9bdc06a725c71235L, 0xc19bf174cf692694L,
+        0xe49b69c19ef14ad2L, 0xefbe4786384f25e3L, 0x0fc19dc68b8cd5b5L, 0x240ca1cc77ac9c65L,
+        0x2de92c6f592b0275L, 0x4a7484aa6ea6e483L, 0x5cb0a9dcbd41fbd4L, 0x76f988da831153b5L,
+        0x983e5152ee66dfabL, 0xa831c66d2db43210L, 0xb00327c898fb213fL, 0xbf597fc7beef0ee4L,
+        0xc6e00bf33da88fc2L, 0xd5a79147930aa725L, 0x06ca6351e003826fL, 0x142929670a0e6e70L,
+        0x27b70a8546d22ffcL, 0x2e1b21385c26c926L, 0x4d2c6dfc5ac42aedL, 0x53380d139d95b3dfL,
+        0x650a73548baf63deL, 0x766a0abb3c77b2a8L, 0x81c2c92e47edaee6L, 0x92722c851482353bL,
+        0xa2bfe8a14cf10364L, 0xa81a664bbc423001L, 0xc24b8b70d0f89791L, 0xc76c51a30654be30L,
+        0xd192e819d6ef5218L, 0xd69906245565a910L, 0xf40e35855771202aL, 0x106aa07032bbd1b8L,
+        0x19a4c116b8d2d0c8L, 0x1e376c085141ab53L, 0x2748774cdf8eeb99L, 0x34b0bcb5e19b48a8L,
+        0x391c0cb3c5c95a63L, 0x4ed8aa4ae3418acbL, 0x5b9cca4f7763e373L, 0x682e6ff3d6b2b8a3L,
+        0x748f82ee5defb2fcL, 0x78a5636f43172f60L, 0x84c87814a1f0ab72L, 0x8cc702081a6439ecL,
+        0x90befffa23631e28L, 0xa4506cebde82bde9L, 0xbef9a3f7b2c67915L, 0xc67178f2e372532bL,
+        0xca273eceea26619cL, 0xd186b8c721c0c207L, 0xeada7dd6cde0eb1eL, 0xf57d4f7fee6ed178L,
+        0x06f067aa72176fbaL, 0x0a637dc5a2c898a6L, 0x113f9804bef90daeL, 0x1b710b35131c471bL,
+        0x28db77f523047d84L, 0x32caab7b40c72493L, 0x3c9ebe0a15c9bebcL, 0x431d67c49c100d4cL,
+        0x4cc5d4becb3e42b6L, 0x597f299cfc657e2aL, 0x5fcb6fab3ad6faecL, 0x6c44198c4a475817L};
+}
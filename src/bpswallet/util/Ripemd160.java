@@ -0,0 +1,209 @@
+package bpswallet.util;
+
+import static java.lang.Integer.rotateLeft;
+import java.util.Arrays;
+
+/**
+ * Streaming RIPEMD-160. Input is absorbed with {@link #update(byte[], int, int)}
+ * and the 20-byte digest is written into a caller-supplied array, after which
+ * the instance is reset and can be reused. An instance keeps its state, block
+ * buffer and message schedule between calls, so hashing allocates nothing;
+ * instances are not thread-safe.
+ *
+ * Bitcoin cryptography library Copyright (c) Project Nayuki
+ *
+ * <a href="https://www.nayuki.io/page/bitcoin-cryptography-library">Project
+ * Nayuki Website</a>
+ * <a href="https://github.com/nayuki/Bitcoin-Cryptography-Library">Project
+ * Nayuki Github</a>
+ */
+public final class Ripemd160 {
+
+    public static final int DIGEST_LENGTH = 20;
+    private static final int BLOCK_LEN = 64;  // In bytes
+
+    private final int[] state = new int[5];
+    private final int[] schedule = new int[16];
+    private final byte[] block = new byte[BLOCK_LEN];
+    private int blockLength;
+    private long messageLength;
+
+    public Ripemd160() {
+        this.reset();
+    }
+
+    /**
+     * Computes and returns a 20-byte (160-bit) hash of the specified binary
+     * message. Each call will return a new byte array object instance.
+     *
+     * @param msg the message to compute the hash of
+     * @return a 20-byte array representing the message's RIPEMD-160 hash
+     * @throws NullPointerException if the message is {@code null}
+     */
+    public static byte[] getHash(byte[] msg) {
+        return new Ripemd160().update(msg, 0, msg.length).digest();
+    }
+
+    public void reset() {
+        state[0] = 0x67452301;
+        state[1] = 0xEFCDAB89;
+        state[2] = 0x98BADCFE;
+        state[3] = 0x10325476;
+        state[4] = 0xC3D2E1F0;
+        blockLength = 0;
+        messageLength = 0;
+    }
+
+    public Ripemd160 update(byte b) {
+        block[blockLength++] = b;
+        messageLength++;
+        if (blockLength == BLOCK_LEN) {
+            this.compress(block, 0);
+            blockLength = 0;
+        }
+        return this;
+    }
+
+    public Ripemd160 update(byte[] data, int offset, int length) {
+        messageLength += length;
+        if (blockLength > 0) {
+            int n = Math.min(length, BLOCK_LEN - blockLength);
+            System.arraycopy(data, offset, block, blockLength, n);
+            blockLength += n;
+            offset += n;
+            length -= n;
+            if (blockLength < BLOCK_LEN) {
+                return this;
+            }
+            this.compress(block, 0);
+            blockLength = 0;
+        }
+        // Compress whole message blocks straight from the input
+        for (; length >= BLOCK_LEN; offset += BLOCK_LEN, length -= BLOCK_LEN) {
+            this.compress(data, offset);
+        }
+        System.arraycopy(data, offset, block, 0, length);
+        blockLength = length;
+        return this;
+    }
+
+    /**
+     * Finishes the hash, writes the digest and resets this instance.
+     *
+     * @param out the array to receive the 20-byte digest.
+     * @param offset the index of the first digest byte.
+     */
+    public void digest(byte[] out, int offset) {
+        // Final blocks, padding, and length
+        long bitLength = messageLength << 3;
+        block[blockLength++] = (byte) 0x80;
+        if (blockLength + 8 > BLOCK_LEN) {
+            Arrays.fill(block, blockLength, BLOCK_LEN, (byte) 0);
+            this.compress(block, 0);
+            blockLength = 0;
+        }
+        Arrays.fill(block, blockLength, BLOCK_LEN - 8, (byte) 0);
+        for (int i = 0; i < 8; i++) {
+            block[BLOCK_LEN - 8 + i] = (byte) (bitLength >>> (i * 8));
+        }
+        this.compress(block, 0);
+
+        // Int32 array to bytes in little endian
+        for (int i = 0; i < DIGEST_LENGTH; i++) {
+            out[offset + i] = (byte) (state[i / 4] >>> (i % 4 * 8));
+        }
+        this.reset();
+    }
+
+    public byte[] digest() {
+        byte[] result = new byte[DIGEST_LENGTH];
+        this.digest(result, 0);
+        return result;
+    }
+
+    private void compress(byte[] blocks, int offset) {
+        // Message schedule
+        for (int j = 0; j < 16; j++) {
+            int k = offset + j * 4;
+            schedule[j] = (blocks[k] & 0xFF) | (blocks[k + 1] & 0xFF) << 8
+                    | (blocks[k + 2] & 0xFF) << 16 | (blocks[k + 3] & 0xFF) << 24;
+        }
+
+        // The 80 rounds
+        int al = state[0], ar = state[0];
+        int bl = state[1], br = state[1];
+        int cl = state[2], cr = state[2];
+        int dl = state[3], dr = state[3];
+        int el = state[4], er = state[4];
+        for (int j = 0; j < 80; j++) {
+            int temp;
+            temp = rotateLeft(al + f(j, bl, cl, dl) + schedule[RL[j]] + KL[j / 16], SL[j]) + el;
+            al = el;
+            el = dl;
+            dl = rotateLeft(cl, 10);
+            cl = bl;
+            bl = temp;
+            temp = rotateLeft(ar + f(79 - j, br, cr, dr) + schedule[RR[j]] + KR[j / 16], SR[j]) + er;
+            ar = er;
+            er = dr;
+            dr = rotateLeft(cr, 10);
+            cr = br;
+            br = temp;
+        }
+        int temp = state[1] + cl + dr;
+        state[1] = state[2] + dl + er;
+        state[2] = state[3] + el + ar;
+        state[3] = state[4] + al + br;
+        state[4] = state[0] + bl + cr;
+        state[0] = temp;
+    }
+
+    private static int f(int i, int x, int y, int z) {
+        assert 0 <= i && i < 80;
+        if (i < 16) {
+            return x ^ y ^ z;
+        }
+        if (i < 32) {
+            return (x & y) | (~x & z);
+        }
+        if (i < 48) {
+            return (x | ~y) ^ z;
+        }
+        if (i < 64) {
+            return (x & z) | (y & ~z);
+        }
+        return x ^ (y | ~z);
+    }
+
+    /*---- Class constants ----*/
+    private static final int[] KL = {0x00000000, 0x5A827999, 0x6ED9EBA1, 0x8F1BBCDC, 0xA953FD4E};  // Round constants for left line
+    private static final int[] KR = {0x50A28BE6, 0x5C4DD124, 0x6D703EF3, 0x7A6D76E9, 0x00000000};  // Round constants for right line
+
+    private static final int[] RL = { // Message schedule for left line
+        0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15,
+        7, 4, 13, 1, 10, 6, 15, 3, 12, 0, 9, 5, 2, 14, 11, 8,
+        3, 10, 14, 4, 9, 15, 8, 1, 2, 7, 0, 6, 13, 11, 5, 12,
+        1, 9, 11, 10, 0, 8, 12, 4, 13, 3, 7, 15, 14, 5, 6, 2,
+        4, 0, 5, 9, 7, 12, 2, 10, 14, 1, 3, 8, 11, 6, 15, 13};
+
+    private static final int[] RR = { // Message schedule for right line
+        5, 14, 7, 0, 9, 2, 11, 4, 13, 6, 15, 8, 1, 10, 3, 12,
+        6, 11, 3, 7, 0, 13, 5, 10, 14, 15, 8, 12, 4, 9, 1, 2,
+        15, 5, 1, 3, 7, 14, 6, 9, 11, 8, 12, 2, 10, 0, 4, 13,
+        8, 6, 4, 1, 3, 11, 15, 0, 5, 12, 2, 13, 9, 7, 10, 14,
+        12, 15, 10, 4, 1, 5, 8, 7, 6, 2, 13, 14, 0, 3, 9, 11};
+
+    private static final int[] SL = { // Left-rotation for left line
+        11, 14, 15, 12, 5, 8, 7, 9, 11, 13, 14, 15, 6, 7, 9, 8,
+        7, 6, 8, 13, 11, 9, 7, 15, 7, 12, 15, 9, 11, 7, 13, 12,
+        11, 13, 6, 7, 14, 9, 13, 15, 14, 8, 13, 6, 5, 12, 7, 5,
+        11, 12, 14, 15, 14, 15, 9, 8, 9, 14, 5, 6, 8, 6, 5, 12,
+        9, 15, 5, 11, 6, 8, 13, 12, 5, 12, 13, 14, 11, 8, 5, 6};
+
+    private static final int[] SR = { // Left-rotation for right line
+        8, 9, 9, 11, 13, 15, 15, 5, 7, 7, 8, 11, 14, 14, 12, 6,
+        9, 13, 15, 7, 12, 8, 9, 11, 7, 7, 12, 7, 6, 15, 13, 11,
+        9, 7, 15, 11, 8, 6, 6, 14, 12, 13, 5, 14, 13, 13, 7, 5,
+        15, 5, 8, 11, 14, 14, 6, 14, 6, 9, 12, 9, 12, 5, 15, 8,
+        8, 5, 12, 9, 12, 5, 14, 6, 8, 13, 6, 5, 15, 13, 11, 11};
+}
@@ -6,8 +6,11 @@ import bpswallet.crypto.ECPrvKey;
 import bpswallet.crypto.ECPubKey;
 import bpswallet.crypto.ScalarMultiply;
 import java.math.BigInteger;
+import java.security.spec.ECPoint;
+import java.util.ArrayList;
+import java.util.Arrays;
 import bpswallet.util.ByteUtil;
-import bpswallet.util.HashUtil;
+import bpswallet.util.HmacSha512;
 
 public class BIP32 {
 
@@ -39,25 +42,82 @@ public class BIP32 {
 
     public static ExtendedPrvKey CKDpriv(ExtendedPrvKey xkeyPar, int childNum, boolean hardened) {
         childNum = (hardened) ? 0x80000000 | childNum : childNum;
-        String data = ((hardened) ? "00" + xkeyPar.getKey().getEncoded() : ((ECPrvKey) xkeyPar.getKey()).getPubKey().getEncoded())
-                + ByteUtil.int2hex(childNum, false);
-        String I = HashUtil.hmac(xkeyPar.getChaincode(), data);
-        BigInteger I_L = new BigInteger(1, ByteUtil.hex2bytes(I.substring(0, I.length() / 2)));
-        String I_R = I.substring(I.length() / 2);
-        BigInteger parSecret = ((ECPrvKey) xkeyPar.getKey()).getSecret();
-        ECPrvKey prvKey = new ECPrvKey(I_L.add(parSecret).mod(CurveParams.n));
+        ECPrvKey prvKeyPar = (ECPrvKey) xkeyPar.getKey();
+        byte[] key;
+        if (hardened) {
+            key = new byte[33];
+            System.arraycopy(prvKeyPar.getBytes(), 0, key, 1, 32);
+        } else {
+            key = prvKeyPar.getPubKey().getBytes();
+        }
+        byte[] I = deriveI(xkeyPar.getChaincodeHmac(), key, childNum);
+        BigInteger I_L = new BigInteger(1, Arrays.copyOfRange(I, 0, 32));
+        String I_R = ByteUtil.hexify(Arrays.copyOfRange(I, 32, 64));
+        ECPrvKey prvKey = new ECPrvKey(I_L.add(prvKeyPar.getSecret()).mod(CurveParams.n));
         return new ExtendedPrvKey(xkeyPar, childNum, prvKey, I_R);
     }
 
     public static ExtendedPubKey CKDpub(ExtendedPubKey xkeyPar, int childNum) {
-        String I = HashUtil.hmac(xkeyPar.getChaincode(), ((ECPubKey) xkeyPar.getKey()).getEncoded() + ByteUtil.int2hex(childNum, false));
-        ECPubKey I_L = new ECPrvKey(I.substring(0, I.length() / 2)).getPubKey();
-        String I_R = I.substring(I.length() / 2);
         ECPubKey pubKeyPar = (ECPubKey) xkeyPar.getKey();
+        byte[] I = deriveI(xkeyPar.getChaincodeHmac(), pubKeyPar.getBytes(), childNum);
+        ECPubKey I_L = new ECPrvKey(new BigInteger(1, Arrays.copyOfRange(I, 0, 32))).getPubKey();
+        String I_R = ByteUtil.hexify(Arrays.copyOfRange(I, 32, 64));
         ECPubKey pubKey = new ECPubKey(ScalarMultiply.addPoint(I_L.getPoint(), pubKeyPar.getPoint()));
         return new ExtendedPubKey(xkeyPar, childNum, pubKey, I_R);
     }
 
+    /**
+     * Derives the consecutive public children start, start + 1, ...,
+     * start + count - 1 of a parent extended public key. The child points are
+     * normalized together, so the whole range pays for one modular inversion.
+     *
+     * @param xkeyPar the parent extended public key.
+     * @param start the first child number.
+     * @param count the number of children to derive.
+     * @return the derived children, in order of child number.
+     */
+    public static ArrayList<ExtendedPubKey> CKDpubRange(ExtendedPubKey xkeyPar, int start, int count) {
+        ECPubKey pubKeyPar = (ECPubKey) xkeyPar.getKey();
+        HmacSha512 hmac = xkeyPar.getChaincodeHmac();
+        byte[] data = Arrays.copyOf(pubKeyPar.getBytes(), 37);
+        byte[] I = new byte[HmacSha512.MAC_LENGTH];
+        BigInteger[] tweaks = new BigInteger[count];
+        String[] chaincodes = new String[count];
+        for (int i = 0; i < count; i++) {
+            putChildNum(data, start + i);
+            hmac.mac(data, 0, data.length, I, 0);
+            tweaks[i] = new BigInteger(1, Arrays.copyOfRange(I, 0, 32));
+            chaincodes[i] = ByteUtil.hexify(Arrays.copyOfRange(I, 32, 64));
+        }
+        ECPoint[] points = ScalarMultiply.scalmultBaseBatch(tweaks, pubKeyPar.getPoint());
+        ArrayList<ExtendedPubKey> children = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            children.add(new ExtendedPubKey(xkeyPar, start + i, new ECPubKey(points[i]), chaincodes[i]));
+        }
+        return children;
+    }
+
+    /**
+     * Computes I = HMAC-SHA512(chaincode, key || ser32(childNum)).
+     *
+     * @param hmac the parent's chaincode context.
+     * @param key the 33-byte serialized parent key.
+     * @param childNum the child number.
+     * @return the 64-byte I.
+     */
+    private static byte[] deriveI(HmacSha512 hmac, byte[] key, int childNum) {
+        byte[] data = Arrays.copyOf(key, 37);
+        putChildNum(data, childNum);
+        return hmac.mac(data);
+    }
+
+    private static void putChildNum(byte[] data, int childNum) {
+        data[33] = (byte) (childNum >>> 24);
+        data[34] = (byte) (childNum >>> 16);
+        data[35] = (byte) (childNum >>> 8);
+        data[36] = (byte) childNum;
+    }
+
     public static ExtendedPubKey NCKDpriv(ExtendedPrvKey xkeyPar, int childNum, boolean hardened) {
         if (hardened) {
             ExtendedPrvKey xkey = CKDpriv(xkeyPar, childNum, hardened);
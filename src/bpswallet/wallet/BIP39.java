@@ -5,6 +5,7 @@ import bpswallet.crypto.ECPrvKey;
 import bpswallet.util.ByteUtil;
 import bpswallet.util.FileUtil;
 import bpswallet.util.HashUtil;
+import bpswallet.util.Pbkdf2Sha512;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -28,6 +29,28 @@ public class BIP39 {
         return ByteUtil.hexify(entropy.getEncoded());
     }
 
+    /**
+     * Computes the seeds of many mnemonics under one passphrase in parallel,
+     * as when searching for a partially known mnemonic.
+     *
+     * @param mnemonics the mnemonic sentences.
+     * @param passphrase the passphrase shared by every mnemonic.
+     * @return the hex seeds, in the same order as the mnemonics.
+     */
+    public static String[] generateSeeds(String[] mnemonics, char[] passphrase) {
+        char[][] passwords = new char[mnemonics.length][];
+        for (int i = 0; i < mnemonics.length; i++) {
+            passwords[i] = mnemonics[i].toCharArray();
+        }
+        byte[] salt = ("mnemonic" + new String(passphrase)).getBytes(StandardCharsets.UTF_8);
+        byte[][] seeds = Pbkdf2Sha512.deriveAll(passwords, salt, 2048, 64);
+        String[] hexSeeds = new String[seeds.length];
+        for (int i = 0; i < seeds.length; i++) {
+            hexSeeds[i] = ByteUtil.hexify(seeds[i]);
+        }
+        return hexSeeds;
+    }
+
     public static String generateMnemonic(int mnemonicLength) {
         int entropy_length = ((mnemonicLength * 11) - ((mnemonicLength * 11) % 32)) / 8;
         boolean[] entropy = generateMnemonicEntropy(entropy_length);
@@ -7,6 +7,7 @@ import bpswallet.txn.Outpoint;
 import bpswallet.txn.Transaction;
 import bpswallet.txn.TransactionInput;
 import bpswallet.txn.TransactionOutput;
+import bpswallet.txn.TransactionView;
 import bpswallet.crypto.AESData;
 import bpswallet.crypto.ECIESData;
 import bpswallet.crypto.ECKeyPair;
@@ -109,14 +110,15 @@ public class BPSWallet {
             boolean found = false;
             TransactionOutput output = txn.getOutputAt(i);
             Outpoint outpoint = new Outpoint(txn.getHash(false), i);
-            if (output.getAddress() == null) {
+            Address address = output.getAddress();
+            if (address == null) {
                 continue;
             }
             if (coins.contains(outpoint)) {
                 continue;
             }
             for (Address addr : extAddresses) {
-                if (output.getAddress().equals(addr)) {
+                if (address.equals(addr)) {
                     coins.add(outpoint);
                     addr.setUsed(true);
                     found = true;
@@ -125,7 +127,7 @@ public class BPSWallet {
             }
             if (!found) {
                 for (Address addr : intAddresses) {
-                    if (output.getAddress().equals(addr)) {
+                    if (address.equals(addr)) {
                         coins.add(outpoint);
                         addr.setUsed(true);
                         break;
@@ -208,8 +210,8 @@ public class BPSWallet {
     public ArrayList<TransactionOutput> getUnspentOutputs() {
         ArrayList<TransactionOutput> outputs = new ArrayList<>();
         for (Outpoint coin : coins) {
-            Transaction txn = FileUtil.getTransaction(coin.getHash(), false);
-            outputs.add(txn.getOutputAt(coin.getIndex()));
+            TransactionView txn = FileUtil.getTransactionView(coin.getHash(), false);
+            outputs.add(txn.getOutput(coin.getIndex()));
         }
         return outputs;
     }
@@ -217,47 +219,53 @@ public class BPSWallet {
     public void rescan() {
         coins.clear();
         String[] txnHashes = FileUtil.listAllTransactions(false);
-        ArrayList<TransactionInput> inputs = new ArrayList<>();
-        ArrayList<TransactionOutput> outputs = new ArrayList<>();
-        ArrayList<String> outputHashes = new ArrayList<>();
-        ArrayList<Integer> outputIndeces = new ArrayList<>();
-        for (String txnHash : txnHashes) {
-            Transaction txn = FileUtil.getTransaction(txnHash, false);
-            for (int i = 0; i < txn.getNumOutputs(); i++) {
-                outputs.add(txn.getOutputAt(i));
-                outputHashes.add(txnHash);
-                outputIndeces.add(i);
-            }
-            for (int i = 0; i < txn.getNumInputs(); i++) {
-                inputs.add(txn.getInputs().get(i));
-            }
-        }
+        TransactionView[] txns = loadTransactionViews(txnHashes);
         for (Address address : extAddresses) {
-            for (int i = 0; i < outputs.size(); i++) {
-                TransactionOutput output = outputs.get(i);
-                if (output.getAddress() != null && output.getAddress().equals(address)) {
-                    address.setUsed(true);
-                    String hash = outputHashes.get(i);
-                    int index = outputIndeces.get(i);
-                    coins.add(new Outpoint(hash, index));
-                }
-            }
+            this.addCoins(address, txnHashes, txns);
         }
         for (Address address : intAddresses) {
-            for (int i = 0; i < outputs.size(); i++) {
-                TransactionOutput output = outputs.get(i);
-                if (output.getAddress() != null && output.getAddress().equals(address)) {
+            this.addCoins(address, txnHashes, txns);
+        }
+        this.removeSpentCoins(txns);
+    }
+
+    private static TransactionView[] loadTransactionViews(String[] txnHashes) {
+        TransactionView[] txns = new TransactionView[txnHashes.length];
+        for (int i = 0; i < txnHashes.length; i++) {
+            txns[i] = FileUtil.getTransactionView(txnHashes[i], false);
+        }
+        return txns;
+    }
+
+    /**
+     * Adds every stored output paying to the address as a coin, comparing
+     * scripts in place in the stored transactions.
+     *
+     * @return true if any output pays to the address, which is then marked
+     * as used.
+     */
+    private boolean addCoins(Address address, String[] txnHashes, TransactionView[] txns) {
+        byte[] script = address.getScriptPubKeyBytes();
+        boolean found = false;
+        for (int i = 0; i < txns.length; i++) {
+            for (int j = 0; j < txns[i].getNumOutputs(); j++) {
+                if (txns[i].scriptPubKeyEquals(j, script)) {
                     address.setUsed(true);
-                    String hash = outputHashes.get(i);
-                    int index = outputIndeces.get(i);
-                    coins.add(new Outpoint(hash, index));
+                    coins.add(new Outpoint(txnHashes[i], j));
+                    found = true;
                 }
             }
         }
-        for (TransactionInput input : inputs) {
-            Outpoint outpoint = input.getOutpoint();
-            if (coins.contains(outpoint)) {
-                coins.remove(outpoint);
+        return found;
+    }
+
+    private void removeSpentCoins(TransactionView[] txns) {
+        for (TransactionView txn : txns) {
+            for (int i = 0; i < txn.getNumInputs(); i++) {
+                Outpoint outpoint = txn.getOutpoint(i);
+                if (coins.contains(outpoint)) {
+                    coins.remove(outpoint);
+                }
             }
         }
     }
@@ -269,8 +277,8 @@ public class BPSWallet {
     public long getBalance() {
         long balance = 0;
         for (Outpoint coin : coins) {
-            Transaction txn = FileUtil.getTransaction(coin.getHash(), false);
-            balance += txn.getOutputAt(coin.getIndex()).getValue();
+            TransactionView txn = FileUtil.getTransactionView(coin.getHash(), false);
+            balance += txn.getOutputValue(coin.getIndex());
         }
         return balance;
     }
@@ -439,46 +447,22 @@ public class BPSWallet {
         String[] txnHashes = FileUtil.listAllTransactions(false);
         ArrayList<Address> addresses = new ArrayList<>();
         int numUnused = 0;
-        ArrayList<TransactionInput> inputs = new ArrayList<>();
-        ArrayList<TransactionOutput> outputs = new ArrayList<>();
-        ArrayList<String> outputHashes = new ArrayList<>();
-        ArrayList<Integer> outputIndeces = new ArrayList<>();
-        for (String txnHash : txnHashes) {
-            Transaction txn = FileUtil.getTransaction(txnHash, false);
-            for (int i = 0; i < txn.getNumOutputs(); i++) {
-                outputs.add(txn.getOutputAt(i));
-                outputIndeces.add(i);
-                outputHashes.add(txnHash);
-            }
-            for (int i = 0; i < txn.getNumInputs(); i++) {
-                inputs.add(txn.getInputs().get(i));
-            }
-        }
+        TransactionView[] txns = loadTransactionViews(txnHashes);
         while (numUnused < lookahead) {
-            ExtendedPubKey addrXpub = BIP32.CKDpub(xpub, addresses.size());
-            Address address = AddressFactory.fromExtendedKey(addrXpub);
-            addresses.add(address);
-            for (int i = 0; i < outputs.size(); i++) {
-                TransactionOutput output = outputs.get(i);
-                if (output.getAddress() != null && output.getAddress().equals(address)) {
+            // Derive only as many as could still be needed to reach the gap limit
+            for (ExtendedPubKey addrXpub : BIP32.CKDpubRange(xpub, addresses.size(), lookahead - numUnused)) {
+                Address address = AddressFactory.fromExtendedKey(addrXpub);
+                addresses.add(address);
+                if (this.addCoins(address, txnHashes, txns)) {
                     numUnused = 0;
-                    address.setUsed(true);
-                    String hash = outputHashes.get(i);
-                    int index = outputIndeces.get(i);
-                    coins.add(new Outpoint(hash, index));
                 }
-            }
 
-            if (!address.isUsed()) {
-                numUnused++;
-            }
-        }
-        for (TransactionInput input : inputs) {
-            Outpoint outpoint = input.getOutpoint();
-            if (coins.contains(outpoint)) {
-                coins.remove(outpoint);
+                if (!address.isUsed()) {
+                    numUnused++;
+                }
             }
         }
+        this.removeSpentCoins(txns);
         return addresses;
     }
 
@@ -7,6 +7,7 @@ import bpswallet.crypto.ECPrvKey;
 import bpswallet.crypto.ECPubKey;
 import bpswallet.util.ByteUtil;
 import bpswallet.util.HashUtil;
+import bpswallet.util.HmacSha512;
 import java.util.Objects;
 
 public class ExtendedPrvKey implements ExtendedKey {
@@ -18,6 +19,7 @@ public class ExtendedPrvKey implements ExtendedKey {
     private final int childNum;
     private final String chaincode;
     private final ECPrvKey prvKey;
+    private HmacSha512 chaincodeHmac;
 
     public ExtendedPrvKey(AddressType type, ECPrvKey prvKey, String chaincode) {
         ECPubKey pubKey = prvKey.getPubKey();
@@ -85,6 +87,18 @@ public class ExtendedPrvKey implements ExtendedKey {
         return chaincode;
     }
 
+    /**
+     * @return the HMAC-SHA512 context keyed by the chaincode, built on first
+     * use and shared by every child derived from this key.
+     */
+    HmacSha512 getChaincodeHmac() {
+        HmacSha512 hmac = chaincodeHmac;
+        if (hmac == null) {
+            hmac = chaincodeHmac = new HmacSha512(ByteUtil.hex2bytes(chaincode));
+        }
+        return hmac;
+    }
+
     @Override
     public ECKey getKey() {
         return prvKey;
@@ -6,6 +6,7 @@ import bpswallet.crypto.ECKey;
 import bpswallet.crypto.ECPubKey;
 import bpswallet.util.ByteUtil;
 import bpswallet.util.HashUtil;
+import bpswallet.util.HmacSha512;
 import java.util.Objects;
 
 public class ExtendedPubKey implements ExtendedKey {
@@ -17,6 +18,7 @@ public class ExtendedPubKey implements ExtendedKey {
     private final int childNum;
     private final String chaincode;
     private final ECPubKey pubKey;
+    private HmacSha512 chaincodeHmac;
 
     public ExtendedPubKey(AddressType type, int depth, String fingerprint, int childNum, String chaincode, ECPubKey pubKey) {
         id = HashUtil.hash160(pubKey.getEncoded());
@@ -89,6 +91,18 @@ public class ExtendedPubKey implements ExtendedKey {
         return chaincode;
     }
 
+    /**
+     * @return the HMAC-SHA512 context keyed by the chaincode, built on first
+     * use and shared by every child derived from this key.
+     */
+    HmacSha512 getChaincodeHmac() {
+        HmacSha512 hmac = chaincodeHmac;
+        if (hmac == null) {
+            hmac = chaincodeHmac = new HmacSha512(ByteUtil.hex2bytes(chaincode));
+        }
+        return hmac;
+    }
+
     @Override
     public ECKey getKey() {
         return pubKey;